@@ -1,15 +1,23 @@
 package com.pds.location.controller;
 
+import com.pds.location.model.DistanceMatrixRequest;
+import com.pds.location.model.DistanceMatrixResponse;
 import com.pds.location.service.DistanceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * REST API for computing distance between two coordinate pairs.
  * Responsibilities:
- *   - Exposes /api/distance for LogisticsService to rank vehicles
+ *   - Exposes /api/distance for one pair of coordinates
+ *   - Exposes /api/distance/matrix for N origins x M destinations (LogisticsService ranks vehicles with it)
  *   - Delegates distance computation to DistanceService
  *   - Returns distance in kilometers
  * Integration:
@@ -23,6 +31,10 @@ public class DistanceController {
 
     private final DistanceService distanceService;
 
+    // Largest N x M accepted by /api/distance/matrix
+    @Value("${location.distance.matrix.max-elements:2500}")
+    private int maxMatrixElements;
+
     public DistanceController(DistanceService distanceService) {
         this.distanceService = distanceService;
     }
@@ -39,4 +51,17 @@ public class DistanceController {
     ) {
         return distanceService.computeDistance(lat1, lng1, lat2, lng2);
     }
+
+    // -------------------------------------------------------------
+    // DISTANCE MATRIX (N origins x M destinations -> distance in KM)
+    // -------------------------------------------------------------
+    @PostMapping("/distance/matrix")
+    public DistanceMatrixResponse getDistanceMatrix(@RequestBody DistanceMatrixRequest request) {
+        int elements = request.getOrigins().size() * request.getDestinations().size();
+        if (elements == 0 || elements > maxMatrixElements) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "origins x destinations must be between 1 and " + maxMatrixElements);
+        }
+        return distanceService.computeMatrix(request.getOrigins(), request.getDestinations());
+    }
 }
@@ -6,6 +6,7 @@ import com.pds.location.model.WarehouseZoneInfo;
 import com.pds.location.repository.WarehouseRepository;
 import com.pds.location.service.GoogleMapsService;
 import com.pds.location.service.LocationService;
+import com.pds.location.service.WarehouseChangeNotifier;
 
 import org.json.JSONException;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +26,7 @@ import java.util.*;
  *   - GoogleMapsService for geocoding and routing
  *   - LocationService for ranking and classification logic
  *   - WarehouseRepository for DB operations
+ *   - WarehouseChangeNotifier to invalidate OrderProcessingService ranking caches
  */
 
 @RestController
@@ -35,15 +37,18 @@ public class WarehouseController {
     private final WarehouseRepository warehouseRepository;
     private final GoogleMapsService googleMapsService;
     private final LocationService locationService;
+    private final WarehouseChangeNotifier changeNotifier;
 
     public WarehouseController(
             WarehouseRepository warehouseRepository,
             GoogleMapsService googleMapsService,
-            LocationService locationService
+            LocationService locationService,
+            WarehouseChangeNotifier changeNotifier
     ) {
         this.warehouseRepository = warehouseRepository;
         this.googleMapsService = googleMapsService;
         this.locationService = locationService;
+        this.changeNotifier = changeNotifier;
     }
 
     // -------------------------------------------------------------
@@ -64,7 +69,9 @@ public class WarehouseController {
             warehouse.setLatitude(coords[0]);
             warehouse.setLongitude(coords[1]);
         }
-        return warehouseRepository.save(warehouse);
+        Warehouse saved = warehouseRepository.save(warehouse);
+        changeNotifier.warehousesChanged();
+        return saved;
     }
 
     // -------------------------------------------------------------
@@ -74,6 +81,7 @@ public class WarehouseController {
     public String deleteWarehouse(@PathVariable Long id) {
         if (warehouseRepository.existsById(id)) {
             warehouseRepository.deleteById(id);
+            changeNotifier.warehousesChanged();
             return "Warehouse " + id + " deleted.";
         }
         return "Warehouse not found.";
@@ -0,0 +1,27 @@
+package com.pds.location.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /api/distance/matrix: N origins and M destinations.
+ * Sent By:
+ *   - LogisticsService DistanceServiceClient (vehicles as origins, pickup point as destination)
+ */
+
+public class DistanceMatrixRequest {
+    private List<LatLng> origins = new ArrayList<>();
+    private List<LatLng> destinations = new ArrayList<>();
+
+    public DistanceMatrixRequest() {}
+
+    public DistanceMatrixRequest(List<LatLng> origins, List<LatLng> destinations) {
+        this.origins = origins;
+        this.destinations = destinations;
+    }
+
+    public List<LatLng> getOrigins() { return origins; }
+    public void setOrigins(List<LatLng> origins) { this.origins = origins; }
+    public List<LatLng> getDestinations() { return destinations; }
+    public void setDestinations(List<LatLng> destinations) { this.destinations = destinations; }
+}
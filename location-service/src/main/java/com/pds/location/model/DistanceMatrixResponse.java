@@ -0,0 +1,37 @@
+package com.pds.location.model;
+
+import java.util.List;
+
+/**
+ * Result of POST /api/distance/matrix: rows.get(i).get(j) is origin i -> destination j.
+ * Each cell says where its distance came from:
+ *   - ROUTES: Google computeRouteMatrix (driving distance)
+ *   - CACHE: an earlier Routes answer for the same pair (shared with /api/distance)
+ *   - HAVERSINE: straight-line fallback, durationSeconds = 0
+ */
+
+public class DistanceMatrixResponse {
+    private List<List<Cell>> rows;
+
+    public DistanceMatrixResponse(List<List<Cell>> rows) {
+        this.rows = rows;
+    }
+
+    public List<List<Cell>> getRows() { return rows; }
+
+    public static class Cell {
+        private double distanceKm;
+        private long durationSeconds;
+        private String source;
+
+        public Cell(double distanceKm, long durationSeconds, String source) {
+            this.distanceKm = distanceKm;
+            this.durationSeconds = durationSeconds;
+            this.source = source;
+        }
+
+        public double getDistanceKm() { return distanceKm; }
+        public long getDurationSeconds() { return durationSeconds; }
+        public String getSource() { return source; }
+    }
+}
@@ -1,24 +1,39 @@
 package com.pds.location.service;
 
+import com.pds.location.model.DistanceMatrixResponse;
+import com.pds.location.model.LatLng;
 import org.json.JSONObject;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Provides distance calculation functionality using Google Maps Routes API.
  * Integration:
  *   - Primary: GoogleMapsService.computeRoute(...) for accurate driving distance
  *   - Fallback: Haversine formula for geographic straight-line distance
+ * Matrices (computeMatrix) are answered per cell from distanceCache, then from batched
+ * GoogleMapsService.computeRouteMatrix requests for the missing cells, then by Haversine.
  * Used By:
- *   - DistanceController (REST endpoint /api/distance)
+ *   - DistanceController (REST endpoints /api/distance and /api/distance/matrix)
  *   - LogisticsService (vehicle distance ranking)
  */
 @Service
 public class DistanceService {
 
+    // Routes API limits per computeRouteMatrix request: 25 origins x 25 destinations
+    private static final int MAX_BLOCK = 25;
+
     private final GoogleMapsService googleMapsService;
+    private final CacheManager cacheManager;
 
-    public DistanceService(GoogleMapsService googleMapsService) {
+    public DistanceService(GoogleMapsService googleMapsService, CacheManager cacheManager) {
         this.googleMapsService = googleMapsService;
+        this.cacheManager = cacheManager;
     }
 
     // -------------------------------------------------------------
@@ -40,6 +55,94 @@ public class DistanceService {
         return haversine(lat1, lng1, lat2, lng2);
     }
 
+    // -------------------------------------------------------------
+    // DISTANCE MATRIX (N origins x M destinations -> KM)
+    // -------------------------------------------------------------
+    public DistanceMatrixResponse computeMatrix(List<LatLng> origins, List<LatLng> destinations) {
+        int n = origins.size();
+        int m = destinations.size();
+        JSONObject[][] routes = new JSONObject[n][m];
+        String[][] sources = new String[n][m];
+        Cache cache = cacheManager.getCache("distanceCache");
+
+        // 1) cells already known, under the same keys computeRoute caches them with
+        boolean[] originMissing = new boolean[n];
+        boolean[] destinationMissing = new boolean[m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                Cache.ValueWrapper cached = cache != null ? cache.get(cacheKey(origins.get(i), destinations.get(j))) : null;
+                if (cached != null && cached.get() instanceof JSONObject route) {
+                    routes[i][j] = route;
+                    sources[i][j] = "CACHE";
+                } else {
+                    originMissing[i] = true;
+                    destinationMissing[j] = true;
+                }
+            }
+        }
+        List<Integer> missingOrigins = indexesOf(originMissing);
+        List<Integer> missingDestinations = indexesOf(destinationMissing);
+
+        // 2) one Routes request per 25 x 25 block of the origins and destinations with a missing cell
+        for (int oi = 0; oi < missingOrigins.size(); oi += MAX_BLOCK) {
+            List<Integer> originBlock = missingOrigins.subList(oi, Math.min(missingOrigins.size(), oi + MAX_BLOCK));
+            for (int dj = 0; dj < missingDestinations.size(); dj += MAX_BLOCK) {
+                List<Integer> destinationBlock = missingDestinations.subList(dj, Math.min(missingDestinations.size(), dj + MAX_BLOCK));
+                JSONObject[][] block = googleMapsService.computeRouteMatrix(
+                        originBlock.stream().map(origins::get).toList(),
+                        destinationBlock.stream().map(destinations::get).toList());
+                if (block == null) {
+                    continue;
+                }
+                for (int a = 0; a < originBlock.size(); a++) {
+                    for (int b = 0; b < destinationBlock.size(); b++) {
+                        int i = originBlock.get(a);
+                        int j = destinationBlock.get(b);
+                        if (block[a][b] == null || sources[i][j] != null) {
+                            continue;
+                        }
+                        routes[i][j] = block[a][b];
+                        sources[i][j] = "ROUTES";
+                        if (cache != null) {
+                            cache.put(cacheKey(origins.get(i), destinations.get(j)), block[a][b]);
+                        }
+                    }
+                }
+            }
+        }
+
+        // 3) Haversine for whatever is left (not cached, so a later request can still get a route)
+        List<List<DistanceMatrixResponse.Cell>> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<DistanceMatrixResponse.Cell> row = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                if (routes[i][j] != null) {
+                    row.add(new DistanceMatrixResponse.Cell(routes[i][j].getDouble("distance_km"),
+                            routes[i][j].optLong("duration_seconds", 0), sources[i][j]));
+                } else {
+                    LatLng o = origins.get(i);
+                    LatLng d = destinations.get(j);
+                    row.add(new DistanceMatrixResponse.Cell(haversine(o.getLat(), o.getLng(), d.getLat(), d.getLng()), 0, "HAVERSINE"));
+                }
+            }
+            rows.add(row);
+        }
+        return new DistanceMatrixResponse(rows);
+    }
+
+    private List<Integer> indexesOf(boolean[] flags) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i]) indexes.add(i);
+        }
+        return indexes;
+    }
+
+    // The key @Cacheable("distanceCache") generates for computeRoute(fromLat, fromLon, toLat, toLon)
+    private SimpleKey cacheKey(LatLng from, LatLng to) {
+        return new SimpleKey(from.getLat(), from.getLng(), to.getLat(), to.getLng());
+    }
+
     // -------------------------------------------------------------
     // HAVERSINE FALLBACK
     // -------------------------------------------------------------
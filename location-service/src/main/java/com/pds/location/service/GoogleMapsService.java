@@ -1,6 +1,7 @@
 package com.pds.location.service;
 
 import com.pds.location.model.GeocodeCache;
+import com.pds.location.model.LatLng;
 import com.pds.location.repository.GeocodeCacheRepository;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -167,18 +169,8 @@ public class GoogleMapsService {
             String url = "https://routes.googleapis.com/distanceMatrix/v2:computeRouteMatrix";
 
             JSONObject requestBody = new JSONObject()
-                    .put("origins", new JSONArray().put(new JSONObject()
-                            .put("waypoint", new JSONObject()
-                                    .put("location", new JSONObject()
-                                            .put("latLng", new JSONObject()
-                                                    .put("latitude", fromLat)
-                                                    .put("longitude", fromLon))))))
-                    .put("destinations", new JSONArray().put(new JSONObject()
-                            .put("waypoint", new JSONObject()
-                                    .put("location", new JSONObject()
-                                            .put("latLng", new JSONObject()
-                                                    .put("latitude", toLat)
-                                                    .put("longitude", toLon))))))
+                    .put("origins", new JSONArray().put(waypoint(fromLat, fromLon)))
+                    .put("destinations", new JSONArray().put(waypoint(toLat, toLon)))
                     .put("travelMode", "DRIVE");
 
             HttpHeaders headers = new HttpHeaders();
@@ -204,26 +196,92 @@ public class GoogleMapsService {
                 return null;
             }
 
-            double distanceMeters = route.optDouble("distanceMeters", 0);
+            return routeResult(route.optDouble("distanceMeters", 0), route.optString("duration", "0s"));
 
-            // Parse new format duration string
-            String durationStr = route.optString("duration", "0s").replace("s", "");
-            long durationSeconds = 0;
-            try {
-                durationSeconds = Long.parseLong(durationStr);
-            } catch (NumberFormatException ignored) {}
+        } catch (Exception e) {
+            System.err.println("Error in computeRoute: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // ROUTE MATRIX API (N origins x M destinations, one request)
+    // -------------------------------------------------------------
+    // Returns results[i][j] in the computeRoute format (null where there is no route),
+    // or null if the request failed. Google accepts at most 25 origins x 25 destinations per request.
+    public JSONObject[][] computeRouteMatrix(List<LatLng> origins, List<LatLng> destinations) {
+        try {
+            String url = "https://routes.googleapis.com/distanceMatrix/v2:computeRouteMatrix";
+
+            JSONArray originWaypoints = new JSONArray();
+            origins.forEach(o -> originWaypoints.put(waypoint(o.getLat(), o.getLng())));
+            JSONArray destinationWaypoints = new JSONArray();
+            destinations.forEach(d -> destinationWaypoints.put(waypoint(d.getLat(), d.getLng())));
+
+            JSONObject requestBody = new JSONObject()
+                    .put("origins", originWaypoints)
+                    .put("destinations", destinationWaypoints)
+                    .put("travelMode", "DRIVE");
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("X-Goog-Api-Key", apiKey);
+            headers.set("X-Goog-FieldMask", "originIndex,destinationIndex,duration,distanceMeters,status,condition");
 
-            JSONObject result = new JSONObject();
-            result.put("distance_km", distanceMeters / 1000.0);
-            result.put("duration_seconds", durationSeconds);
-            result.put("duration_text",
-                    durationSeconds > 0 ? (durationSeconds / 60) + " min" : "unknown");
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url, HttpMethod.POST, new HttpEntity<>(requestBody.toString(), headers), String.class
+            );
 
-            return result;
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                System.err.println("Routes API matrix failed: " + response.getStatusCode());
+                return null;
+            }
+
+            JSONObject[][] results = new JSONObject[origins.size()][destinations.size()];
+            JSONArray elements = new JSONArray(response.getBody());
+            for (int k = 0; k < elements.length(); k++) {
+                JSONObject element = elements.getJSONObject(k);
+                // Zero indexes and distances are left out of the JSON, hence the defaults
+                int i = element.optInt("originIndex", 0);
+                int j = element.optInt("destinationIndex", 0);
+                if (!"ROUTE_EXISTS".equals(element.optString("condition")) || !element.has("duration")) {
+                    continue;
+                }
+                results[i][j] = routeResult(element.optDouble("distanceMeters", 0), element.optString("duration", "0s"));
+            }
+            return results;
 
         } catch (Exception e) {
-            System.err.println("Error in computeRoute: " + e.getMessage());
+            System.err.println("Error in computeRouteMatrix: " + e.getMessage());
             return null;
         }
     }
+
+    // -------------------------------------------------------------
+    // REQUEST / RESULT SHAPES (shared by computeRoute and computeRouteMatrix)
+    // -------------------------------------------------------------
+    private JSONObject waypoint(double lat, double lon) {
+        return new JSONObject()
+                .put("waypoint", new JSONObject()
+                        .put("location", new JSONObject()
+                                .put("latLng", new JSONObject()
+                                        .put("latitude", lat)
+                                        .put("longitude", lon))));
+    }
+
+    // One definition of a route result: distanceCache holds entries from both methods
+    // Parses the Routes API duration string ("123s")
+    private JSONObject routeResult(double distanceMeters, String duration) {
+        long durationSeconds = 0;
+        try {
+            durationSeconds = Long.parseLong(duration.replace("s", ""));
+        } catch (NumberFormatException ignored) {}
+
+        JSONObject result = new JSONObject();
+        result.put("distance_km", distanceMeters / 1000.0);
+        result.put("duration_seconds", durationSeconds);
+        result.put("duration_text",
+                durationSeconds > 0 ? (durationSeconds / 60) + " min" : "unknown");
+        return result;
+    }
 }
@@ -0,0 +1,51 @@
+package com.pds.location.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Tells dependent services that the warehouse set changed.
+ * Responsibilities:
+ *   - Clears the OrderProcessingService address -> ranked warehouse cache
+ *     after a warehouse is added or deleted
+ * Notes:
+ *   - Fire-and-forget: a missed notification only leaves rankings stale
+ *     until the order-side cache TTL expires
+ *   - Connect and read deadlines keep a hung order service from tying up
+ *     the async executor thread
+ * Used By:
+ *   - WarehouseController (CRUD endpoints)
+ */
+@Service
+public class WarehouseChangeNotifier {
+
+    private final RestTemplate restTemplate;
+    private final String orderServiceUrl;
+
+    public WarehouseChangeNotifier(@Value("${service.order.url:http://localhost:8082}") String orderServiceUrl,
+                                   @Value("${service.order.connect-timeout:PT2S}") Duration connectTimeout,
+                                   @Value("${service.order.read-timeout:PT3S}") Duration readTimeout) {
+        this.orderServiceUrl = orderServiceUrl;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    // -------------------------------------------------------------
+    // NOTIFY: warehouse added/removed -> invalidate ranking caches
+    // -------------------------------------------------------------
+    @Async
+    public void warehousesChanged() {
+        try {
+            restTemplate.delete(orderServiceUrl + "/orders/candidates/cache");
+        } catch (Exception e) {
+            System.err.println("Warehouse change notification failed: " + e.getMessage());
+        }
+    }
+}
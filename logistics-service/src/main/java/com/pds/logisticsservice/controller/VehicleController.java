@@ -1,15 +1,22 @@
 package com.pds.logisticsservice.controller;
 
 import com.pds.logisticsservice.model.VehicleLocationUpdate;
+import com.pds.logisticsservice.model.VehiclePosition;
+import com.pds.logisticsservice.model.VehicleStatusUpdate;
+import com.pds.logisticsservice.service.PositionHistoryStore;
 import com.pds.logisticsservice.service.VehicleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+
 /*
     REST API for vehicle-related operations. Mostly used for updating real-time vehicle locations
  */
 
-//TODO: add endpoint to register a new vehicle, assign to MAINTENANCE, etc.
+//TODO: add endpoint to register a new vehicle
 //TODO: Add endpoint to get all vehicles or by status
 
 @RestController
@@ -19,6 +26,9 @@ public class VehicleController {
     @Autowired
     private VehicleService vehicleService;
 
+    @Autowired
+    private PositionHistoryStore positionHistory;
+
     //==================================================================================
     // Updates the location of a specific vehicle by POST /vehicle/update
     //=================================================================================
@@ -27,4 +37,47 @@ public class VehicleController {
         vehicleService.updateLocation(req);
         return "Location updated";
     }
+
+    //==================================================================================
+    // Updates the locations of many vehicles at once by POST /vehicle/updates
+    // (e.g. a gateway forwarding a second's worth of GPS reports); stale reports are skipped
+    //=================================================================================
+    @PostMapping("/updates")
+    public String updateLocations(@RequestBody List<VehicleLocationUpdate> updates) {
+        int accepted = vehicleService.updateLocations(updates);
+        return accepted + " of " + updates.size() + " locations updated";
+    }
+
+    //==================================================================================
+    // Changes the status of a vehicle (AVAILABLE, EN_ROUTE, MAINTENANCE) by POST /vehicle/status
+    //=================================================================================
+    @PostMapping("/status")
+    public String updateStatus(@RequestBody VehicleStatusUpdate req) {
+        vehicleService.updateStatus(req);
+        return "Status updated";
+    }
+
+    //==================================================================================
+    // Position history of a vehicle by GET /vehicle/{id}/history?from=...&to=...&limit=...
+    // (ISO-8601 times, default the last hour; oldest first, at most limit points - the newest ones)
+    //=================================================================================
+    @GetMapping("/{id}/history")
+    public List<VehiclePosition> history(@PathVariable Long id,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                         @RequestParam(defaultValue = "10000") int limit) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minusSeconds(3600);
+        return positionHistory.query(id, start, end, limit);
+    }
+
+    //==================================================================================
+    // Drops position history older than the given time by DELETE /vehicle/history?before=...
+    // (whole segment files, so points a little older may remain)
+    //=================================================================================
+    @DeleteMapping("/history")
+    public String deleteHistory(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant before) {
+        int deleted = positionHistory.deleteBefore(before);
+        return "Deleted " + deleted + " history segments";
+    }
 }
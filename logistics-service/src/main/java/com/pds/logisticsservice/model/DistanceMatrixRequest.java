@@ -0,0 +1,33 @@
+package com.pds.logisticsservice.model;
+
+import java.util.List;
+
+/*
+    Body of location-service POST /api/distance/matrix: road distances from every origin to every destination
+
+    Sent by DistanceServiceClient (vehicles as origins, the pickup point as the destination)
+ */
+
+public class DistanceMatrixRequest {
+
+    private List<LatLng> origins;
+    private List<LatLng> destinations;
+
+    public DistanceMatrixRequest(List<LatLng> origins, List<LatLng> destinations) {
+        this.origins = origins;
+        this.destinations = destinations;
+    }
+
+    //=====================================================
+    // GETTERS
+    //===================================================
+    public List<LatLng> getOrigins() {
+        return origins;
+    }
+
+    public List<LatLng> getDestinations() {
+        return destinations;
+    }
+
+    public record LatLng(double lat, double lng) {}
+}
@@ -0,0 +1,55 @@
+package com.pds.logisticsservice.model;
+
+import java.util.List;
+
+/*
+    Answer of location-service POST /api/distance/matrix: rows.get(i).get(j) is origin i -> destination j
+
+    source is ROUTES or CACHE for driving distances, HAVERSINE when location-service fell back to a straight line
+ */
+
+public class DistanceMatrixResponse {
+
+    private List<List<Cell>> rows;
+
+    //=====================================================
+    // GETTERS AND SETTERS
+    //===================================================
+    public List<List<Cell>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<List<Cell>> rows) {
+        this.rows = rows;
+    }
+
+    public static class Cell {
+        private double distanceKm;
+        private long durationSeconds;
+        private String source;
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+
+        public void setDistanceKm(double distanceKm) {
+            this.distanceKm = distanceKm;
+        }
+
+        public long getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public void setDurationSeconds(long durationSeconds) {
+            this.durationSeconds = durationSeconds;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public void setSource(String source) {
+            this.source = source;
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.pds.logisticsservice.model;
 
+import java.time.Instant;
+
 /*
     This data is used by vehicles to update their real-time GPS coordinates
 
-    Called from VehicleController -> VehicleService
+    Called from VehicleController -> VehicleService -> VehicleLocationBuffer
+
+    timestamp is when the vehicle took the fix (ISO-8601, e.g. 2026-10-17T09:30:00Z); reports arriving out of
+    order are recognized by it. Without one the update counts as taken when it is received
  */
 
-//TODO: add timestamp of update
 public class VehicleLocationUpdate {
 
     private Long vehicleId;
     private double lat, lng;
+    private Instant timestamp;
 
     //=====================================================
     // GETTERS AND SETTERS
@@ -38,4 +43,12 @@ public class VehicleLocationUpdate {
     public void setLng(double lng) {
         this.lng = lng;
     }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
 }
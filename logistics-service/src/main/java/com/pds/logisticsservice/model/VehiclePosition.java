@@ -0,0 +1,60 @@
+package com.pds.logisticsservice.model;
+
+import java.time.Instant;
+
+/*
+    One point of a vehicle's position history (lat/lng stored to 6 decimals, ~0.1 m)
+
+    Returned by VehicleController GET /vehicle/{id}/history, read from PositionHistoryStore
+ */
+
+public class VehiclePosition {
+
+    private Long vehicleId;
+    private Instant timestamp;
+    private double lat, lng;
+
+    public VehiclePosition() {}
+
+    public VehiclePosition(Long vehicleId, Instant timestamp, double lat, double lng) {
+        this.vehicleId = vehicleId;
+        this.timestamp = timestamp;
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    //=====================================================
+    // GETTERS AND SETTERS
+    //===================================================
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public void setLat(double lat) {
+        this.lat = lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public void setLng(double lng) {
+        this.lng = lng;
+    }
+}
@@ -0,0 +1,33 @@
+package com.pds.logisticsservice.model;
+
+/*
+    This data is used to change the operational status of a vehicle
+    (e.g. back to AVAILABLE after a delivery, or into MAINTENANCE)
+
+    Called from VehicleController -> VehicleService
+ */
+
+public class VehicleStatusUpdate {
+
+    private Long vehicleId;
+    private VehicleStatus status;
+
+    //=====================================================
+    // GETTERS AND SETTERS
+    //===================================================
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public VehicleStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(VehicleStatus status) {
+        this.status = status;
+    }
+}
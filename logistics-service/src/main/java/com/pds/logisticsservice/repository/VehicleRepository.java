@@ -3,6 +3,9 @@ package com.pds.logisticsservice.repository;
 import com.pds.logisticsservice.model.Vehicle;
 import com.pds.logisticsservice.model.VehicleStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,7 +14,7 @@ import java.util.List;
     (Spring Data JPA automatically implements this interface at runtime)
 
     USED BY:
-        VehicleService.java, VehicleSelectionService.java
+        VehicleService.java, VehicleSelectionService.java, VehicleSpatialIndex.java
  */
 
 //TODO: add query for finding vehicles within a radius
@@ -21,4 +24,21 @@ public interface VehicleRepository extends  JpaRepository <Vehicle, Long>{
     // Returns all vehicles matching the provided status (e.g. AVAILABLE)
     List<Vehicle> findByStatus (VehicleStatus status);
 
+    // Claims an AVAILABLE vehicle for an order in one conditional UPDATE; returns 0 if it is no longer
+    // AVAILABLE or lacks the capacity, so two orders (on any instance) can never both get it
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Vehicle v SET v.status = com.pds.logisticsservice.model.VehicleStatus.EN_ROUTE, " +
+            "v.capacityRemaining = v.capacityRemaining - :volume " +
+            "WHERE v.id = :id AND v.status = com.pds.logisticsservice.model.VehicleStatus.AVAILABLE " +
+            "AND v.capacityRemaining >= :volume")
+    int claim(Long id, double volume);
+
+    // Only the status: a full save of a vehicle read earlier could undo a claim made in between
+    // (coordinates are written by VehicleLocationBuffer)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Vehicle v SET v.status = :status WHERE v.id = :id")
+    int updateStatus(Long id, VehicleStatus status);
+
 }
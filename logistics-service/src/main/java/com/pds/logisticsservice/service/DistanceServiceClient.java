@@ -1,29 +1,83 @@
 package com.pds.logisticsservice.service;
 
+import com.pds.logisticsservice.model.DistanceMatrixRequest;
+import com.pds.logisticsservice.model.DistanceMatrixResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+
 /*
-    The client uses this to communicate with location-service for distance calculation between the two lat/lng pairs
- */
+    The client uses this to communicate with location-service for road distances
 
-//TODO: match base URL to location-service port
-//TODO: add error handling for failures/timeouts
-//TODO: find out how to optimize async calls
+    All distances come from POST /api/distance/matrix, so ranking any number of vehicles against a pickup point
+    is one round trip (location-service batches the Google request and caches every pair)
+
+    Calls have connect and read deadlines: a hung location-service fails fast into the straight-line fallback
+    instead of holding the assignment forever
+ */
 
 @Service
 public class DistanceServiceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private RestTemplate restTemplate;
+
+    @Value("${service.location.url:http://localhost:8080}")
+    private String locationServiceUrl;
+
+    @Value("${service.http.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    @Value("${service.http.read-timeout:PT3S}")
+    private Duration readTimeout;
+
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        restTemplate = new RestTemplate(requestFactory);
+    }
 
     //=============================================================================================
-    // Calls location-service to compute the distance
-    //===================================================================================
-    public double getDistance (double lat1, double lng1, double lat2, double lng2) {
+    // Road distance (km) from each origin to one destination, in origin order
+    // Returns null if location-service could not be reached or did not answer within the read timeout;
+    // callers fall back to straight-line distance
+    //=============================================================================================
+    public double[] getDistancesTo(List<DistanceMatrixRequest.LatLng> origins, double lat, double lng) {
+        DistanceMatrixRequest request = new DistanceMatrixRequest(origins, List.of(new DistanceMatrixRequest.LatLng(lat, lng)));
+        try {
+            DistanceMatrixResponse response = restTemplate.postForObject(
+                    locationServiceUrl + "/api/distance/matrix", request, DistanceMatrixResponse.class);
+            if (response == null || response.getRows() == null || response.getRows().size() != origins.size()) {
+                System.err.println("Distance matrix: unexpected answer from location-service");
+                return null;
+            }
 
-        //TODO: match the URL to location-service port
-        String url = "";
+            double[] distances = new double[origins.size()];
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = response.getRows().get(i).get(0).getDistanceKm();
+            }
+            return distances;
+        } catch (RestClientException e) {
+            System.err.println("Distance matrix request failed: " + e.getMessage());
+            return null;
+        }
+    }
 
-        return restTemplate.getForObject(url, Double.class);
+    //=============================================================================================
+    // Calls location-service to compute the distance between one pair of coordinates
+    //=============================================================================================
+    public double getDistance (double lat1, double lng1, double lat2, double lng2) {
+        double[] distances = getDistancesTo(List.of(new DistanceMatrixRequest.LatLng(lat1, lng1)), lat2, lng2);
+        if (distances == null) {
+            throw new RuntimeException("location-service unavailable");
+        }
+        return distances[0];
     }
 }
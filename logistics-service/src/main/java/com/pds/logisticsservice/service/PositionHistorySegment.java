@@ -0,0 +1,543 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.model.VehiclePosition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+    One file of the position history (see PositionHistoryStore): a memory-mapped, append-only run of records
+
+    FILE LAYOUT:
+        header: magic, version, baseTime (epoch millis)
+        records: [length byte][vehicleId][back][dt][dLat][dLng], all varints (the signed ones zigzag encoded)
+            back = bytes back to the vehicle's previous record in this file (0 for its first one)
+            dt, dLat, dLng = change since that record (since baseTime, 0, 0 for the first one);
+            lat/lng in 1e-6 degrees, so a vehicle reporting every second takes ~8 bytes per point
+        a 0 length byte ends the data; the length is written last, so a torn record is never read
+
+    Records are delta encoded per vehicle and chained backward, so a vehicle's points are read newest first by
+    following back and subtracting the deltas, without touching other vehicles' records. Where to start is
+    found from the vehicle's track: its newest record and a checkpoint every CHECKPOINT_EVERY records.
+
+    While the segment is written the tracks are on the heap; when it is full they are written to a sidecar
+    .idx file (sorted by vehicle id, memory-mapped for lookups) and dropped, so sealed segments cost no heap
+    per vehicle. A segment without .idx is rebuilt on startup by scanning its records.
+
+    Not thread-safe for writing: PositionHistoryStore serializes append/seal and locate on the active segment
+ */
+
+final class PositionHistorySegment {
+
+    static final int MAX_RECORD_BYTES = 1 + 10 + 5 + 10 + 5 + 5;
+
+    private static final int MAGIC = 0x50485347; // "PHSG"
+    private static final int INDEX_MAGIC = 0x50485349; // "PHSI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int CHECKPOINT_EVERY = 256;
+
+    // .idx: header, then one entry per vehicle (sorted by id), then all checkpoints
+    private static final int INDEX_HEADER_BYTES = 32; // magic, vehicles, checkpoints, dataEnd, minTime, maxTime
+    private static final int ENTRY_BYTES = 44; // id, firstTime, lastTime, lastOffset, lastLat, lastLng, cpStart, cpCount
+    private static final int CHECKPOINT_BYTES = 20; // time, offset, lat, lng
+
+    enum Append { APPENDED, STALE, FULL }
+
+    final Path file;
+    final long baseTime;
+
+    private final MappedByteBuffer data;
+    private int end;
+    private long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+
+    private Tracks tracks; // while writable
+    private ByteBuffer index; // once sealed
+
+    private PositionHistorySegment(Path file, long baseTime, MappedByteBuffer data) {
+        this.file = file;
+        this.baseTime = baseTime;
+        this.data = data;
+    }
+
+    //=============================================================================================
+    // New, empty segment of the given size
+    //=============================================================================================
+    static PositionHistorySegment create(Path file, long baseTime, int size) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // the mapping outlives the channel
+        }
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putLong(8, baseTime);
+        PositionHistorySegment segment = new PositionHistorySegment(file, baseTime, data);
+        segment.end = HEADER_BYTES;
+        segment.tracks = new Tracks();
+        return segment;
+    }
+
+    //=============================================================================================
+    // Existing segment: sealed if its .idx is there, otherwise writable with the tracks rebuilt from the records
+    //=============================================================================================
+    static PositionHistorySegment open(Path file) throws IOException {
+        Path indexFile = indexFile(file);
+        boolean sealed = Files.exists(indexFile);
+        MappedByteBuffer data;
+        try (FileChannel channel = sealed
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            data = channel.map(sealed ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a position history segment");
+        }
+        PositionHistorySegment segment = new PositionHistorySegment(file, data.getLong(8), data);
+
+        if (sealed) {
+            ByteBuffer index;
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (index.capacity() >= INDEX_HEADER_BYTES && index.getInt(0) == INDEX_MAGIC) {
+                segment.index = index;
+                segment.end = index.getInt(12);
+                segment.minTime = index.getLong(16);
+                segment.maxTime = index.getLong(24);
+                return segment;
+            }
+            // Unreadable index: rebuild it from the records
+            Files.delete(indexFile);
+            return open(file);
+        }
+        segment.recover();
+        return segment;
+    }
+
+    //=============================================================================================
+    // Appends one point; STALE if the vehicle already has a newer one here, FULL if there is no room left
+    //=============================================================================================
+    Append append(long vehicleId, long time, int lat, int lng) {
+        if (index != null || end + MAX_RECORD_BYTES > data.capacity()) {
+            return Append.FULL;
+        }
+        Track track = tracks.get(vehicleId);
+        if (track != null && time <= track.lastTime) {
+            return Append.STALE;
+        }
+
+        int p = end + 1;
+        if (track == null) {
+            p = putVarLong(p, vehicleId);
+            p = putVarLong(p, 0);
+            p = putVarLong(p, zigzag(time - baseTime));
+            p = putVarLong(p, zigzag(lat));
+            p = putVarLong(p, zigzag(lng));
+            track = tracks.add(vehicleId);
+            track.firstTime = time;
+        } else {
+            p = putVarLong(p, vehicleId);
+            p = putVarLong(p, end - track.lastOffset);
+            p = putVarLong(p, zigzag(time - track.lastTime));
+            p = putVarLong(p, zigzag((long) lat - track.lastLat));
+            p = putVarLong(p, zigzag((long) lng - track.lastLng));
+        }
+        data.put(end, (byte) (p - end - 1)); // last: the record is complete
+
+        track.add(end, time, lat, lng);
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+        end = p;
+        return Append.APPENDED;
+    }
+
+    //=============================================================================================
+    // Writes the tracks to the .idx file and drops them from the heap; the segment is read-only afterwards
+    //=============================================================================================
+    void seal() throws IOException {
+        Track[] sorted = tracks.values();
+        Arrays.sort(sorted, Comparator.comparingLong(t -> t.vehicleId));
+        int checkpoints = 0;
+        for (Track t : sorted) {
+            checkpoints += t.checkpoints;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(INDEX_HEADER_BYTES + sorted.length * ENTRY_BYTES + checkpoints * CHECKPOINT_BYTES);
+        out.putInt(INDEX_MAGIC).putInt(sorted.length).putInt(checkpoints).putInt(end).putLong(minTime).putLong(maxTime);
+        int cpStart = 0;
+        for (Track t : sorted) {
+            out.putLong(t.vehicleId).putLong(t.firstTime).putLong(t.lastTime)
+                    .putInt(t.lastOffset).putInt(t.lastLat).putInt(t.lastLng).putInt(cpStart).putInt(t.checkpoints);
+            cpStart += t.checkpoints;
+        }
+        for (Track t : sorted) {
+            for (int i = 0; i < t.checkpoints; i++) {
+                out.putLong(t.cpTime[i]).putInt(t.cpState[3 * i]).putInt(t.cpState[3 * i + 1]).putInt(t.cpState[3 * i + 2]);
+            }
+        }
+        out.flip();
+
+        // The records first: the index must never point at data that is not on disk
+        data.force();
+        Path indexFile = indexFile(file);
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+
+        out.rewind();
+        index = out.asReadOnlyBuffer();
+        tracks = null;
+    }
+
+    //=============================================================================================
+    // Where to start reading a vehicle's points at or before `to`: false if it has none in [from, to] here
+    //=============================================================================================
+    boolean locate(long vehicleId, long from, long to, Cursor cursor) {
+        if (maxTime < from || minTime > to) {
+            return false;
+        }
+        return index != null ? locateSealed(vehicleId, from, to, cursor) : locateWritable(vehicleId, from, to, cursor);
+    }
+
+    //=============================================================================================
+    // Adds the vehicle's points with from <= time <= to to out, newest first, until out holds limit points
+    //=============================================================================================
+    void collect(Cursor cursor, long vehicleId, long from, long to, int limit, List<VehiclePosition> out) {
+        int offset = cursor.offset;
+        long time = cursor.time;
+        long lat = cursor.lat, lng = cursor.lng;
+        Decoder decoder = new Decoder(data, data.capacity());
+
+        while (time >= from && out.size() < limit) {
+            if (time <= to) {
+                out.add(new VehiclePosition(vehicleId, Instant.ofEpochMilli(time), lat / 1e6, lng / 1e6));
+            }
+            decoder.pos = offset + 1;
+            decoder.varLong(); // vehicle id
+            long back = decoder.varLong();
+            long dt = unzigzag(decoder.varLong());
+            long dLat = unzigzag(decoder.varLong());
+            long dLng = unzigzag(decoder.varLong());
+            if (back == 0 || !decoder.ok) {
+                break;
+            }
+            offset -= (int) back;
+            time -= dt;
+            lat -= dLat;
+            lng -= dLng;
+        }
+    }
+
+    void force() {
+        if (index == null) {
+            data.force();
+        }
+    }
+
+    boolean isSealed() {
+        return index != null;
+    }
+
+    boolean isEmpty() {
+        return minTime == Long.MAX_VALUE;
+    }
+
+    long maxTime() {
+        return maxTime;
+    }
+
+    static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName().toString().replace(".seg", ".idx"));
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Locating a vehicle's start point
+    // ------------------------------------------------------------------------------------------
+
+    private boolean locateWritable(long vehicleId, long from, long to, Cursor cursor) {
+        Track t = tracks.get(vehicleId);
+        if (t == null || t.lastTime < from || t.firstTime > to) {
+            return false;
+        }
+        // The oldest checkpoint at or after `to`: every later record is after `to` too
+        int i = firstAtOrAfter(t.cpTime, t.checkpoints, to);
+        if (i < t.checkpoints) {
+            cursor.set(t.cpState[3 * i], t.cpTime[i], t.cpState[3 * i + 1], t.cpState[3 * i + 2]);
+        } else {
+            cursor.set(t.lastOffset, t.lastTime, t.lastLat, t.lastLng);
+        }
+        return true;
+    }
+
+    private boolean locateSealed(long vehicleId, long from, long to, Cursor cursor) {
+        int vehicles = index.getInt(4);
+        int entriesAt = INDEX_HEADER_BYTES;
+        int checkpointsAt = entriesAt + vehicles * ENTRY_BYTES;
+
+        int lo = 0, hi = vehicles - 1, entry = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long id = index.getLong(entriesAt + mid * ENTRY_BYTES);
+            if (id < vehicleId) lo = mid + 1;
+            else if (id > vehicleId) hi = mid - 1;
+            else { entry = entriesAt + mid * ENTRY_BYTES; break; }
+        }
+        if (entry < 0 || index.getLong(entry + 16) < from || index.getLong(entry + 8) > to) {
+            return false;
+        }
+
+        int cpStart = index.getInt(entry + 36), cpCount = index.getInt(entry + 40);
+        lo = 0;
+        hi = cpCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.getLong(checkpointsAt + (cpStart + mid) * CHECKPOINT_BYTES) < to) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo < cpCount) {
+            int cp = checkpointsAt + (cpStart + lo) * CHECKPOINT_BYTES;
+            cursor.set(index.getInt(cp + 8), index.getLong(cp), index.getInt(cp + 12), index.getInt(cp + 16));
+        } else {
+            cursor.set(index.getInt(entry + 24), index.getLong(entry + 16), index.getInt(entry + 28), index.getInt(entry + 32));
+        }
+        return true;
+    }
+
+    private static int firstAtOrAfter(long[] times, int count, long time) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Startup: rebuild the tracks by reading the records forward
+    // ------------------------------------------------------------------------------------------
+
+    private void recover() {
+        tracks = new Tracks();
+        Decoder decoder = new Decoder(data, data.capacity());
+        int p = HEADER_BYTES;
+
+        while (p + 1 < data.capacity()) {
+            int length = data.get(p) & 0xff;
+            if (length == 0 || length > MAX_RECORD_BYTES - 1 || p + 1 + length > data.capacity()) {
+                break;
+            }
+            decoder.pos = p + 1;
+            long vehicleId = decoder.varLong();
+            long back = decoder.varLong();
+            long dt = unzigzag(decoder.varLong());
+            long dLat = unzigzag(decoder.varLong());
+            long dLng = unzigzag(decoder.varLong());
+            if (!decoder.ok || decoder.pos != p + 1 + length) {
+                break;
+            }
+
+            Track track = tracks.get(vehicleId);
+            if (track == null ? back != 0 : back != p - track.lastOffset) {
+                break;
+            }
+            long time = (track == null ? baseTime : track.lastTime) + dt;
+            if (track != null && time <= track.lastTime) {
+                break;
+            }
+            long lat = (track == null ? 0 : track.lastLat) + dLat;
+            long lng = (track == null ? 0 : track.lastLng) + dLng;
+            if (track == null) {
+                track = tracks.add(vehicleId);
+                track.firstTime = time;
+            }
+            track.add(p, time, (int) lat, (int) lng);
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            p += 1 + length;
+        }
+
+        // Anything after the last whole record is from a write cut short; clear it so new records
+        // are not followed by leftovers that look like data
+        end = p;
+        for (int i = p; i < Math.min(p + MAX_RECORD_BYTES, data.capacity()); i++) {
+            data.put(i, (byte) 0);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Encoding
+    // ------------------------------------------------------------------------------------------
+
+    private int putVarLong(int p, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data.put(p++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.put(p++, (byte) value);
+        return p;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private final int limit;
+        int pos;
+        boolean ok = true;
+
+        Decoder(ByteBuffer buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        long varLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64 && pos < limit; shift += 7) {
+                byte b = buffer.get(pos++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            ok = false;
+            return 0;
+        }
+    }
+
+    // A vehicle's point to read back from
+    static final class Cursor {
+        int offset;
+        long time;
+        int lat, lng;
+
+        void set(int offset, long time, int lat, int lng) {
+            this.offset = offset;
+            this.time = time;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Tracks of the writable segment: vehicle id -> newest record and checkpoints
+    // (open addressing on primitive keys, so appends for known vehicles allocate nothing)
+    // ------------------------------------------------------------------------------------------
+
+    private static final class Track {
+        final long vehicleId;
+        long firstTime, lastTime;
+        int lastOffset, lastLat, lastLng, count;
+
+        long[] cpTime = new long[0];
+        int[] cpState = new int[0]; // offset, lat, lng per checkpoint
+        int checkpoints;
+
+        Track(long vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+
+        void add(int offset, long time, int lat, int lng) {
+            lastOffset = offset;
+            lastTime = time;
+            lastLat = lat;
+            lastLng = lng;
+            if (++count % CHECKPOINT_EVERY == 0) {
+                if (checkpoints == cpTime.length) {
+                    cpTime = Arrays.copyOf(cpTime, Math.max(4, checkpoints * 2));
+                    cpState = Arrays.copyOf(cpState, cpTime.length * 3);
+                }
+                cpTime[checkpoints] = time;
+                cpState[3 * checkpoints] = offset;
+                cpState[3 * checkpoints + 1] = lat;
+                cpState[3 * checkpoints + 2] = lng;
+                checkpoints++;
+            }
+        }
+    }
+
+    private static final class Tracks {
+        private long[] keys = new long[256];
+        private Track[] values = new Track[256];
+        private int size;
+
+        Track get(long vehicleId) {
+            int mask = keys.length - 1;
+            for (int i = slot(vehicleId, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == vehicleId) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        Track add(long vehicleId) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            Track track = new Track(vehicleId);
+            put(vehicleId, track);
+            size++;
+            return track;
+        }
+
+        Track[] values() {
+            Track[] out = new Track[size];
+            int n = 0;
+            for (Track t : values) {
+                if (t != null) {
+                    out[n++] = t;
+                }
+            }
+            return out;
+        }
+
+        private void put(long vehicleId, Track track) {
+            int mask = keys.length - 1;
+            int i = slot(vehicleId, mask);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = vehicleId;
+            values[i] = track;
+        }
+
+        private void grow() {
+            Track[] old = values;
+            keys = new long[old.length * 2];
+            values = new Track[old.length * 2];
+            for (Track t : old) {
+                if (t != null) {
+                    put(t.vehicleId, t);
+                }
+            }
+        }
+
+        private static int slot(long vehicleId, int mask) {
+            return (int) ((vehicleId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.model.VehiclePosition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+    Embedded history of every vehicle position reported, for ETA models and audits (the vehicle table only
+    holds the current position)
+
+    An append-only log in position-history.dir, cut into segment files of segment-bytes
+    (positions-<created millis>.seg); see PositionHistorySegment for the record format and the per-vehicle index.
+    Only the newest segment is written; older ones are sealed and read-only.
+
+    - append(): one lock, no allocation for vehicles already in the current segment; points older than the
+      vehicle's newest one in the segment are dropped (VehicleLocationBuffer has already filtered out-of-order reports)
+    - query(): a vehicle's points in a time range; only the lookup of the start point takes the lock
+    - deleteBefore(): retention, whole sealed segments at a time; runs every retention-check-ms with
+      now - retention, and from DELETE /vehicle/history
+
+    The mapped files are written by the OS page cache: a process crash loses nothing, and the current segment
+    is forced to disk every sync-interval-ms against power loss
+
+    USED BY:
+        VehicleService.updateLocations -> append()
+        VehicleController GET /vehicle/{id}/history, DELETE /vehicle/history
+ */
+
+@Component
+public class PositionHistoryStore {
+
+    @Value("${logistics.position-history.dir:./data/position-history}")
+    private String dir;
+
+    @Value("${logistics.position-history.segment-bytes:268435456}")
+    private int segmentBytes;
+
+    @Value("${logistics.position-history.retention:P30D}")
+    private Duration retention;
+
+    // Oldest first; the last one is written
+    private final List<PositionHistorySegment> segments = new ArrayList<>();
+    private PositionHistorySegment active;
+    private boolean failing; // log a failing roll once, not for every point
+
+    //=============================================================================================
+    // Opens the existing segments (rebuilding the index of any that was not sealed) and starts a new one if none
+    //=============================================================================================
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Path directory = Path.of(dir);
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(f -> f.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            PositionHistorySegment segment = PositionHistorySegment.open(files.get(i));
+            if (i < files.size() - 1 && !segment.isSealed()) {
+                segment.seal(); // cut off by a crash before it was sealed
+            }
+            segments.add(segment);
+        }
+        active = segments.isEmpty() || segments.get(segments.size() - 1).isSealed() ? roll() : segments.get(segments.size() - 1);
+
+        System.out.println("Position history ready: " + segments.size() + " segments in " + directory.toAbsolutePath());
+    }
+
+    //=============================================================================================
+    // Records one position; false if it was dropped (older than the vehicle's newest one, or no segment to write)
+    //=============================================================================================
+    public synchronized boolean append(long vehicleId, long timeMillis, double lat, double lng) {
+        int latE6 = (int) Math.round(lat * 1e6);
+        int lngE6 = (int) Math.round(lng * 1e6);
+
+        PositionHistorySegment.Append result = active.append(vehicleId, timeMillis, latE6, lngE6);
+        if (result == PositionHistorySegment.Append.FULL) {
+            try {
+                if (!active.isSealed()) {
+                    active.seal();
+                }
+                active = roll();
+                failing = false;
+            } catch (IOException | UncheckedIOException e) {
+                if (!failing) {
+                    System.err.println("Position history: cannot start a new segment, dropping points: " + e.getMessage());
+                    failing = true;
+                }
+                return false;
+            }
+            result = active.append(vehicleId, timeMillis, latE6, lngE6);
+        }
+        return result == PositionHistorySegment.Append.APPENDED;
+    }
+
+    //=============================================================================================
+    // The vehicle's points with from <= timestamp <= to, oldest first; if there are more than limit,
+    // the newest limit of them
+    //=============================================================================================
+    public List<VehiclePosition> query(long vehicleId, Instant from, Instant to, int limit) {
+        long fromMillis = from.toEpochMilli(), toMillis = to.toEpochMilli();
+        List<PositionHistorySegment> found = new ArrayList<>();
+        List<PositionHistorySegment.Cursor> starts = new ArrayList<>();
+
+        // Newest segment first. Only the lookup needs the lock: records before the start point are never rewritten
+        synchronized (this) {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                PositionHistorySegment.Cursor cursor = new PositionHistorySegment.Cursor();
+                if (segments.get(i).locate(vehicleId, fromMillis, toMillis, cursor)) {
+                    found.add(segments.get(i));
+                    starts.add(cursor);
+                }
+            }
+        }
+
+        List<VehiclePosition> points = new ArrayList<>();
+        for (int i = 0; i < found.size() && points.size() < limit; i++) {
+            found.get(i).collect(starts.get(i), vehicleId, fromMillis, toMillis, limit, points);
+        }
+        points.sort(Comparator.comparing(VehiclePosition::getTimestamp));
+        return points;
+    }
+
+    //=============================================================================================
+    // Deletes the sealed segments whose points are all older than cutoff; returns how many
+    //=============================================================================================
+    public synchronized int deleteBefore(Instant cutoff) {
+        int deleted = 0;
+        for (PositionHistorySegment segment : new ArrayList<>(segments)) {
+            if (segment == active || segment.maxTime() >= cutoff.toEpochMilli()) {
+                continue;
+            }
+            try {
+                // A query still reading it keeps the mapping until it is done
+                Files.deleteIfExists(PositionHistorySegment.indexFile(segment.file));
+                Files.deleteIfExists(segment.file);
+                segments.remove(segment);
+                deleted++;
+            } catch (IOException e) {
+                System.err.println("Position history: could not delete " + segment.file + ": " + e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.position-history.retention-check-ms:3600000}")
+    public void applyRetention() {
+        int deleted = deleteBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            System.out.println("Position history: deleted " + deleted + " segments older than " + retention);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${logistics.position-history.sync-interval-ms:1000}")
+    @PreDestroy
+    public void sync() {
+        PositionHistorySegment current;
+        synchronized (this) {
+            current = active;
+        }
+        current.force();
+    }
+
+    // A new segment after the newest one (names sort by creation time)
+    private PositionHistorySegment roll() throws IOException {
+        long created = Instant.now().toEpochMilli();
+        if (!segments.isEmpty()) {
+            created = Math.max(created, segments.get(segments.size() - 1).baseTime + 1);
+        }
+        Path file = Path.of(dir).resolve(String.format("positions-%020d.seg", created));
+        PositionHistorySegment segment = PositionHistorySegment.create(file, created, segmentBytes);
+        segments.add(segment);
+        return segment;
+    }
+}
@@ -0,0 +1,142 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.model.Vehicle;
+import com.pds.logisticsservice.model.VehicleLocationUpdate;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Write-behind buffer for GPS updates, so a fleet reporting every second does not cost one database
+    round trip per report
+
+    Per vehicle only the newest position is kept (by the timestamp the vehicle sent): an update older than
+    the one already accepted arrived out of order and is dropped. Positions waiting to be written are flushed
+    to the vehicle table every flush-interval-ms in one JDBC batch, however many reports came in between.
+
+    The newest position is what selection uses (VehicleSpatialIndex, VehicleSelectionService), so the
+    database may be up to one flush interval behind without affecting assignments
+
+    USED BY:
+        VehicleService -> accept()
+        VehicleSpatialIndex, VehicleSelectionService -> positionOf() / latest()
+ */
+
+@Component
+public class VehicleLocationBuffer {
+
+    // Only the coordinates: status and capacity are changed by claims and status updates in between
+    private static final String UPDATE_LOCATION = "UPDATE vehicle SET lat = ?, lng = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${logistics.location-buffer.batch-size:500}")
+    private int batchSize;
+
+    // Newest accepted position per vehicle (kept after flushing, to recognize late updates)
+    private final Map<Long, Position> latest = new ConcurrentHashMap<>();
+
+    // Positions not written to the database yet
+    private final Map<Long, Position> pending = new ConcurrentHashMap<>();
+
+    //=============================================================================================
+    // Takes a vehicle's report; returns the position recorded, or null if a newer one was already accepted
+    //=============================================================================================
+    public Position accept(VehicleLocationUpdate update) {
+        Instant now = Instant.now();
+        // No timestamp: as of now. A clock running ahead must not hide the vehicle's later reports
+        Instant at = update.getTimestamp() == null || update.getTimestamp().isAfter(now) ? now : update.getTimestamp();
+        Position position = new Position(update.getLat(), update.getLng(), at);
+
+        boolean[] accepted = {false};
+        latest.compute(update.getVehicleId(), (id, previous) -> {
+            if (previous != null && !position.timestamp().isAfter(previous.timestamp())) {
+                return previous;
+            }
+            accepted[0] = true;
+            return position;
+        });
+        if (!accepted[0]) {
+            return null;
+        }
+        pending.merge(update.getVehicleId(), position, VehicleLocationBuffer::newer);
+        return position;
+    }
+
+    // Newest reported position, or null if the vehicle has not reported since startup
+    public Position latest(Long vehicleId) {
+        return latest.get(vehicleId);
+    }
+
+    // Newest known position: the buffered one, or the row's if the vehicle has not reported since startup
+    public Position positionOf(Vehicle v) {
+        Position position = latest.get(v.getId());
+        return position != null ? position : new Position(v.getLat(), v.getLng(), null);
+    }
+
+    //=============================================================================================
+    // Writes the waiting positions to the database in one batch
+    //=============================================================================================
+    @Scheduled(fixedDelayString = "${logistics.location-buffer.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Map.Entry<Long, Position>> taken = new ArrayList<>();
+        for (Long id : new ArrayList<>(pending.keySet())) {
+            Position position = pending.remove(id);
+            if (position != null) {
+                taken.add(Map.entry(id, position));
+            }
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+
+        int[][] counts;
+        try {
+            counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_LOCATION, taken, batchSize,
+                    (ps, entry) -> {
+                        ps.setDouble(1, entry.getValue().lat());
+                        ps.setDouble(2, entry.getValue().lng());
+                        ps.setLong(3, entry.getKey());
+                    }));
+        } catch (RuntimeException e) {
+            // Put them back unless a newer report came in meanwhile
+            taken.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), VehicleLocationBuffer::newer));
+            System.err.println("Vehicle location flush failed, retrying " + taken.size() + " vehicles later: " + e.getMessage());
+            return;
+        }
+
+        // 0 rows: no such vehicle, stop tracking it
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    Long id = taken.get(i).getKey();
+                    latest.remove(id);
+                    System.err.println("Location update for unknown vehicle " + id + " dropped");
+                }
+                i++;
+            }
+        }
+    }
+
+    private static Position newer(Position a, Position b) {
+        return b.timestamp().isAfter(a.timestamp()) ? b : a;
+    }
+
+    public record Position(double lat, double lng, Instant timestamp) {}
+}
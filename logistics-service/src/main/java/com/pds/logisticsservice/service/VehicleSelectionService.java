@@ -1,32 +1,40 @@
 package com.pds.logisticsservice.service;
 
+import com.pds.logisticsservice.model.DistanceMatrixRequest;
 import com.pds.logisticsservice.model.OrderRequest;
 import com.pds.logisticsservice.model.Vehicle;
 import com.pds.logisticsservice.model.VehicleStatus;
 import com.pds.logisticsservice.repository.VehicleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /*
     THIS IS THE MAIN COMPONENT OF THE SERVICE
 
     Handles core assignment logic for the best vehicle with the following steps:
-        1. Retrieve all AVAILABLE vehicles
-        2. Filter vehicles by capacity
-        3. Request Distance Calculation from location-service
-        4. Select the closest vehicle after filtering
-        5. Change status of Vehicle to EN_ROUTE and update capacityRemaining
+        1. Shortlist the k AVAILABLE vehicles with enough capacity nearest to the pickup point by
+           straight-line distance (VehicleSpatialIndex, no database or remote calls)
+        2. Re-read the shortlist from the database and drop vehicles that changed since they were indexed
+        3. Request road distances for the whole shortlist (at their newest reported positions, see
+           VehicleLocationBuffer) from location-service in one call
+           (straight-line distances if location-service is down)
+        4. Try the vehicles closest by road first: claim it in the index (only one selection in this
+           instance can), then book it with a conditional UPDATE (only one order across all instances can)
+        5. If every shortlisted vehicle was taken by concurrent orders, shortlist again (up to max-rounds)
 
     INTEGRATION POINTS:
         location-service -> calculates distance
         order-processing-service -> requests the assignment
  */
 
-//TODO: add distributed lock to prevent double-assignment
-//TODO: add load-balancing, retries if location-service is down, alternative selection algorithms
+//TODO: add load-balancing, alternative selection algorithms
 
 @Service
 public class VehicleSelectionService {
@@ -36,42 +44,90 @@ public class VehicleSelectionService {
     @Autowired
     private DistanceServiceClient distanceClient;
 
+    @Autowired
+    private VehicleSpatialIndex spatialIndex;
+
+    @Autowired
+    private VehicleLocationBuffer locationBuffer;
+
+    // How many straight-line candidates get a road distance from location-service
+    @Value("${logistics.selection.shortlist-size:5}")
+    private int shortlistSize;
+
+    // How many times to shortlist again when concurrent orders took every candidate
+    @Value("${logistics.selection.max-rounds:3}")
+    private int maxRounds;
+
     //===========================================================================================
     // Assigns best available vehicle based on distance and capacity
     //==========================================================================================
     public Vehicle assignVehicle(OrderRequest order) {
 
-        // Get all AVAILABLE vehicles
-        List<Vehicle> available =
-                vehicleRepository.findByStatus(VehicleStatus.AVAILABLE);
+        for (int round = 1; round <= maxRounds; round++) {
+            List<Vehicle> ranked = rankCandidates(order);
+            if (ranked.isEmpty()) {
+                break;
+            }
+
+            // Closest first; a vehicle a concurrent order got first is skipped for the next one
+            for (Vehicle v : ranked) {
+                if (!spatialIndex.claim(v.getId())) {
+                    continue; // claimed by another selection in this instance
+                }
+                // status -> EN_ROUTE and capacityRemaining -= volume, only if it is still AVAILABLE with room
+                if (vehicleRepository.claim(v.getId(), order.getVolume()) == 1) {
+                    return vehicleRepository.findById(v.getId()).orElseThrow();
+                }
+                // Changed in the database since it was read (e.g. booked through another instance)
+                vehicleRepository.findById(v.getId()).ifPresent(spatialIndex::update);
+            }
+        }
 
-        //Filter based on which vehicles have enough capacity for the product and add that to list
-        List<Vehicle> capable =
-                available.stream()
-                        .filter(v -> v.getCapacityRemaining() >= order.getVolume())
-                        .toList();
+        throw new RuntimeException("No capable vehicle available.");
+    }
 
-        // Ensure at least one valid vehicle exists
+    //===========================================================================================
+    // Shortlisted vehicles that can take the order, closest by road first
+    //==========================================================================================
+    private List<Vehicle> rankCandidates(OrderRequest order) {
+
+        // Nearest AVAILABLE vehicles with enough capacity, by straight-line distance
+        List<Long> shortlist = spatialIndex.nearest(
+                order.getPickupLat(), order.getPickupLng(), order.getVolume(), shortlistSize);
+
+        // The index may lag behind the database: re-check status and capacity on the current rows
+        // (and correct the index for the ones that changed)
+        List<Vehicle> capable = new ArrayList<>();
+        for (Vehicle v : vehicleRepository.findAllById(shortlist)) {
+            if (v.getStatus() == VehicleStatus.AVAILABLE && v.getCapacityRemaining() >= order.getVolume()) {
+                capable.add(v);
+            } else {
+                spatialIndex.update(v);
+            }
+        }
         if (capable.isEmpty()) {
-            throw new RuntimeException("No capable vehicle available.");
+            return capable;
         }
 
-        // Out of all AVAILABLE and capable vehicles, select the vehicle that is closest
-        Vehicle best = capable.stream()
-                .min(Comparator.comparingDouble(v ->
-                        distanceClient.getDistance(
-                                v.getLat(), v.getLng(),
-                                order.getPickupLat(), order.getPickupLng())))
-                .orElseThrow(() ->
-                        new RuntimeException("No capable vehicle available."));
-
-        // when vehicle is selected, update its status and capacity
-        best.setStatus(VehicleStatus.EN_ROUTE);
-        best.setCapacityRemaining(
-                best.getCapacityRemaining() - order.getVolume());
+        // Where the vehicles are now: the newest GPS report may not be in the database yet
+        List<VehicleLocationBuffer.Position> positions = new ArrayList<>();
+        for (Vehicle v : capable) {
+            positions.add(locationBuffer.positionOf(v));
+        }
 
-        vehicleRepository.save(best);
+        // Road distance for every shortlisted vehicle in one distance-matrix call
+        double[] distances = distanceClient.getDistancesTo(
+                positions.stream().map(p -> new DistanceMatrixRequest.LatLng(p.lat(), p.lng())).toList(),
+                order.getPickupLat(), order.getPickupLng());
+        Map<Long, Double> roadDistance = new HashMap<>();
+        for (int i = 0; i < capable.size(); i++) {
+            VehicleLocationBuffer.Position p = positions.get(i);
+            roadDistance.put(capable.get(i).getId(), distances != null
+                    ? distances[i]
+                    : VehicleSpatialIndex.straightLineKm(p.lat(), p.lng(), order.getPickupLat(), order.getPickupLng()));
+        }
 
-        return best;
+        capable.sort(Comparator.comparingDouble(v -> roadDistance.get(v.getId())));
+        return capable;
     }
 }
@@ -2,18 +2,25 @@ package com.pds.logisticsservice.service;
 
 import com.pds.logisticsservice.model.Vehicle;
 import com.pds.logisticsservice.model.VehicleLocationUpdate;
+import com.pds.logisticsservice.model.VehicleStatusUpdate;
 import com.pds.logisticsservice.repository.VehicleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.NoSuchElementException;
+
 /*
     Handles updates to vehicle state (GPS, status, etc.)
 
     This service is invoked by VehicleController when location updates are pushed from vehicles
+
+    GPS updates go to VehicleLocationBuffer and reach the database with its next flush; every change is
+    applied to the VehicleSpatialIndex used for vehicle selection right away, and every accepted position
+    is kept in PositionHistoryStore
  */
 
 //TODO: add logging for debugging real-time updates
-//TODO: add validation to ensure vehicle exists before updating
 
 @Service
 public class VehicleService {
@@ -21,16 +28,50 @@ public class VehicleService {
     @Autowired
     private VehicleRepository repository;
 
+    @Autowired
+    private VehicleSpatialIndex spatialIndex;
+
+    @Autowired
+    private VehicleLocationBuffer locationBuffer;
+
+    @Autowired
+    private PositionHistoryStore positionHistory;
+
     // =====================================================================================
     // Updates current GPS location of a vehicle
     //======================================================================================
     public void updateLocation (VehicleLocationUpdate req) {
-        // Retrieve vehicle from database
-        Vehicle v = repository.findById(req.getVehicleId()).orElseThrow();
+        updateLocations(List.of(req));
+    }
 
-        v.setLat(req.getLat()); //update coordinates
-        v.setLng(req.getLng());
-        repository.save(v); //save changes to database
+    // =====================================================================================
+    // Takes a batch of GPS updates (any vehicles, any order); returns how many were newer
+    // than what was already known and therefore applied
+    //======================================================================================
+    public int updateLocations (List<VehicleLocationUpdate> updates) {
+        int accepted = 0;
+        for (VehicleLocationUpdate req : updates) {
+            if (req.getVehicleId() == null) {
+                throw new IllegalArgumentException("vehicleId is required");
+            }
+            VehicleLocationBuffer.Position position = locationBuffer.accept(req);
+            if (position != null) {
+                spatialIndex.move(req.getVehicleId()); //move it in the index (if AVAILABLE)
+                positionHistory.append(req.getVehicleId(), position.timestamp().toEpochMilli(), position.lat(), position.lng());
+                accepted++;
+            }
+        }
+        return accepted;
+    }
 
+    // =====================================================================================
+    // Changes the status of a vehicle; only AVAILABLE vehicles are in the spatial index
+    //======================================================================================
+    public void updateStatus (VehicleStatusUpdate req) {
+        if (repository.updateStatus(req.getVehicleId(), req.getStatus()) == 0) {
+            throw new NoSuchElementException("Vehicle " + req.getVehicleId() + " not found");
+        }
+        Vehicle v = repository.findById(req.getVehicleId()).orElseThrow();
+        spatialIndex.update(v);
     }
 }
@@ -0,0 +1,223 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.model.Vehicle;
+import com.pds.logisticsservice.model.VehicleStatus;
+import com.pds.logisticsservice.repository.VehicleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    In-memory grid of AVAILABLE vehicles, so a selection only looks at the vehicles around the pickup point
+    instead of the whole fleet
+
+    The world is cut into square cells of cell-degrees (lat and lng); each cell holds the ids of the vehicles in it.
+    nearest() searches rings of cells outward from the pickup cell and stops once no unsearched cell can hold
+    anything closer than the k-th vehicle found, so its cost depends on the vehicles near the pickup, not the fleet size.
+
+    Positions come from VehicleLocationBuffer (the newest GPS report), falling back to the database row
+
+    Kept current by:
+        VehicleService.updateLocations -> move(); updateStatus -> update()
+        VehicleSelectionService.assignVehicle -> claim() before booking a vehicle, update() if the booking failed
+        reload() on startup and every reload-interval-ms, for vehicles added or changed directly in the database
+
+    Cells do not wrap around at +/-180 lng: vehicles on the other side of the antimeridian are found late, not missed
+ */
+
+@Component
+public class VehicleSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleLocationBuffer locationBuffer;
+
+    @Value("${logistics.vehicle-index.cell-degrees:0.05}")
+    private double cellDegrees;
+
+    private final Map<Long, Entry> vehicles = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    //=============================================================================================
+    // Rebuilds the index from every AVAILABLE vehicle in the database
+    //=============================================================================================
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${logistics.vehicle-index.reload-interval-ms:60000}",
+            initialDelayString = "${logistics.vehicle-index.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        Set<Long> seen = new HashSet<>();
+        for (Vehicle v : vehicleRepository.findByStatus(VehicleStatus.AVAILABLE)) {
+            update(v);
+            seen.add(v.getId());
+        }
+        for (Long id : new ArrayList<>(vehicles.keySet())) {
+            if (!seen.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    //=============================================================================================
+    // Adds or moves a vehicle; anything that is not AVAILABLE is taken out
+    //=============================================================================================
+    public void update(Vehicle v) {
+        if (v.getStatus() != VehicleStatus.AVAILABLE) {
+            remove(v.getId());
+            return;
+        }
+        vehicles.compute(v.getId(), (id, previous) -> {
+            // Read inside compute, like move(), so a concurrent move is not undone with an older position
+            VehicleLocationBuffer.Position position = locationBuffer.positionOf(v);
+            return place(new Entry(id, position.lat(), position.lng(), v.getCapacityRemaining(),
+                    cell(position.lat(), position.lng())), previous);
+        });
+    }
+
+    //=============================================================================================
+    // Moves an indexed vehicle to its newest reported position (no-op for vehicles not AVAILABLE)
+    //=============================================================================================
+    public void move(Long vehicleId) {
+        // The position is read inside compute: of two concurrent moves, the later one sees the newer report
+        vehicles.computeIfPresent(vehicleId, (id, previous) -> {
+            VehicleLocationBuffer.Position position = locationBuffer.latest(id);
+            if (position == null) {
+                return previous;
+            }
+            return place(new Entry(id, position.lat(), position.lng(), previous.capacityRemaining(),
+                    cell(position.lat(), position.lng())), previous);
+        });
+    }
+
+    public void remove(Long vehicleId) {
+        claim(vehicleId);
+    }
+
+    //=============================================================================================
+    // Takes a vehicle out for an assignment; true for exactly one caller while it is indexed, so
+    // concurrent selections in this instance never try to book the same vehicle in the database
+    //=============================================================================================
+    public boolean claim(Long vehicleId) {
+        boolean[] claimed = {false};
+        vehicles.computeIfPresent(vehicleId, (id, previous) -> {
+            leave(previous);
+            claimed[0] = true;
+            return null;
+        });
+        return claimed[0];
+    }
+
+    //=============================================================================================
+    // Ids of up to k AVAILABLE vehicles with at least the given capacity, nearest first by straight-line distance
+    //=============================================================================================
+    public List<Long> nearest(double lat, double lng, double volume, int k) {
+        // Max-heap of the k best so far: the head is the one to beat
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::km).reversed());
+        int row = (int) Math.floor(lat / cellDegrees);
+        int col = (int) Math.floor(lng / cellDegrees);
+        int maxRing = (int) Math.ceil(360 / cellDegrees);
+        int searched = 0;
+
+        for (int ring = 0; ring <= maxRing && searched < vehicles.size(); ring++) {
+            if (best.size() == k && ringLowerBoundKm(lat, ring) > best.peek().km()) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                // Only the border of the ring; the inside was searched already
+                int step = (r == row - ring || r == row + ring) ? 1 : 2 * ring;
+                for (int c = col - ring; c <= col + ring; c += step) {
+                    Set<Long> ids = cells.get(key(r, c));
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (Long id : ids) {
+                        Entry e = vehicles.get(id);
+                        searched++;
+                        if (e == null || e.capacityRemaining() < volume) {
+                            continue;
+                        }
+                        best.add(new Candidate(id, straightLineKm(lat, lng, e.lat(), e.lng())));
+                        if (best.size() > k) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        return best.stream()
+                .sorted(Comparator.comparingDouble(Candidate::km))
+                .map(Candidate::vehicleId)
+                .toList();
+    }
+
+    public int size() {
+        return vehicles.size();
+    }
+
+    // Great-circle (haversine) distance in km
+    public static double straightLineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Any point in ring r is at least r - 1 whole cells away in lat or lng; a degree of lng is shortest
+    // at the ring's latitude farthest from the equator
+    private double ringLowerBoundKm(double lat, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLat = Math.min(90, Math.abs(lat) + ring * cellDegrees);
+        return (ring - 1) * cellDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLat));
+    }
+
+    private Entry place(Entry entry, Entry previous) {
+        if (previous != null && previous.cell() != entry.cell()) {
+            leave(previous);
+        }
+        // Inside the vehicles compute, so leave() cannot drop the cell's set between lookup and add
+        cells.compute(entry.cell(), (c, ids) -> {
+            Set<Long> members = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            members.add(entry.vehicleId());
+            return members;
+        });
+        return entry;
+    }
+
+    private void leave(Entry entry) {
+        cells.computeIfPresent(entry.cell(), (c, ids) -> {
+            ids.remove(entry.vehicleId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private long cell(double lat, double lng) {
+        return key((int) Math.floor(lat / cellDegrees), (int) Math.floor(lng / cellDegrees));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private record Entry(Long vehicleId, double lat, double lng, double capacityRemaining, long cell) {}
+
+    private record Candidate(Long vehicleId, double km) {}
+}
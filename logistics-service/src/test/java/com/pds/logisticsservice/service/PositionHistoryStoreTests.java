@@ -0,0 +1,115 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.model.VehiclePosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Position history on small segments, so a few thousand points span many sealed segments plus the
+    one being written: range queries, reopening (sealed via .idx, the last one by scanning) and retention
+ */
+
+class PositionHistoryStoreTests {
+
+    private static final int VEHICLES = 50;
+    private static final int POINTS = 400;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rangeQueriesSurviveSealingAndReopening() throws Exception {
+        PositionHistoryStore store = open();
+        for (int i = 0; i < POINTS; i++) {
+            for (long v = 1; v <= VEHICLES; v++) {
+                assertTrue(store.append(v, time(i), lat(v, i), lng(v, i)));
+            }
+        }
+        assertFalse(store.append(1, time(0), 0, 0), "points older than the vehicle's newest are dropped");
+        assertTrue(segmentFiles() > 2, "the test should span several segments");
+
+        assertRange(store, 17, 0, POINTS - 1);
+        assertRange(store, 33, 120, 287);
+
+        store.sync();
+        PositionHistoryStore reopened = open();
+        assertRange(reopened, 17, 0, POINTS - 1);
+        assertRange(reopened, 50, 399, 399);
+
+        assertTrue(reopened.append(17, time(POINTS), 1.5, 2.5));
+        List<VehiclePosition> newest = reopened.query(17, Instant.EPOCH, Instant.ofEpochMilli(time(POINTS)), 3);
+        assertEquals(3, newest.size());
+        assertEquals(time(POINTS), newest.get(2).getTimestamp().toEpochMilli());
+        assertEquals(1.5, newest.get(2).getLat());
+    }
+
+    @Test
+    void retentionDeletesWholeSealedSegments() throws Exception {
+        PositionHistoryStore store = open();
+        for (int i = 0; i < POINTS; i++) {
+            for (long v = 1; v <= VEHICLES; v++) {
+                store.append(v, time(i), lat(v, i), lng(v, i));
+            }
+        }
+
+        assertTrue(store.deleteBefore(Instant.ofEpochMilli(time(POINTS / 2))) > 0);
+        List<VehiclePosition> left = store.query(5, Instant.EPOCH, Instant.ofEpochMilli(time(POINTS)), Integer.MAX_VALUE);
+        long oldest = left.get(0).getTimestamp().toEpochMilli();
+        assertTrue(oldest > time(0) && oldest <= time(POINTS / 2), "only segments entirely before the cutoff go");
+        assertEquals(time(POINTS - 1), left.get(left.size() - 1).getTimestamp().toEpochMilli());
+    }
+
+    private PositionHistoryStore open() throws Exception {
+        PositionHistoryStore store = new PositionHistoryStore();
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "segmentBytes", 16 * 1024);
+        ReflectionTestUtils.setField(store, "retention", Duration.ofDays(30));
+        store.open();
+        return store;
+    }
+
+    // Points first..last (inclusive) of a vehicle, queried by their timestamps
+    private void assertRange(PositionHistoryStore store, long vehicleId, int first, int last) {
+        List<VehiclePosition> points = store.query(vehicleId, Instant.ofEpochMilli(time(first)),
+                Instant.ofEpochMilli(time(last)), Integer.MAX_VALUE);
+        assertEquals(last - first + 1, points.size());
+        for (int i = first; i <= last; i++) {
+            VehiclePosition p = points.get(i - first);
+            assertEquals(time(i), p.getTimestamp().toEpochMilli());
+            assertEquals(lat(vehicleId, i), p.getLat(), 1e-6);
+            assertEquals(lng(vehicleId, i), p.getLng(), 1e-6);
+        }
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static long time(int i) {
+        return T0 + i * 1000L + i % 7;
+    }
+
+    // A wandering track, with one jump across the map to exercise large deltas
+    private static double lat(long vehicleId, int i) {
+        return i == 100 ? -89.5 : 43.6 + vehicleId * 1e-3 + i * 1.3e-5;
+    }
+
+    private static double lng(long vehicleId, int i) {
+        return i == 100 ? 179.5 : -79.4 - vehicleId * 1e-3 - i * 0.7e-5;
+    }
+}
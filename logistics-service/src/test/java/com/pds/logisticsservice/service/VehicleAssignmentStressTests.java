@@ -0,0 +1,127 @@
+package com.pds.logisticsservice.service;
+
+import com.pds.logisticsservice.LogisticsServiceApplication;
+import com.pds.logisticsservice.model.OrderRequest;
+import com.pds.logisticsservice.model.Vehicle;
+import com.pds.logisticsservice.model.VehicleStatus;
+import com.pds.logisticsservice.repository.VehicleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Many more concurrent orders than vehicles, all around one pickup point, through two service instances
+    sharing one (H2) database: every vehicle must be booked by exactly one order and never over capacity
+
+    location-service is not running, so ranking falls back to straight-line distances
+ */
+
+class VehicleAssignmentStressTests {
+
+    private static final int VEHICLES = 50;
+    private static final int ORDERS = 1_000;
+    private static final int THREADS = 64;
+    private static final double CAPACITY = 10;
+    private static final double PICKUP_LAT = 43.65, PICKUP_LNG = -79.38;
+
+    @TempDir
+    Path historyDir;
+
+    @Test
+    void concurrentOrdersNeverDoubleBookAVehicle() throws Exception {
+        try (ConfigurableApplicationContext first = start("create-drop", historyDir.resolve("first"));
+             ConfigurableApplicationContext second = start("none", historyDir.resolve("second"))) {
+            seed(first.getBean(VehicleRepository.class));
+            List<ConfigurableApplicationContext> instances = List.of(first, second);
+            instances.forEach(context -> context.getBean(VehicleSpatialIndex.class).reload());
+
+            Map<Long, Double> bookedVolume = new ConcurrentHashMap<>();
+            AtomicInteger duplicates = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger next = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(THREADS);
+
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                VehicleSelectionService selection = instances.get(t % 2).getBean(VehicleSelectionService.class);
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = next.getAndIncrement(); i < ORDERS; i = next.getAndIncrement()) {
+                        OrderRequest order = new OrderRequest();
+                        order.setOrderId((long) i);
+                        order.setPickupLat(PICKUP_LAT + random.nextDouble(-0.01, 0.01));
+                        order.setPickupLng(PICKUP_LNG + random.nextDouble(-0.01, 0.01));
+                        order.setVolume(1 + random.nextInt(12)); // some orders fit no vehicle
+                        try {
+                            Vehicle v = selection.assignVehicle(order);
+                            if (bookedVolume.putIfAbsent(v.getId(), order.getVolume()) != null) {
+                                duplicates.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            pool.shutdown();
+
+            assertEquals(0, duplicates.get(), "a vehicle was assigned to two orders");
+            assertEquals(VEHICLES, bookedVolume.size(), "every vehicle should have been booked once");
+            assertEquals(ORDERS - VEHICLES, rejected.get());
+            for (Vehicle v : first.getBean(VehicleRepository.class).findAll()) {
+                assertEquals(VehicleStatus.EN_ROUTE, v.getStatus());
+                assertEquals(CAPACITY - bookedVolume.get(v.getId()), v.getCapacityRemaining(), "vehicle " + v.getId());
+                assertTrue(v.getCapacityRemaining() >= 0, "vehicle " + v.getId() + " is over capacity");
+            }
+            assertTrue(first.getBean(VehicleSpatialIndex.class).nearest(PICKUP_LAT, PICKUP_LNG, 1, 1).isEmpty(),
+                    "booked vehicles must have left the index");
+        }
+    }
+
+    // Each instance keeps its own position history
+    private ConfigurableApplicationContext start(String ddlAuto, Path positionHistoryDir) {
+        return new SpringApplicationBuilder(LogisticsServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:assignment-stress;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=" + THREADS,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--service.location.url=http://localhost:1",
+                        "--logistics.position-history.dir=" + positionHistoryDir,
+                        "--logistics.position-history.segment-bytes=1048576");
+    }
+
+    // All within ~5 km of the pickup point, so every order competes for the same few vehicles
+    private void seed(VehicleRepository repository) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long id = 1; id <= VEHICLES; id++) {
+            Vehicle v = new Vehicle();
+            v.setId(id);
+            v.setLat(PICKUP_LAT + random.nextDouble(-0.05, 0.05));
+            v.setLng(PICKUP_LNG + random.nextDouble(-0.05, 0.05));
+            v.setCapacityMax(CAPACITY);
+            v.setCapacityRemaining(CAPACITY);
+            v.setStatus(VehicleStatus.AVAILABLE);
+            repository.save(v);
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package com.pds.orderprocessingservice;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate; // Simple HTTP client
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @SpringBootApplication
+@EnableScheduling // ShipmentOutboxDispatcher
 public class OrderProcessingServiceApplication {
 
 	public static void main(String[] args) {
@@ -13,9 +21,20 @@ public class OrderProcessingServiceApplication {
         SpringApplication.run(OrderProcessingServiceApplication.class, args);
 	}
 
-    // A simple, blocking HTTP client for inter-service communication
+    // A simple, blocking HTTP client for inter-service communication.
+    // Deadlines keep a hung downstream from holding the calling thread forever.
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${service.http.connect-timeout:PT2S}") Duration connectTimeout,
+                                     @Value("${service.http.read-timeout:PT5S}") Duration readTimeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    // Virtual threads for the blocking per-item reservation calls (one cheap thread per item)
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService fulfillmentExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
     }
 }
@@ -1,39 +1,195 @@
 package com.pds.orderprocessingservice.controller;
 
 import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import com.pds.orderprocessingservice.service.AdmissionControl;
+import com.pds.orderprocessingservice.service.AdmissionRejectedException;
+import com.pds.orderprocessingservice.service.BulkOrderService;
+import com.pds.orderprocessingservice.service.CandidateWarehouseCache;
+import com.pds.orderprocessingservice.service.DownstreamGuards;
+import com.pds.orderprocessingservice.service.IdempotencyService;
+import com.pds.orderprocessingservice.service.OrderExportService;
+import com.pds.orderprocessingservice.service.OrderPipeline;
 import com.pds.orderprocessingservice.service.OrderService;
+import com.pds.orderprocessingservice.web.BulkOrderResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final OrderService orderService;
+    private final OrderPipeline orderPipeline;
+    private final CandidateWarehouseCache candidateCache;
+    private final OrderExportService orderExportService;
+    private final BulkOrderService bulkOrderService;
+    private final IdempotencyService idempotencyService;
+    private final AdmissionControl admissionControl;
+    private final DownstreamGuards downstreamGuards;
+
+    // "async": accept with 202 and process in the OrderPipeline; "sync": process on the request thread
+    @Value("${order.intake.mode:async}")
+    private String intakeMode;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderPipeline orderPipeline,
+                           CandidateWarehouseCache candidateCache, OrderExportService orderExportService,
+                           BulkOrderService bulkOrderService, IdempotencyService idempotencyService,
+                           AdmissionControl admissionControl, DownstreamGuards downstreamGuards) {
         this.orderService = orderService;
+        this.orderPipeline = orderPipeline;
+        this.candidateCache = candidateCache;
+        this.orderExportService = orderExportService;
+        this.bulkOrderService = bulkOrderService;
+        this.idempotencyService = idempotencyService;
+        this.admissionControl = admissionControl;
+        this.downstreamGuards = downstreamGuards;
     }
 
-    @GetMapping // Maps to GET http://localhost:8082/orders
-    public ResponseEntity<List<Order>> getAllOrders() {
+    /**
+     * Keyset-paginated order listing, newest first.
+     * Maps to GET http://localhost:8082/orders?customerId=&status=&limit=&cursor=
+     * The cursor for the next page is returned in the X-Next-Cursor header (and a Link rel="next").
+     */
+    @GetMapping
+    public ResponseEntity<List<Order>> getAllOrders(@RequestParam(required = false) Long customerId,
+                                                    @RequestParam(required = false) OrderStatus status,
+                                                    @RequestParam(defaultValue = "50") int limit,
+                                                    @RequestParam(required = false) String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderCursor after = cursor == null ? null : OrderCursor.decode(cursor);
 
-        List<Order> orders = this.orderService.findAll();
+        List<Order> orders = this.orderService.findPage(customerId, status,
+                after == null ? null : after.createdAt(), after == null ? null : after.id(), pageSize);
         if (orders.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
-        return new ResponseEntity<>(orders, HttpStatus.OK);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (orders.size() == pageSize) {
+            Order last = orders.get(orders.size() - 1);
+            String next = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+            String nextUrl = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", next)
+                    .toUriString();
+            response.header("X-Next-Cursor", next)
+                    .header(HttpHeaders.LINK, "<" + nextUrl + ">; rel=\"next\"");
+        }
+        return response.body(orders);
     }
 
-    @PostMapping //POST http://localhost:8082/orders
-    public ResponseEntity<Order> createOrder(@Valid @RequestBody Order order) {
-        // The service handles the entire workflow: assignment, stock reservation, and state update
-        Order processedOrder = orderService.processNewOrder(order);
-        return new ResponseEntity<>(processedOrder, HttpStatus.CREATED);
+    /**
+     * Streams every matching order as NDJSON in constant memory (forward-only DB cursor).
+     * Maps to GET http://localhost:8082/orders/export?customerId=&status=
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(required = false) Long customerId,
+                                                              @RequestParam(required = false) OrderStatus status) {
+        StreamingResponseBody body = out -> orderExportService.exportNdjson(customerId, status, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * POST http://localhost:8082/orders
+     * With an Idempotency-Key header, a retried call returns the original response
+     * (marked Idempotent-Replayed: true) instead of creating and reserving the order again.
+     * Answers 429 with Retry-After when AdmissionControl sheds the request.
+     */
+    @PostMapping
+    public ResponseEntity<Order> createOrder(@Valid @RequestBody Order order,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Rejected before admission: the customer's rate bucket needs a customer
+        if (order.getCustomerId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "customerId is required");
+        }
+        AdmissionControl.Permit permit = admissionControl.admit(order.getCustomerId());
+        boolean success = false;
+        try {
+            ResponseEntity<Order> response = idempotencyKey == null
+                    ? submitOrder(order)
+                    : idempotencyService.execute(idempotencyKey, order, () -> submitOrder(order));
+            success = !response.getStatusCode().is5xxServerError();
+            return response;
+        } catch (ResponseStatusException e) {
+            success = !e.getStatusCode().is5xxServerError(); // e.g. 409/422 from an Idempotency-Key conflict
+            throw e;
+        } finally {
+            permit.release(success);
+        }
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Current concurrency limit, in-flight requests and rejection counts of the admission control.
+     * Maps to GET /orders/admission
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStats() {
+        return new ResponseEntity<>(admissionControl.stats(), HttpStatus.OK);
+    }
+
+    /**
+     * Circuit breaker state and bulkhead usage per downstream service and per warehouse.
+     * Maps to GET /orders/downstreams
+     */
+    @GetMapping("/downstreams")
+    public ResponseEntity<Map<String, Object>> getDownstreamDiagnostics() {
+        return new ResponseEntity<>(downstreamGuards.diagnostics(), HttpStatus.OK);
+    }
+
+    private ResponseEntity<Order> submitOrder(Order order) {
+        if (!"async".equalsIgnoreCase(intakeMode)) {
+            // The service handles the entire workflow: assignment, stock reservation, and state update
+            Order processedOrder = orderService.processNewOrder(order);
+            return new ResponseEntity<>(processedOrder, HttpStatus.CREATED);
+        }
+
+        // Persist as RECEIVED and hand off; clients follow progress via GET /orders/{id}
+        Order receivedOrder = orderService.receiveOrder(order);
+        if (!orderPipeline.submit(receivedOrder.getId())) {
+            orderService.markFailed(receivedOrder.getId());
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/orders/" + receivedOrder.getId()))
+                .body(receivedOrder);
+    }
+
+    /**
+     * Bulk submission for partner batches: a JSON array or an NDJSON stream of orders.
+     * Processed synchronously with shared location lookups and per-warehouse reservations.
+     * Each order is validated on its own: invalid ones are listed as rejected in the response, the rest proceed.
+     * Every chunk goes through AdmissionControl and every order is charged to its customer's rate;
+     * answers 429 with Retry-After when the first chunk is shed.
+     * Maps to POST http://localhost:8082/orders/bulk
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<BulkOrderResponse> createOrdersBulk(InputStream body) throws IOException {
+        return new ResponseEntity<>(bulkOrderService.submit(body), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
@@ -61,4 +217,24 @@ public class OrderController {
         return new ResponseEntity<>(candidateIds, HttpStatus.OK); // Return 200 OK
     }
 
-}
\ No newline at end of file
+    /**
+     * Hit/miss statistics of the address -> candidate warehouse cache.
+     * Maps to GET /orders/candidates/cache
+     */
+    @GetMapping("/candidates/cache")
+    public ResponseEntity<Map<String, Object>> getCandidateCacheStats() {
+        return new ResponseEntity<>(candidateCache.stats(), HttpStatus.OK);
+    }
+
+    /**
+     * Called by the Location Service when warehouses are added or removed,
+     * since every cached ranking may now be wrong.
+     * Maps to DELETE /orders/candidates/cache
+     */
+    @DeleteMapping("/candidates/cache")
+    public ResponseEntity<Void> invalidateCandidateCache() {
+        candidateCache.invalidateAll();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.pds.orderprocessingservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * The outcome of a POST /orders call made with an Idempotency-Key header.
+ * The row is claimed (responseStatus still null) before the order is processed and
+ * completed with the response afterwards, so a retried request replays that response
+ * instead of creating and reserving a second order.
+ */
+@Entity
+@Table(name = "idempotency_key",
+        indexes = {@Index(name = "idx_idempotency_key_created", columnList = "createdAt")})
+@Data
+public class IdempotencyRecord {
+
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    // SHA-256 of the request's customer, address and items; a reused key must carry the same order
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    // Null while the original request is still being processed
+    private Integer responseStatus;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    private String location;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -4,5 +4,10 @@ public enum ItemStatus {
     PENDING,
     RESERVED,
     NOT_AVAILABLE,
-    SPLIT_SHIPMENT // Optional: if item must be shipped from a secondary location
-}
\ No newline at end of file
+    SPLIT_SHIPMENT; // Reserved, but shipped from a secondary warehouse of the order
+
+    // Stock is held for the item, whichever warehouse ships it
+    public boolean isReserved() {
+        return this == RESERVED || this == SPLIT_SHIPMENT;
+    }
+}
@@ -8,18 +8,28 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "customer_order")
+@Table(name = "customer_order",
+        indexes = {
+                // Keyset pagination by (createdAt, id), optionally filtered by customer or status
+                @Index(name = "idx_order_created_id", columnList = "createdAt, id"),
+                @Index(name = "idx_order_customer_created_id", columnList = "customerId, createdAt, id"),
+                @Index(name = "idx_order_status_created_id", columnList = "status, createdAt, id")
+        })
  // @Data includes @Getter, @Setter, @RequiredArgsConstructor, @ToString, and @EqualsAndHashCode.
 @Data
 public class Order {
 
 
 
+    // Pooled sequence (not IDENTITY) so Hibernate can batch inserts: one round trip hands out 50 ids
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_order_seq")
+    @SequenceGenerator(name = "customer_order_seq", sequenceName = "customer_order_seq", allocationSize = 50)
     private Long id;
 
     private Long customerId;
@@ -36,7 +46,22 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status = OrderStatus.RECEIVED;
 
+    // Set by the server when the order is inserted; a client-supplied value is ignored
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Lease on the order held by whoever runs a workflow stage on it (see OrderService.claim),
+    // so two instances, or an instance and the recovery sweep, never run the same stage at once
+    @JsonIgnore
+    private String claimToken;
+
+    @JsonIgnore
+    private LocalDateTime claimedUntil;
+
+    @PrePersist
+    void onInsert() {
+        createdAt = LocalDateTime.now();
+    }
+
 
     }
\ No newline at end of file
@@ -12,8 +12,10 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 public class OrderItem {
 
 
+    // Pooled sequence (not IDENTITY) so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private Long id;
 
     private Long productCode;
@@ -22,6 +24,9 @@ public class OrderItem {
     // Which warehouse reserved this specific item (Split Shipment Tracking)
     private Long fulfilledByWarehouseId;
 
+    // The Warehouse Service hold for this item; confirmed or released once the order's outcome is known
+    private Long reservationId;
+
     // Status of the reservation for this item
     @Enumerated(EnumType.STRING)
     private ItemStatus itemStatus = ItemStatus.PENDING;
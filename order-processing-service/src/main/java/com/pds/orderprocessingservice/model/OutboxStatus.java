@@ -0,0 +1,7 @@
+package com.pds.orderprocessingservice.model;
+
+public enum OutboxStatus {
+    PENDING, // Waiting to be (re)sent to the Logistics Service
+    SENT,
+    FAILED // Gave up after the maximum number of attempts
+}
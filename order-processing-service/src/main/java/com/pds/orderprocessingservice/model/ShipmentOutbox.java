@@ -0,0 +1,51 @@
+package com.pds.orderprocessingservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pending shipment-scheduling call to the Logistics Service.
+ * Written in the same transaction that marks the order SCHEDULED_FOR_DELIVERY,
+ * then drained in the background by ShipmentOutboxDispatcher.
+ */
+@Entity
+@Table(name = "shipment_outbox",
+        indexes = {@Index(name = "idx_shipment_outbox_due", columnList = "status, next_attempt_at")})
+@Data
+public class ShipmentOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    // JSON body of the ShipmentRequest, serialized when the row is written
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private String lastError;
+
+    // Dispatcher holding the row while it sends it; its lease ends at nextAttemptAt
+    private String claimToken;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public ShipmentOutbox() {}
+
+    public ShipmentOutbox(Long orderId, String payload) {
+        this.orderId = orderId;
+        this.payload = payload;
+    }
+}
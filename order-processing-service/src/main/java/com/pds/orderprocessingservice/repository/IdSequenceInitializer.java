@@ -0,0 +1,49 @@
+package com.pds.orderprocessingservice.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the id sequences of Order and OrderItem past the ids already in their tables.
+ * On MySQL the sequences are tables with one next_val row, which Hibernate's schema update
+ * (like schema.sql) creates at 1, even when customer_order / order_item already hold rows
+ * with IDENTITY-generated ids. The pooled optimizer hands out next_val - allocationSize + 1
+ * up to next_val, so next_val is raised to MAX(id) + allocationSize: the first new id is MAX(id) + 1.
+ * Runs while the context starts (after the schema update, before the web server takes requests),
+ * and never lowers next_val, so every instance can run it on every start.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    // Must match allocationSize of the @SequenceGenerator on Order and OrderItem
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory dependency makes this run after Hibernate has created or updated the tables
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void seed() {
+        seed("customer_order_seq", "customer_order");
+        seed("order_item_seq", "order_item");
+    }
+
+    private void seed(String sequence, String table) {
+        long floor = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class) + ALLOCATION_SIZE;
+        try {
+            int rows = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, ?)", floor);
+            if (rows == 0) {
+                jdbcTemplate.update("INSERT INTO " + sequence + " (next_val) VALUES (?)", floor);
+            }
+        } catch (DataAccessException e) {
+            // Not a table: a native sequence on a database other than MySQL, seeded by its own migration
+            System.err.println("Could not seed id sequence " + sequence + " (needs next_val >= " + floor + "): " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.pds.orderprocessingservice.repository;
+
+import com.pds.orderprocessingservice.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Plain INSERT (save() would merge an assigned id): fails with a duplicate key if the key is already claimed
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_key (idempotency_key, request_hash, created_at) VALUES (:key, :requestHash, :createdAt)",
+            nativeQuery = true)
+    int claim(String key, String requestHash, LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :responseStatus, r.responseBody = :responseBody, " +
+            "r.location = :location WHERE r.idempotencyKey = :key")
+    int complete(String key, Integer responseStatus, String responseBody, String location);
+
+    // Drops an unfinished claim so the client's next retry is processed again
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.responseStatus IS NULL")
+    int release(String key);
+
+    // Completed keys past their retention, and claims abandoned by a crashed instance
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :completedCutoff " +
+            "OR (r.responseStatus IS NULL AND r.createdAt < :inFlightCutoff)")
+    int purge(LocalDateTime completedCutoff, LocalDateTime inFlightCutoff);
+}
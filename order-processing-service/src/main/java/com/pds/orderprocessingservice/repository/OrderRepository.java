@@ -1,8 +1,48 @@
 package com.pds.orderprocessingservice.repository;
 
 import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 // Provides CRUD methods automatically (save, findById, findAll, etc.)
-public interface OrderRepository extends JpaRepository<Order, Long> {
-}
\ No newline at end of file
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    // Loads the order together with its items, for workflow stages running outside a request
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    // Unclaimed orders still in one of the given statuses since before a point in time, oldest first (OrderPipeline recovery)
+    @Query("SELECT o FROM Order o WHERE o.status IN :statuses AND o.createdAt < :before "
+            + "AND (o.claimedUntil IS NULL OR o.claimedUntil < :now) ORDER BY o.createdAt")
+    List<Order> findUnclaimed(Collection<OrderStatus> statuses, LocalDateTime before, LocalDateTime now, Pageable page);
+
+    // Takes the lease on an order in one of the expected statuses that nobody else holds; 0 rows if it could not
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.claimToken = :token, o.claimedUntil = :until WHERE o.id = :id "
+            + "AND o.status IN :expected AND (o.claimedUntil IS NULL OR o.claimedUntil < :now)")
+    int claim(Long id, Collection<OrderStatus> expected, String token, LocalDateTime until, LocalDateTime now);
+
+    // Moves a claimed order to its next status and gives the lease up; 0 rows if the lease was lost meanwhile
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.status = :status, o.claimToken = NULL, o.claimedUntil = NULL "
+            + "WHERE o.id = :id AND o.claimToken = :token")
+    int completeClaim(Long id, String token, OrderStatus status);
+
+    // Status change without loading the order; also drops any lease on it
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.status = :status, o.claimToken = NULL, o.claimedUntil = NULL WHERE o.id = :id")
+    int updateStatus(Long id, OrderStatus status);
+}
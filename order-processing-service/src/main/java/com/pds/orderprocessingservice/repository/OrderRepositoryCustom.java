@@ -0,0 +1,20 @@
+package com.pds.orderprocessingservice.repository;
+
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Queries that Spring Data cannot derive (implemented in OrderRepositoryCustomImpl)
+public interface OrderRepositoryCustom {
+
+    /**
+     * One keyset page of orders, newest first, ordered by (createdAt, id).
+     * Orders strictly after the cursor in that order are returned; a null cursor starts
+     * from the newest order. customerId and status are optional filters.
+     * Items are loaded with one extra query for the whole page.
+     */
+    List<Order> findPage(Long customerId, OrderStatus status,
+                         LocalDateTime cursorCreatedAt, Long cursorId, int limit);
+}
@@ -0,0 +1,58 @@
+package com.pds.orderprocessingservice.repository;
+
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Order> findPage(Long customerId, OrderStatus status,
+                                LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+
+        // 1. Only the predicates actually in use, so MySQL can walk the (.., created_at, id) index
+        List<String> where = new ArrayList<>();
+        if (customerId != null) where.add("o.customerId = :customerId");
+        if (status != null) where.add("o.status = :status");
+        if (cursorCreatedAt != null && cursorId != null) {
+            where.add("(o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId))");
+        }
+
+        String jpql = "SELECT o.id FROM Order o"
+                + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where))
+                + " ORDER BY o.createdAt DESC, o.id DESC";
+
+        TypedQuery<Long> idQuery = entityManager.createQuery(jpql, Long.class).setMaxResults(limit);
+        if (customerId != null) idQuery.setParameter("customerId", customerId);
+        if (status != null) idQuery.setParameter("status", status);
+        if (cursorCreatedAt != null && cursorId != null) {
+            idQuery.setParameter("cursorCreatedAt", cursorCreatedAt);
+            idQuery.setParameter("cursorId", cursorId);
+        }
+        List<Long> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // 2. Load the page with its items in one query (no N+1), then restore keyset order
+        Map<Long, Order> byId = entityManager.createQuery(
+                        "SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids", Order.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        return ids.stream().map(byId::get).toList();
+    }
+}
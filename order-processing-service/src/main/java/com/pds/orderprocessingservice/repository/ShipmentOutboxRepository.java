@@ -0,0 +1,35 @@
+package com.pds.orderprocessingservice.repository;
+
+import com.pds.orderprocessingservice.model.OutboxStatus;
+import com.pds.orderprocessingservice.model.ShipmentOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ShipmentOutboxRepository extends JpaRepository<ShipmentOutbox, Long> {
+
+    // Oldest rows that are due for a (re)send; the Pageable bounds the batch size
+    List<ShipmentOutbox> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboxStatus status,
+                                                                              LocalDateTime now,
+                                                                              Pageable batch);
+
+    // Takes a due PENDING row for one dispatcher: moving nextAttemptAt to the end of the lease hides it
+    // from the others until then (or for good, once it is sent); 0 rows if another dispatcher took it first
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShipmentOutbox e SET e.claimToken = :token, e.nextAttemptAt = :until "
+            + "WHERE e.id = :id AND e.status = com.pds.orderprocessingservice.model.OutboxStatus.PENDING AND e.nextAttemptAt <= :now")
+    int claim(Long id, String token, LocalDateTime until, LocalDateTime now);
+
+    // Writes the outcome of a send and gives the lease up; 0 rows if the lease ran out and another dispatcher took the row
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShipmentOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :lastError, e.claimToken = NULL WHERE e.id = :id AND e.claimToken = :token")
+    int completeClaim(Long id, String token, OutboxStatus status, int attempts, LocalDateTime nextAttemptAt, String lastError);
+}
@@ -0,0 +1,274 @@
+package com.pds.orderprocessingservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for POST /orders and POST /orders/bulk, checked before any DB or downstream work starts.
+ * 1. An adaptive concurrency limit (gradient algorithm): the limit follows the ratio of the
+ *    long-term to the recent request latency, so it shrinks as soon as requests slow down
+ *    (pools filling up, downstream services struggling) and grows back when they recover.
+ * 2. Per-customer token buckets: one customer cannot use up the shared capacity. The limit is
+ *    checked first, so a request shed for saturation does not cost the customer a token.
+ *    At most customer.max-buckets customers are tracked; the least recently seen is dropped
+ *    (and starts again with a full bucket) beyond that.
+ * A bulk chunk takes one slot of the limit and one token per order from each order's customer.
+ * Rejected requests fail fast with AdmissionRejectedException (429 + Retry-After).
+ */
+@Component
+public class AdmissionControl {
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double customerRatePerSecond;
+    private final double customerBurst;
+    private final int maxCustomerBuckets;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejectedByLimit = new AtomicLong();
+    private final AtomicLong rejectedByCustomer = new AtomicLong();
+
+    // Access-ordered LinkedHashMap = LRU; guarded by its own monitor
+    private final LinkedHashMap<Long, TokenBucket> customerBuckets;
+
+    // Gradient limiter state, guarded by this
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdmissionControl(@Value("${order.admission.enabled:true}") boolean enabled,
+                            @Value("${order.admission.initial-limit:20}") int initialLimit,
+                            @Value("${order.admission.min-limit:4}") int minLimit,
+                            @Value("${order.admission.max-limit:200}") int maxLimit,
+                            @Value("${order.admission.smoothing:0.2}") double smoothing,
+                            @Value("${order.admission.customer.rate-per-second:10}") double customerRatePerSecond,
+                            @Value("${order.admission.customer.burst:20}") double customerBurst,
+                            @Value("${order.admission.customer.max-buckets:100000}") int maxCustomerBuckets) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.customerRatePerSecond = customerRatePerSecond;
+        this.customerBurst = customerBurst;
+        this.maxCustomerBuckets = maxCustomerBuckets;
+        this.limit = initialLimit;
+        this.customerBuckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TokenBucket> eldest) {
+                return size() > AdmissionControl.this.maxCustomerBuckets;
+            }
+        };
+    }
+
+    /**
+     * Admits one order submission; the caller must release the permit when the request ends.
+     * @throws AdmissionRejectedException if the customer is over its rate or the service is saturated.
+     */
+    public Permit admit(Long customerId) {
+        if (!enabled) {
+            return new Permit(System.nanoTime(), false, false);
+        }
+
+        // 1. Global concurrency limit
+        acquireSlot();
+
+        // 2. Per-customer rate; a rejected request gives its slot back without a latency sample
+        long waitMillis = takeToken(customerId);
+        if (waitMillis > 0) {
+            inFlight.decrementAndGet();
+            throw new AdmissionRejectedException("Customer " + customerId + " is over its order rate", retryAfterSeconds(waitMillis));
+        }
+
+        admitted.incrementAndGet();
+        return new Permit(System.nanoTime(), true, true);
+    }
+
+    /**
+     * Admits one chunk of a bulk submission as a single request under the concurrency limit.
+     * A chunk runs far longer than one order, so it is not used as a latency sample (failures still count).
+     * The orders' customers are charged separately with {@link #chargeCustomer}.
+     * @throws AdmissionRejectedException if the service is saturated.
+     */
+    public Permit admitBulkChunk() {
+        if (!enabled) {
+            return new Permit(System.nanoTime(), false, false);
+        }
+        acquireSlot();
+        admitted.incrementAndGet();
+        return new Permit(System.nanoTime(), true, false);
+    }
+
+    /**
+     * Takes one order's token from the customer's bucket (bulk orders, which have no permit of their own).
+     * @return False if the customer is over its order rate.
+     */
+    public boolean chargeCustomer(Long customerId) {
+        return !enabled || takeToken(customerId) == 0;
+    }
+
+    private void acquireSlot() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejectedByLimit.incrementAndGet();
+                throw new AdmissionRejectedException("Order intake is saturated", 1);
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+    }
+
+    // @return 0 if a token was taken, otherwise the millis until one is available
+    private long takeToken(Long customerId) {
+        // Callers reject orders without a customer first (400 / bulk validation); should one get here,
+        // every such request shares one anonymous bucket
+        TokenBucket bucket;
+        synchronized (customerBuckets) {
+            bucket = customerBuckets.computeIfAbsent(customerId == null ? -1L : customerId,
+                    id -> new TokenBucket(customerBurst));
+        }
+        long waitMillis = bucket.tryTake(customerRatePerSecond, customerBurst);
+        if (waitMillis > 0) {
+            rejectedByCustomer.incrementAndGet();
+        }
+        return waitMillis;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("limit", (int) limit);
+        stats.put("in_flight", inFlight.get());
+        stats.put("admitted", admitted.get());
+        stats.put("rejected_limit", rejectedByLimit.get());
+        stats.put("rejected_customer_rate", rejectedByCustomer.get());
+        synchronized (customerBuckets) {
+            stats.put("customer_buckets", customerBuckets.size());
+        }
+        stats.put("recent_latency_ms", shortRttNanos / 1_000_000);
+        stats.put("baseline_latency_ms", longRttNanos / 1_000_000);
+        return stats;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedByLimit() {
+        return rejectedByLimit.get();
+    }
+
+    public long getRejectedByCustomer() {
+        return rejectedByCustomer.get();
+    }
+
+    // Buckets that have refilled completely carry no state worth keeping
+    @Scheduled(fixedDelayString = "${order.admission.customer.cleanup-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        synchronized (customerBuckets) {
+            customerBuckets.values().removeIf(bucket -> bucket.isFull(customerRatePerSecond, customerBurst));
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtEnd, boolean success) {
+        if (!success) {
+            // Failures (timeouts, 5xx) back off multiplicatively, like AIMD
+            limit = Math.max(minLimit, limit * 0.9);
+            return;
+        }
+
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        }
+        shortRttNanos += 0.1 * (rttNanos - shortRttNanos);   // last ~10 requests
+        longRttNanos += 0.01 * (rttNanos - longRttNanos);    // last ~100 requests: the baseline
+
+        // After a sustained latency drop, let the baseline catch up quickly
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos = 0.95 * longRttNanos + 0.05 * shortRttNanos;
+        }
+
+        // Do not grow the limit while it is not even being used (the app is not the bottleneck)
+        if (inFlightAtEnd < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / shortRttNanos));
+        double queueAllowance = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueAllowance;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+    }
+
+    private long retryAfterSeconds(long waitMillis) {
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+
+    /**
+     * One admitted request. release() must be called exactly once, with whether it succeeded.
+     */
+    public class Permit {
+        private final long startNanos;
+        private final boolean counted;
+        private final boolean sampled;
+
+        private Permit(long startNanos, boolean counted, boolean sampled) {
+            this.startNanos = startNanos;
+            this.counted = counted;
+            this.sampled = sampled;
+        }
+
+        public void release(boolean success) {
+            if (!counted) {
+                return;
+            }
+            int inFlightAtEnd = inFlight.getAndDecrement();
+            if (sampled || !success) {
+                onSample(System.nanoTime() - startNanos, inFlightAtEnd, success);
+            }
+        }
+    }
+
+    // Classic token bucket refilled lazily on access
+    private static class TokenBucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        // @return 0 if a token was taken, otherwise the millis until one is available
+        synchronized long tryTake(double ratePerSecond, double burst) {
+            refill(ratePerSecond, burst);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / ratePerSecond * 1000);
+        }
+
+        synchronized boolean isFull(double ratePerSecond, double burst) {
+            refill(ratePerSecond, burst);
+            return tokens >= burst;
+        }
+
+        private void refill(double ratePerSecond, double burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * ratePerSecond);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pds.orderprocessingservice.service;
+
+/**
+ * Thrown by AdmissionControl when a request is shed; mapped to 429 Too Many Requests with Retry-After.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,338 @@
+package com.pds.orderprocessingservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pds.orderprocessingservice.model.ItemStatus;
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderItem;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import com.pds.orderprocessingservice.repository.OrderRepository;
+import com.pds.orderprocessingservice.web.BulkOrderResponse;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Processes partner order batches submitted to POST /orders/bulk.
+ * Orders are read as a stream (JSON array or NDJSON); invalid ones are reported and skipped,
+ * the rest are handled in chunks:
+ * 1. Insert the chunk as RECEIVED with JDBC-batched inserts.
+ * 2. Ask the Location Service once per distinct delivery address; orders whose lookup failed are FAILED.
+ * 3. Plan each order's warehouses against one stock snapshot for the chunk, then reserve
+ *    every item of the chunk, grouped per warehouse across orders.
+ * 4. Confirm the holds of complete orders and release those of incomplete ones (one call each).
+ * 5. Queue shipments and save the final statuses with batched updates.
+ */
+@Service
+public class BulkOrderService {
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final FulfillmentEngine fulfillmentEngine;
+    private final FulfillmentPlanner planner;
+    private final OrderMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService lookupExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final AdmissionControl admissionControl;
+
+    @Value("${order.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${order.planner.enabled:true}")
+    private boolean plannerEnabled;
+
+    public BulkOrderService(OrderService orderService, OrderRepository orderRepository,
+                            FulfillmentEngine fulfillmentEngine, FulfillmentPlanner planner, ObjectMapper objectMapper,
+                            @Qualifier("fulfillmentExecutor") ExecutorService lookupExecutor,
+                            PlatformTransactionManager transactionManager, OrderMetrics metrics,
+                            AdmissionControl admissionControl) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.fulfillmentEngine = fulfillmentEngine;
+        this.planner = planner;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.lookupExecutor = lookupExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * Reads orders from the body (a JSON array or one JSON order per line) and processes
+     * them chunk by chunk. A malformed order stops the read; everything before it is kept.
+     * An order that parses but is invalid (see {@link #validate}), or whose customer is over its
+     * order rate, is rejected without being saved.
+     * Each chunk needs an AdmissionControl permit: if the first one is refused the whole call is
+     * (AdmissionRejectedException, 429); if a later one is, the read stops there, like for a malformed order.
+     */
+    public BulkOrderResponse submit(InputStream body) throws IOException {
+        BulkOrderResponse response = new BulkOrderResponse();
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        List<Integer> indexes = new ArrayList<>(chunkSize);
+        int index = 0;
+        boolean admitted = true;
+
+        // MappingIterator unwraps a top-level array and also reads whitespace-separated values (NDJSON)
+        try (MappingIterator<Order> orders = objectMapper.readerFor(Order.class).readValues(body)) {
+            for (; admitted && orders.hasNextValue(); index++) {
+                Order order = orders.nextValue();
+                String problem = validate(order);
+                if (problem == null && !admissionControl.chargeCustomer(order.getCustomerId())) {
+                    problem = "Customer " + order.getCustomerId() + " is over its order rate";
+                }
+                if (problem != null) {
+                    response.reject(index, problem);
+                    continue;
+                }
+                chunk.add(order);
+                indexes.add(index);
+                if (chunk.size() == chunkSize) {
+                    admitted = admitChunk(chunk, indexes, response);
+                    chunk = new ArrayList<>(chunkSize);
+                    indexes = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            response.setError("Malformed order at index " + index + ": " + e.getOriginalMessage());
+        }
+
+        if (admitted && !chunk.isEmpty()) {
+            admitChunk(chunk, indexes, response);
+        }
+        response.getResults().sort(Comparator.comparingInt(BulkOrderResponse.Result::getIndex));
+        return response;
+    }
+
+    /**
+     * Checks what the workflow relies on: a customer, a delivery address, at least one item,
+     * and a product code and positive quantity on every item.
+     * @return Why the order is invalid, or null if it is valid.
+     */
+    private String validate(Order order) {
+        if (order == null) {
+            return "Empty order";
+        }
+        if (order.getCustomerId() == null) {
+            return "Missing customer";
+        }
+        if (order.getDeliveryAddress() == null || order.getDeliveryAddress().isBlank()) {
+            return "Missing delivery address";
+        }
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            return "No items";
+        }
+        for (OrderItem item : order.getItems()) {
+            if (item == null || item.getProductCode() == null) {
+                return "Item without product code";
+            }
+            if (item.getQuantity() <= 0) {
+                return "Quantity must be positive for product " + item.getProductCode();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Processes one chunk under its own admission permit.
+     * @return False if intake was saturated: the chunk's orders are rejected and nothing after them is read.
+     */
+    private boolean admitChunk(List<Order> chunk, List<Integer> indexes, BulkOrderResponse response) {
+        AdmissionControl.Permit permit;
+        try {
+            permit = admissionControl.admitBulkChunk();
+        } catch (AdmissionRejectedException e) {
+            if (response.getReceived() == response.getRejected()) {
+                throw e; // nothing saved yet: the client can simply retry the whole batch
+            }
+            indexes.forEach(index -> response.reject(index, e.getMessage()));
+            response.setError("Order intake is saturated; orders from index " + indexes.get(0) + " on were not processed");
+            return false;
+        }
+
+        boolean success = false;
+        try {
+            processChunk(chunk, indexes, response);
+            success = true;
+        } finally {
+            permit.release(success);
+        }
+        return true;
+    }
+
+    private void processChunk(List<Order> chunk, List<Integer> indexes, BulkOrderResponse response) {
+
+        // 1. Save Initial State (pooled sequence ids let Hibernate batch these inserts), claimed by
+        //    this chunk so the pipeline's recovery sweep leaves the orders alone until step 5
+        Timer.Sample insert = metrics.start();
+        String claim = UUID.randomUUID().toString();
+        LocalDateTime claimedUntil = LocalDateTime.now().plus(orderService.getClaimTtl());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Order order : chunk) {
+                order.setStatus(OrderStatus.RECEIVED);
+                order.setClaimToken(claim);
+                order.setClaimedUntil(claimedUntil);
+                order.getItems().forEach(item -> item.setOrder(order));
+            }
+            orderRepository.saveAll(chunk);
+        });
+        metrics.dbWrite(insert, "bulk_insert");
+
+        // 2. One ranking lookup per distinct address, run concurrently; a failed lookup only fails its own orders
+        Map<String, CompletableFuture<List<CandidateWarehouse>>> lookups = new LinkedHashMap<>();
+        for (Order order : chunk) {
+            lookups.computeIfAbsent(order.getDeliveryAddress(), address -> CompletableFuture.supplyAsync(
+                    () -> orderService.findRankedWarehouses(address), lookupExecutor));
+        }
+        Map<String, List<CandidateWarehouse>> candidatesByAddress = new HashMap<>();
+        Map<String, String> failedLookups = new HashMap<>();
+        lookups.forEach((address, lookup) -> {
+            try {
+                candidatesByAddress.put(address, orderService.reachable(lookup.join()));
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println("Bulk location lookup failed for address '" + address + "': " + cause);
+                failedLookups.put(address, "Location lookup failed: " + cause.getMessage());
+                candidatesByAddress.put(address, List.of());
+            }
+        });
+
+        // Why an order FAILED, when its items do not tell
+        Map<Long, String> failures = new HashMap<>();
+        List<OrderItem> items = new ArrayList<>();
+        Set<Long> warehouseIds = new LinkedHashSet<>();
+        for (Order order : chunk) {
+            List<CandidateWarehouse> candidates = candidatesByAddress.get(order.getDeliveryAddress());
+            if (candidates.isEmpty()) {
+                order.setStatus(OrderStatus.FAILED);
+                failures.put(order.getId(), failedLookups.getOrDefault(order.getDeliveryAddress(), "No candidate warehouse for address"));
+                continue;
+            }
+            order.setStatus(OrderStatus.ASSIGNED);
+            items.addAll(order.getItems());
+            candidates.forEach(candidate -> warehouseIds.add(candidate.getId()));
+        }
+
+        // 3. One stock snapshot for the whole chunk; orders are planned in turn, each deducting its plan
+        StockAvailability availability = plannerEnabled && !items.isEmpty()
+                ? orderService.fetchAvailability(items, List.copyOf(warehouseIds))
+                : null;
+
+        List<List<Long>> candidatesPerItem = new ArrayList<>(items.size());
+        for (Order order : chunk) {
+            if (order.getStatus() != OrderStatus.ASSIGNED) {
+                continue;
+            }
+            List<CandidateWarehouse> candidates = candidatesByAddress.get(order.getDeliveryAddress());
+            List<Long> candidateIds = candidates.stream().map(CandidateWarehouse::getId).toList();
+            List<Long> plan = availability == null ? null : planner.plan(order.getItems(), candidates, availability);
+            if (plan != null) {
+                candidatesPerItem.addAll(FulfillmentPlanner.plannedFirst(plan, candidateIds));
+            } else {
+                candidatesPerItem.addAll(Collections.nCopies(order.getItems().size(), candidateIds));
+            }
+        }
+
+        // Reserve every item of every located order, grouped per warehouse across the chunk
+        FulfillmentReport report = fulfillmentEngine.reserveGrouped(items, candidatesPerItem, orderService::checkAndReserveStock,
+                orderService::releaseReservationIds);
+        System.out.println("Bulk chunk of " + chunk.size() + " orders reserved " + items.size() + " items in " + report.getTotalMillis() + " ms");
+
+        // 4. One confirm call for every hold of complete orders, one release call for the rest
+        List<Long> toConfirm = new ArrayList<>();
+        for (Order order : chunk) {
+            if (order.getStatus() == OrderStatus.ASSIGNED && allItemsReserved(order)) {
+                order.getItems().forEach(item -> {
+                    if (item.getReservationId() != null) {
+                        toConfirm.add(item.getReservationId());
+                    }
+                });
+            }
+        }
+        Set<Long> unconfirmed = toConfirm.isEmpty() ? Set.of() : orderService.confirmReservationIds(toConfirm);
+
+        List<OrderItem> toRelease = new ArrayList<>();
+        for (Order order : chunk) {
+            if (order.getStatus() != OrderStatus.ASSIGNED) {
+                continue;
+            }
+            boolean reserved = allItemsReserved(order);
+            if (reserved && order.getItems().stream().anyMatch(item -> unconfirmed.contains(item.getReservationId()))) {
+                failures.put(order.getId(), "Reservations could not be confirmed");
+                reserved = false;
+            }
+            if (!reserved) {
+                toRelease.addAll(order.getItems());
+            }
+        }
+        orderService.releaseReservations(toRelease);
+
+        // 5. Queue shipments and persist the outcome in one transaction (batched updates)
+        Timer.Sample update = metrics.start();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Order order : chunk) {
+                order.setClaimToken(null);
+                order.setClaimedUntil(null);
+                if (order.getStatus() != OrderStatus.ASSIGNED) {
+                    continue;
+                }
+                FulfillmentPlanner.markSplitShipments(order.getItems());
+                if (allItemsReserved(order)) {
+                    orderService.scheduleShipment(order);
+                    order.setStatus(OrderStatus.SCHEDULED_FOR_DELIVERY);
+                } else {
+                    order.setStatus(OrderStatus.FAILED);
+                }
+            }
+            orderRepository.saveAll(chunk);
+        });
+        metrics.dbWrite(update, "bulk_update");
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Order order = chunk.get(i);
+            metrics.orderOutcome(order.getStatus());
+            response.add(new BulkOrderResponse.Result(indexes.get(i), order.getId(), order.getStatus(),
+                    describe(order, failures.get(order.getId()))));
+        }
+    }
+
+    private boolean allItemsReserved(Order order) {
+        return order.getItems().stream().allMatch(item -> item.getItemStatus().isReserved());
+    }
+
+    private String describe(Order order, String failure) {
+        if (order.getStatus() != OrderStatus.FAILED) {
+            return null;
+        }
+        if (failure != null) {
+            return failure;
+        }
+        List<Long> missing = order.getItems().stream()
+                .filter(item -> item.getItemStatus() == ItemStatus.NOT_AVAILABLE)
+                .map(OrderItem::getProductCode)
+                .toList();
+        return missing.isEmpty() ? "Not all items could be reserved" : "Not available: " + missing;
+    }
+}
@@ -0,0 +1,19 @@
+package com.pds.orderprocessingservice.service;
+
+import lombok.Getter;
+
+/**
+ * One entry of the Location Service ranking: a warehouse and its travel distance
+ * to the delivery address.
+ */
+@Getter
+public class CandidateWarehouse {
+
+    private final Long id;
+    private final double distanceKm;
+
+    public CandidateWarehouse(Long id, double distanceKm) {
+        this.id = id;
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,149 @@
+package com.pds.orderprocessingservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local cache of normalized delivery address -> ranked candidate warehouses.
+ * Bounded (least recently used entries are evicted first) and TTL based, so a missed
+ * invalidation from the Location Service only leaves stale rankings for one TTL.
+ * The Location Service clears it whenever warehouses are added or removed. Callers read
+ * generation() before fetching a ranking and hand it to put(), which drops the ranking if
+ * the cache was cleared meanwhile (it may predate the warehouse change).
+ */
+@Component
+public class CandidateWarehouseCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Access-ordered LinkedHashMap = LRU; guarded by its own monitor
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped by every invalidateAll(); guarded by entries
+    private long generation;
+
+    public CandidateWarehouseCache(@Value("${order.candidate-cache.max-entries:10000}") int maxEntries,
+                                   @Value("${order.candidate-cache.ttl:PT10M}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CandidateWarehouseCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cached ranking for the address, or null on a miss or expired entry.
+     */
+    public List<CandidateWarehouse> get(String address) {
+        String key = normalize(address);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.storedAt < ttlNanos) {
+                hits.incrementAndGet();
+                return entry.warehouses;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @return The current generation; read it before fetching the ranking to put().
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Stores a ranking fetched after generation() returned the given value,
+     * unless the cache has been invalidated since.
+     */
+    public void put(String address, List<CandidateWarehouse> warehouses, long fetchedInGeneration) {
+        // Empty rankings usually mean the Location Service failed; never pin those
+        if (warehouses.isEmpty()) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation != fetchedInGeneration) {
+                return;
+            }
+            entries.put(normalize(address), new Entry(List.copyOf(warehouses), System.nanoTime()));
+        }
+    }
+
+    // Called when the Location Service reports warehouse changes
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hit_ratio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Case, whitespace and the implicit country suffix do not change the ranking
+    static String normalize(String address) {
+        String normalized = address.trim().toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("\\s*,\\s*", ", ");
+        if (normalized.endsWith(", canada")) {
+            normalized = normalized.substring(0, normalized.length() - ", canada".length());
+        }
+        return normalized;
+    }
+
+    private record Entry(List<CandidateWarehouse> warehouses, long storedAt) {}
+}
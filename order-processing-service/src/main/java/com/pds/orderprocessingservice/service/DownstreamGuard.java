@@ -0,0 +1,175 @@
+package com.pds.orderprocessingservice.service;
+
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker plus bulkhead for one downstream target (a service, or one warehouse).
+ * - Bulkhead: at most maxConcurrentCalls calls in flight; extra calls are rejected at once
+ *   instead of piling up threads behind a target that hangs.
+ * - Breaker: after failureThreshold consecutive failures the target is skipped (OPEN) for
+ *   openDuration, then a single trial call decides between CLOSED and OPEN again (HALF_OPEN).
+ * A 4xx answer counts as healthy: the target responded, it just said no.
+ */
+public class DownstreamGuard {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int maxConcurrentCalls;
+    private final Semaphore bulkhead;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong bulkheadRejected = new AtomicLong();
+
+    // Breaker state, guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public DownstreamGuard(String name, int failureThreshold, long openNanos, int maxConcurrentCalls) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Runs the call through the breaker and bulkhead.
+     * @throws DownstreamUnavailableException if the breaker is open or the bulkhead is full.
+     */
+    public <T> T call(Supplier<T> action) {
+        if (!tryEnter()) {
+            shortCircuited.incrementAndGet();
+            throw new DownstreamUnavailableException(name + " circuit is open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejected.incrementAndGet();
+            releaseTrial();
+            throw new DownstreamUnavailableException(name + " has " + maxConcurrentCalls + " calls in flight");
+        }
+
+        calls.incrementAndGet();
+        try {
+            T result = action.get();
+            onSuccess();
+            return result;
+        } catch (HttpClientErrorException e) {
+            onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Same as call(action), but any failure or rejection is turned into the fallback's value.
+     */
+    public <T> T call(Supplier<T> action, Function<RuntimeException, T> fallback) {
+        try {
+            return call(action);
+        } catch (RuntimeException e) {
+            return fallback.apply(e);
+        }
+    }
+
+    /**
+     * Whether a call would currently be let through (without taking the half-open trial slot).
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openedAt >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInFlight() {
+        return maxConcurrentCalls - bulkhead.availablePermits();
+    }
+
+    public long getShortCircuited() {
+        return shortCircuited.get();
+    }
+
+    public long getBulkheadRejected() {
+        return bulkheadRejected.get();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("consecutive_failures", consecutiveFailures);
+        stats.put("in_flight", getInFlight());
+        stats.put("max_concurrent_calls", maxConcurrentCalls);
+        stats.put("calls", calls.get());
+        stats.put("failures", failures.get());
+        stats.put("short_circuited", shortCircuited.get());
+        stats.put("bulkhead_rejected", bulkheadRejected.get());
+        return stats;
+    }
+
+    private synchronized boolean tryEnter() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    private synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            System.out.println("Circuit for " + name + " closed");
+        }
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.err.println("Circuit for " + name + " opened after " + consecutiveFailures + " consecutive failures");
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pds.orderprocessingservice.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One DownstreamGuard per downstream service and one per warehouse ID, so a single hanging
+ * warehouse is cut off without affecting reservations at the others.
+ * Each guard is registered with the MeterRegistry when it is first used.
+ */
+@Component
+public class DownstreamGuards {
+
+    public static final String LOCATION = "location-service";
+    public static final String WAREHOUSE = "warehouse-service";
+    public static final String LOGISTICS = "logistics-service";
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int serviceMaxConcurrentCalls;
+    private final int warehouseMaxConcurrentCalls;
+    private final MeterRegistry registry;
+
+    private final ConcurrentHashMap<String, DownstreamGuard> services = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, DownstreamGuard> warehouses = new ConcurrentHashMap<>();
+
+    public DownstreamGuards(MeterRegistry registry,
+                            @Value("${order.breaker.failure-threshold:5}") int failureThreshold,
+                            @Value("${order.breaker.open-duration:PT30S}") Duration openDuration,
+                            @Value("${order.bulkhead.service.max-concurrent-calls:50}") int serviceMaxConcurrentCalls,
+                            @Value("${order.bulkhead.warehouse.max-concurrent-calls:20}") int warehouseMaxConcurrentCalls) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.serviceMaxConcurrentCalls = serviceMaxConcurrentCalls;
+        this.warehouseMaxConcurrentCalls = warehouseMaxConcurrentCalls;
+        this.registry = registry;
+    }
+
+    public DownstreamGuard forService(String service) {
+        return services.computeIfAbsent(service,
+                name -> bind(new DownstreamGuard(name, failureThreshold, openNanos, serviceMaxConcurrentCalls)));
+    }
+
+    // Reservations at one warehouse (a /reserve-item or /reserve-items call naming that warehouse)
+    public DownstreamGuard forWarehouse(Long warehouseId) {
+        return warehouses.computeIfAbsent(warehouseId,
+                id -> bind(new DownstreamGuard("warehouse-" + id, failureThreshold, openNanos, warehouseMaxConcurrentCalls)));
+    }
+
+    public boolean isWarehouseAvailable(Long warehouseId) {
+        DownstreamGuard guard = warehouses.get(warehouseId);
+        return guard == null || guard.isCallPermitted();
+    }
+
+    public Map<String, Object> diagnostics() {
+        Map<String, Object> services = new TreeMap<>();
+        this.services.forEach((name, guard) -> services.put(name, guard.stats()));
+        Map<Long, Object> warehouses = new TreeMap<>();
+        this.warehouses.forEach((id, guard) -> warehouses.put(id, guard.stats()));
+
+        Map<String, Object> diagnostics = new LinkedHashMap<>();
+        diagnostics.put("services", services);
+        diagnostics.put("warehouses", warehouses);
+        return diagnostics;
+    }
+
+    // State ordinal: 0 = closed, 1 = open, 2 = half open
+    private DownstreamGuard bind(DownstreamGuard guard) {
+        Gauge.builder("order.downstream.circuit.state", guard, g -> g.getState().ordinal())
+                .tag("target", guard.getName()).register(registry);
+        Gauge.builder("order.downstream.in_flight", guard, DownstreamGuard::getInFlight)
+                .tag("target", guard.getName()).register(registry);
+        FunctionCounter.builder("order.downstream.rejected", guard, DownstreamGuard::getShortCircuited)
+                .tag("target", guard.getName()).tag("reason", "circuit_open").register(registry);
+        FunctionCounter.builder("order.downstream.rejected", guard, DownstreamGuard::getBulkheadRejected)
+                .tag("target", guard.getName()).tag("reason", "bulkhead_full").register(registry);
+        return guard;
+    }
+}
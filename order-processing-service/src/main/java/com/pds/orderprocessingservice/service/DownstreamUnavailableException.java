@@ -0,0 +1,11 @@
+package com.pds.orderprocessingservice.service;
+
+/**
+ * Thrown by DownstreamGuard when a call is not attempted: the circuit is open or the bulkhead is full.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+}
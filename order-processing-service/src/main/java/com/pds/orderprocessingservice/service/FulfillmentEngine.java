@@ -0,0 +1,295 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.ItemStatus;
+import com.pds.orderprocessingservice.model.OrderItem;
+import com.pds.orderprocessingservice.web.BatchReservationResponse;
+import com.pds.orderprocessingservice.web.StockReservationResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Reserves all items of an order concurrently.
+ * Each item still walks the ranked warehouse list in order, so the first ranked
+ * warehouse that accepts an item wins, exactly as in the sequential loop.
+ * Only the items themselves run in parallel, capped per order by a semaphore.
+ * When the Warehouse Service batch endpoint is used, items are instead grouped
+ * per warehouse and reserved with one call per ranked warehouse.
+ */
+@Component
+public class FulfillmentEngine {
+
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int maxBatchLines;
+
+    public FulfillmentEngine(@Qualifier("fulfillmentExecutor") ExecutorService executor,
+                             @Value("${order.fulfillment.max-concurrency:8}") int maxConcurrency,
+                             @Value("${order.fulfillment.max-batch-lines:200}") int maxBatchLines) {
+        this.executor = executor;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxBatchLines = Math.max(1, maxBatchLines);
+    }
+
+    /**
+     * Reserves every item against the ranked candidates.
+     * Once any item turns out to be unavailable the order is lost anyway, so items
+     * that have not started yet are skipped and left PENDING.
+     *
+     * @param reserver the call to the Warehouse Service for one (warehouse, item) pair
+     */
+    public FulfillmentReport reserveAll(List<OrderItem> items,
+                                        List<Long> candidateWarehouseIds,
+                                        BiFunction<Long, OrderItem, StockReservationResponse> reserver) {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicBoolean orderFailed = new AtomicBoolean(false);
+
+        // 1. Submit one task per item, each gated by the per-order concurrency cap
+        List<Future<FulfillmentReport.ItemResult>> futures = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    if (orderFailed.get()) {
+                        return new FulfillmentReport.ItemResult(item.getProductCode(), null, 0, 0);
+                    }
+                    FulfillmentReport.ItemResult result = reserveItem(item, candidateWarehouseIds, reserver);
+                    if (!result.isReserved()) {
+                        orderFailed.set(true);
+                    }
+                    return result;
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        // 2. Wait for every item so no reservation is still in flight when the order is saved
+        List<FulfillmentReport.ItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(await(futures.get(i), items.get(i)));
+        }
+
+        return new FulfillmentReport(results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reserves items in per-warehouse batches.
+     * All still-pending items are sent to the best ranked warehouse in one call. If that
+     * warehouse rejects the batch, the lines it reported as reservable are retried there
+     * on their own and only the rest move on to the next warehouse, which keeps the
+     * "first ranked warehouse wins" rule per item.
+     *
+     * @param batchReserver the call to the Warehouse Service for one (warehouse, items) batch
+     * @param releaser       gives back holds of a reply that cannot be matched to its lines
+     */
+    public FulfillmentReport reserveBatched(List<OrderItem> items,
+                                            List<Long> candidateWarehouseIds,
+                                            BiFunction<Long, List<OrderItem>, BatchReservationResponse> batchReserver,
+                                            Consumer<Collection<Long>> releaser) {
+        return reserveGrouped(items, Collections.nCopies(items.size(), candidateWarehouseIds), batchReserver, releaser);
+    }
+
+    /**
+     * Batched reservation for items that may have different ranked candidate lists
+     * (e.g. items of many orders in a bulk submission).
+     * Round r sends every pending item to its r-th ranked warehouse, grouped so each
+     * warehouse gets one call per round (split into chunks of at most maxBatchLines lines).
+     * Different warehouses in the same round are called in parallel.
+     *
+     * @param candidatesPerItem ranked warehouse IDs for each item, aligned with items by index
+     */
+    public FulfillmentReport reserveGrouped(List<OrderItem> items,
+                                            List<List<Long>> candidatesPerItem,
+                                            BiFunction<Long, List<OrderItem>, BatchReservationResponse> batchReserver,
+                                            Consumer<Collection<Long>> releaser) {
+        long start = System.nanoTime();
+        // Items are tracked by index: OrderItem's Lombok equals/hashCode is not usable as a key
+        FulfillmentReport.ItemResult[] results = new FulfillmentReport.ItemResult[items.size()];
+        int[] attempts = new int[items.size()];
+        Set<Integer> pending = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            pending.add(i);
+        }
+
+        for (int round = 0; !pending.isEmpty(); round++) {
+            // 1. Group this round's pending items by their r-th ranked warehouse
+            Map<Long, List<Integer>> byWarehouse = new LinkedHashMap<>();
+            List<Integer> exhausted = new ArrayList<>();
+            for (Integer i : pending) {
+                List<Long> candidates = candidatesPerItem.get(i);
+                if (round < candidates.size()) {
+                    byWarehouse.computeIfAbsent(candidates.get(round), w -> new ArrayList<>()).add(i);
+                } else {
+                    exhausted.add(i);
+                }
+            }
+            pending.removeAll(exhausted);
+            if (byWarehouse.isEmpty()) {
+                break;
+            }
+
+            // 2. One batch call (per chunk) per warehouse, warehouses in parallel
+            List<Future<List<Integer>>> calls = new ArrayList<>();
+            for (Map.Entry<Long, List<Integer>> group : byWarehouse.entrySet()) {
+                for (List<Integer> chunk : chunks(group.getValue())) {
+                    chunk.forEach(i -> attempts[i]++);
+                    calls.add(executor.submit(() -> reserveAtWarehouse(group.getKey(), chunk, items, batchReserver, releaser)));
+                }
+            }
+
+            // 3. Record winners; everything else moves on to its next ranked warehouse
+            for (Future<List<Integer>> call : calls) {
+                for (Integer i : awaitBatch(call)) {
+                    OrderItem item = items.get(i);
+                    results[i] = new FulfillmentReport.ItemResult(item.getProductCode(), item.getFulfilledByWarehouseId(),
+                            attempts[i], elapsedMillis(start));
+                    pending.remove(i);
+                }
+            }
+        }
+
+        // 4. Whatever is left could not be reserved at ANY candidate warehouse
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i] == null) {
+                OrderItem item = items.get(i);
+                item.setItemStatus(ItemStatus.NOT_AVAILABLE);
+                results[i] = new FulfillmentReport.ItemResult(item.getProductCode(), null, attempts[i], elapsedMillis(start));
+            }
+        }
+
+        return new FulfillmentReport(List.of(results), elapsedMillis(start));
+    }
+
+    // Sends one batch to a warehouse; returns the indexes it reserved
+    private List<Integer> reserveAtWarehouse(Long warehouseId, List<Integer> batch, List<OrderItem> items,
+                                             BiFunction<Long, List<OrderItem>, BatchReservationResponse> batchReserver,
+                                             Consumer<Collection<Long>> releaser) {
+        BatchReservationResponse response = batchReserver.apply(warehouseId, select(items, batch));
+        List<Integer> reserved = new ArrayList<>();
+        BatchReservationResponse accepted = null;
+
+        if (response != null && response.isSuccess()) {
+            reserved.addAll(batch);
+            accepted = response;
+        } else if (response != null && response.getItems().size() == batch.size()) {
+            // Retry only the lines this warehouse said it could satisfy
+            List<Integer> reservable = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (response.getItems().get(i).isSuccess()) {
+                    reservable.add(batch.get(i));
+                }
+            }
+            if (!reservable.isEmpty() && reservable.size() < batch.size()) {
+                BatchReservationResponse retry = batchReserver.apply(warehouseId, select(items, reservable));
+                if (retry != null && retry.isSuccess()) {
+                    reserved.addAll(reservable);
+                    accepted = retry;
+                }
+            }
+        }
+
+        if (accepted != null && accepted.getItems().size() != reserved.size()) {
+            // Line results come back in request order; without one per line no hold can be tied to its item,
+            // so the whole batch counts as failed and whatever it did hold is given back
+            List<Long> held = accepted.getItems().stream()
+                    .map(BatchReservationResponse.LineResult::getReservationId)
+                    .filter(Objects::nonNull)
+                    .toList();
+            System.err.println("Warehouse " + warehouseId + " answered " + accepted.getItems().size() + " lines for a batch of "
+                    + reserved.size() + "; releasing " + held.size() + " holds");
+            if (!held.isEmpty()) {
+                releaser.accept(held);
+            }
+            return List.of();
+        }
+
+        for (int k = 0; k < reserved.size(); k++) {
+            OrderItem item = items.get(reserved.get(k));
+            item.setFulfilledByWarehouseId(warehouseId);
+            item.setReservationId(accepted.getItems().get(k).getReservationId());
+            item.setItemStatus(ItemStatus.RESERVED);
+        }
+        return reserved;
+    }
+
+    private List<List<Integer>> chunks(List<Integer> indexes) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < indexes.size(); from += maxBatchLines) {
+            chunks.add(indexes.subList(from, Math.min(from + maxBatchLines, indexes.size())));
+        }
+        return chunks;
+    }
+
+    private List<Integer> awaitBatch(Future<List<Integer>> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Batch reservation task failed: " + e.getCause());
+        }
+        return List.of();
+    }
+
+    private List<OrderItem> select(List<OrderItem> items, List<Integer> indexes) {
+        return indexes.stream().map(items::get).toList();
+    }
+
+    // Walks the ranked list for a single item; the first warehouse that accepts it wins
+    private FulfillmentReport.ItemResult reserveItem(OrderItem item,
+                                                     List<Long> candidateWarehouseIds,
+                                                     BiFunction<Long, OrderItem, StockReservationResponse> reserver) {
+        long start = System.nanoTime();
+        int attempts = 0;
+
+        for (Long warehouseId : candidateWarehouseIds) {
+            attempts++;
+            StockReservationResponse response = reserver.apply(warehouseId, item);
+
+            if (response != null && response.isSuccess()) {
+                item.setFulfilledByWarehouseId(warehouseId);
+                item.setReservationId(response.getReservationId());
+                item.setItemStatus(ItemStatus.RESERVED);
+                return new FulfillmentReport.ItemResult(item.getProductCode(), warehouseId, attempts, elapsedMillis(start));
+            }
+        }
+
+        item.setItemStatus(ItemStatus.NOT_AVAILABLE);
+        return new FulfillmentReport.ItemResult(item.getProductCode(), null, attempts, elapsedMillis(start));
+    }
+
+    private FulfillmentReport.ItemResult await(Future<FulfillmentReport.ItemResult> future, OrderItem item) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Reservation task failed for item " + item.getProductCode() + ": " + e.getCause());
+        }
+        item.setItemStatus(ItemStatus.NOT_AVAILABLE);
+        return new FulfillmentReport.ItemResult(item.getProductCode(), null, 0, 0);
+    }
+
+    private long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
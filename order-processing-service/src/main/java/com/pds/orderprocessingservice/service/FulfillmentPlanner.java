@@ -0,0 +1,173 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.ItemStatus;
+import com.pds.orderprocessingservice.model.OrderItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans which warehouse ships each item of an order before anything is reserved.
+ * Goal: the fewest warehouses (fewest pickups, so fewer logistics assignments and
+ * reservation calls), then the least total distance among plans of that size.
+ * Subsets of the ranked candidates are tried smallest first; within a subset each item
+ * goes to the nearest warehouse that still has enough stock in the snapshot.
+ * If planning runs past its time budget, or no plan fits the snapshot, the caller
+ * falls back to the greedy per-item path.
+ */
+@Component
+public class FulfillmentPlanner {
+
+    private final long timeBudgetNanos;
+    private final int maxCandidates;
+
+    public FulfillmentPlanner(@Value("${order.planner.time-budget-ms:50}") long timeBudgetMs,
+                              @Value("${order.planner.max-candidates:10}") int maxCandidates) {
+        this.timeBudgetNanos = timeBudgetMs * 1_000_000;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @param candidates   ranked warehouses for the order's address
+     * @param availability stock snapshot; on success the planned quantities are deducted from it
+     * @return The planned warehouse ID per item (aligned with items by index), or null to fall back to greedy.
+     */
+    public List<Long> plan(List<OrderItem> items, List<CandidateWarehouse> candidates, StockAvailability availability) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        List<CandidateWarehouse> pool = candidates.subList(0, Math.min(candidates.size(), maxCandidates));
+        int m = pool.size();
+        if (items.isEmpty() || m == 0) {
+            return null;
+        }
+
+        // 1. Fewest warehouses first: k = 1, 2, ... candidates
+        for (int k = 1; k <= m; k++) {
+            List<Long> best = null;
+            double bestCost = Double.MAX_VALUE;
+
+            for (int[] subset = firstCombination(k); subset != null; subset = nextCombination(subset, m)) {
+                if (System.nanoTime() > deadline) {
+                    System.err.println("Fulfillment planner ran past its time budget; falling back to greedy");
+                    return null;
+                }
+
+                // 2. Least total distance among feasible subsets of this size (rank breaks ties)
+                double cost = 0;
+                for (int index : subset) {
+                    cost += pool.get(index).getDistanceKm() * 1_000 + index;
+                }
+                if (cost >= bestCost) {
+                    continue;
+                }
+
+                List<Long> assignment = assign(items, pool, subset, availability);
+                if (assignment != null) {
+                    best = assignment;
+                    bestCost = cost;
+                }
+            }
+
+            if (best != null) {
+                for (int i = 0; i < items.size(); i++) {
+                    availability.deduct(best.get(i), items.get(i).getProductCode(), items.get(i).getQuantity());
+                }
+                return best;
+            }
+        }
+        return null; // Not even all candidates together cover the order in the snapshot
+    }
+
+    /**
+     * Candidate lists that try the planned warehouse first, then the rest of the ranking,
+     * so an item whose planned reservation loses a race still falls back greedily.
+     */
+    public static List<List<Long>> plannedFirst(List<Long> plan, List<Long> rankedWarehouseIds) {
+        List<List<Long>> candidatesPerItem = new ArrayList<>(plan.size());
+        for (Long planned : plan) {
+            List<Long> candidates = new ArrayList<>(rankedWarehouseIds.size());
+            candidates.add(planned);
+            rankedWarehouseIds.stream().filter(id -> !id.equals(planned)).forEach(candidates::add);
+            candidatesPerItem.add(candidates);
+        }
+        return candidatesPerItem;
+    }
+
+    /**
+     * Marks items shipped from a secondary warehouse as SPLIT_SHIPMENT.
+     * The primary warehouse is the one shipping the most items (first reserved item breaks ties).
+     */
+    public static void markSplitShipments(List<OrderItem> items) {
+        Map<Long, Integer> itemsPerWarehouse = new HashMap<>();
+        Long primary = null;
+        for (OrderItem item : items) {
+            if (!item.getItemStatus().isReserved()) {
+                continue;
+            }
+            int count = itemsPerWarehouse.merge(item.getFulfilledByWarehouseId(), 1, Integer::sum);
+            if (primary == null || count > itemsPerWarehouse.get(primary)) {
+                primary = item.getFulfilledByWarehouseId();
+            }
+        }
+        if (itemsPerWarehouse.size() < 2) {
+            return;
+        }
+        for (OrderItem item : items) {
+            if (item.getItemStatus().isReserved()) {
+                item.setItemStatus(item.getFulfilledByWarehouseId().equals(primary) ? ItemStatus.RESERVED : ItemStatus.SPLIT_SHIPMENT);
+            }
+        }
+    }
+
+    // Each item to the nearest warehouse of the subset that can still cover it, or null if one cannot be placed
+    private List<Long> assign(List<OrderItem> items, List<CandidateWarehouse> pool, int[] subset, StockAvailability availability) {
+        StockAvailability remaining = availability.copy();
+        List<Long> assignment = new ArrayList<>(items.size());
+
+        for (OrderItem item : items) {
+            Long chosen = null;
+            for (int index : subset) { // subset indexes are ascending, i.e. in rank order
+                Long warehouseId = pool.get(index).getId();
+                if (remaining.get(warehouseId, item.getProductCode()) >= item.getQuantity()) {
+                    chosen = warehouseId;
+                    break;
+                }
+            }
+            if (chosen == null) {
+                return null;
+            }
+            remaining.deduct(chosen, item.getProductCode(), item.getQuantity());
+            assignment.add(chosen);
+        }
+        return assignment;
+    }
+
+    private int[] firstCombination(int k) {
+        int[] combination = new int[k];
+        for (int i = 0; i < k; i++) {
+            combination[i] = i;
+        }
+        return combination;
+    }
+
+    // Next k-combination of {0..m-1} in lexicographic order, or null after the last one
+    private int[] nextCombination(int[] combination, int m) {
+        int k = combination.length;
+        int i = k - 1;
+        while (i >= 0 && combination[i] == m - k + i) {
+            i--;
+        }
+        if (i < 0) {
+            return null;
+        }
+        int[] next = combination.clone();
+        next[i]++;
+        for (int j = i + 1; j < k; j++) {
+            next[j] = next[j - 1] + 1;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pds.orderprocessingservice.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of one fulfillment pass over an order's items.
+ * Holds one ItemResult per line so callers can see which warehouse won each item
+ * and how long the reservation walk took.
+ */
+@Getter
+public class FulfillmentReport {
+
+    private final List<ItemResult> items;
+    private final long totalMillis;
+
+    public FulfillmentReport(List<ItemResult> items, long totalMillis) {
+        this.items = items;
+        this.totalMillis = totalMillis;
+    }
+
+    /**
+     * @return True if every item was reserved at some candidate warehouse.
+     */
+    public boolean allReserved() {
+        return items.stream().allMatch(ItemResult::isReserved);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("FulfillmentReport{totalMs=").append(totalMillis);
+        items.forEach(r -> sb.append(", ").append(r));
+        return sb.append('}').toString();
+    }
+
+    // Per-item latency and outcome
+    @Getter
+    public static class ItemResult {
+        private final Long productCode;
+        private final Long warehouseId; // null when no candidate could reserve the item
+        private final int attempts;
+        private final long latencyMillis;
+
+        public ItemResult(Long productCode, Long warehouseId, int attempts, long latencyMillis) {
+            this.productCode = productCode;
+            this.warehouseId = warehouseId;
+            this.attempts = attempts;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public boolean isReserved() {
+            return warehouseId != null;
+        }
+
+        @Override
+        public String toString() {
+            return "item " + productCode + " -> " + (isReserved() ? "warehouse " + warehouseId : "NOT_AVAILABLE")
+                    + " (" + attempts + " attempts, " + latencyMillis + " ms)";
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.pds.orderprocessingservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pds.orderprocessingservice.model.IdempotencyRecord;
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderItem;
+import com.pds.orderprocessingservice.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates retried POST /orders calls that carry an Idempotency-Key header.
+ * 1. In memory: a retry that arrives while the original is still running on this instance
+ *    waits for the original's future and gets the same response.
+ * 2. In the idempotency_key table: the key is claimed before processing and the response
+ *    stored afterwards, so a retry after completion (or on another instance) replays it
+ *    without calling the Location, Warehouse or Logistics services again.
+ * Only successful (2xx) responses are kept; a failed attempt releases the key so it can be retried.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    // How long a completed key is kept and replayed
+    @Value("${order.idempotency.ttl:PT24H}")
+    private Duration ttl;
+
+    // How long a retry waits for the in-flight original on this instance
+    @Value("${order.idempotency.wait-timeout:PT30S}")
+    private Duration waitTimeout;
+
+    // Claims older than this that never completed are treated as abandoned (instance crashed)
+    @Value("${order.idempotency.in-flight-timeout:PT5M}")
+    private Duration inFlightTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs the handler at most once per key and returns its (possibly replayed) response.
+     * @throws ResponseStatusException 400 for an oversized key, 422 when the key was used for a
+     *         different order, 409 when the original is still running on another instance.
+     */
+    public ResponseEntity<Order> execute(String key, Order request, Supplier<ResponseEntity<Order>> handler) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = fingerprint(request);
+
+        // 1. A retry of a request still running here shares its result
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> original = inFlight.putIfAbsent(key, mine);
+        if (original != null) {
+            StoredResponse response = await(original);
+            requireSameRequest(response.requestHash(), requestHash);
+            return replay(response, true);
+        }
+
+        try {
+            StoredResponse response = claimAndRun(key, requestHash, handler);
+            mine.complete(response);
+            return replay(response, response.replayed());
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // 2. The table decides across instances: whoever inserts the key processes the order
+    private StoredResponse claimAndRun(String key, String requestHash, Supplier<ResponseEntity<Order>> handler) {
+        try {
+            repository.claim(key, requestHash, LocalDateTime.now());
+        } catch (DataIntegrityViolationException duplicate) {
+            IdempotencyRecord existing = repository.findById(key)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Request with this Idempotency-Key is being retried; try again"));
+            requireSameRequest(existing.getRequestHash(), requestHash);
+            if (existing.getResponseStatus() == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Request with this Idempotency-Key is still being processed");
+            }
+            return new StoredResponse(existing.getRequestHash(), existing.getResponseStatus(),
+                    existing.getResponseBody(), existing.getLocation(), true);
+        }
+
+        ResponseEntity<Order> response;
+        try {
+            response = handler.get();
+        } catch (RuntimeException e) {
+            repository.release(key);
+            throw e;
+        }
+
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                serialize(response.getBody()), locationOf(response), false);
+        if (response.getStatusCode().is2xxSuccessful()) {
+            repository.complete(key, stored.status(), stored.body(), stored.location());
+        } else {
+            repository.release(key); // e.g. 503 from a saturated pipeline: the client should really retry
+        }
+        return stored;
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = repository.purge(now.minus(ttl), now.minus(inFlightTimeout));
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " expired idempotency keys");
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> original) {
+        try {
+            return original.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Request with this Idempotency-Key is still being processed");
+        } catch (ExecutionException e) {
+            // The original failed; the retry fails the same way (the key was released, so the next retry runs again)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void requireSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different order");
+        }
+    }
+
+    private ResponseEntity<Order> replay(StoredResponse response, boolean replayed) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.status());
+        if (response.location() != null) {
+            builder.location(URI.create(response.location()));
+        }
+        if (replayed) {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        return builder.body(deserialize(response.body()));
+    }
+
+    // Only what defines the order; server-side defaults such as createdAt differ on every retry
+    private String fingerprint(Order request) {
+        StringBuilder canonical = new StringBuilder()
+                .append(request.getCustomerId()).append('|')
+                .append(request.getDeliveryAddress());
+        for (OrderItem item : request.getItems()) {
+            canonical.append('|').append(item.getProductCode()).append(':').append(item.getQuantity());
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String locationOf(ResponseEntity<Order> response) {
+        URI location = response.getHeaders().getLocation();
+        return location == null ? null : location.toString();
+    }
+
+    private String serialize(Order body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize order response", e);
+        }
+    }
+
+    private Order deserialize(String body) {
+        try {
+            return body == null ? null : objectMapper.readValue(body, Order.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored order response", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, int status, String body, String location, boolean replayed) {}
+}
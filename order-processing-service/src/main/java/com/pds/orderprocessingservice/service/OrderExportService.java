@@ -0,0 +1,112 @@
+package com.pds.orderprocessingservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams orders as NDJSON (one JSON order per line) in constant memory.
+ * Reads orders joined to their items through a forward-only, read-only cursor
+ * (fetch size Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time),
+ * so only the order currently being written is held in memory.
+ */
+@Service
+public class OrderExportService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportNdjson(Long customerId, OrderStatus status, OutputStream out) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id, o.customer_id, o.delivery_address, o.status, o.created_at, " +
+                "i.id AS item_id, i.product_code, i.quantity, i.fulfilled_by_warehouse_id, i.item_status " +
+                "FROM customer_order o LEFT JOIN order_item i ON i.order_id = o.id WHERE 1 = 1");
+        if (customerId != null) {
+            sql.append(" AND o.customer_id = ?");
+            args.add(customerId);
+        }
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status.name());
+        }
+        sql.append(" ORDER BY o.created_at, o.id, i.id");
+
+        OrderLineWriter writer = new OrderLineWriter(out);
+        streamingJdbcTemplate.query(sql.toString(), writer::accept, args.toArray());
+        writer.flush();
+    }
+
+    // Rows arrive grouped by order; an order is written as soon as the next one starts
+    private class OrderLineWriter {
+        private final OutputStream out;
+        private Map<String, Object> current;
+        private List<Map<String, Object>> items;
+
+        OrderLineWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void accept(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("id");
+            if (current == null || !current.get("id").equals(orderId)) {
+                flush();
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                current = new LinkedHashMap<>();
+                current.put("id", orderId);
+                current.put("customerId", rs.getLong("customer_id"));
+                current.put("deliveryAddress", rs.getString("delivery_address"));
+                current.put("status", rs.getString("status"));
+                current.put("createdAt", createdAt == null ? null : createdAt.toLocalDateTime().toString());
+                items = new ArrayList<>();
+                current.put("items", items);
+            }
+
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", itemId);
+                item.put("productCode", rs.getLong("product_code"));
+                item.put("quantity", rs.getInt("quantity"));
+                long warehouseId = rs.getLong("fulfilled_by_warehouse_id");
+                item.put("fulfilledByWarehouseId", rs.wasNull() ? null : warehouseId);
+                item.put("itemStatus", rs.getString("item_status"));
+                items.add(item);
+            }
+        }
+
+        void flush() {
+            if (current == null) {
+                return;
+            }
+            try {
+                out.write(objectMapper.writeValueAsBytes(current));
+                out.write(NEWLINE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer instrumentation of the order workflow, scraped from /actuator/prometheus.
+ * Every timer publishes a percentile histogram, so slow orders can be traced to the stage
+ * (location ranking, reservations, shipment scheduling, DB writes) that made them slow.
+ * Also binds the candidate cache and admission control counters.
+ */
+@Component
+public class OrderMetrics {
+
+    private final MeterRegistry registry;
+
+    public OrderMetrics(MeterRegistry registry, CandidateWarehouseCache candidateCache, AdmissionControl admissionControl) {
+        this.registry = registry;
+
+        Gauge.builder("order.candidate_cache.size", candidateCache, CandidateWarehouseCache::size)
+                .register(registry);
+        FunctionCounter.builder("order.candidate_cache.requests", candidateCache, CandidateWarehouseCache::getHits)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("order.candidate_cache.requests", candidateCache, CandidateWarehouseCache::getMisses)
+                .tag("result", "miss").register(registry);
+
+        Gauge.builder("order.admission.limit", admissionControl, AdmissionControl::getLimit)
+                .description("Current adaptive concurrency limit of POST /orders").register(registry);
+        Gauge.builder("order.admission.in_flight", admissionControl, AdmissionControl::getInFlight)
+                .register(registry);
+        FunctionCounter.builder("order.admission.rejected", admissionControl, AdmissionControl::getRejectedByLimit)
+                .tag("reason", "limit").register(registry);
+        FunctionCounter.builder("order.admission.rejected", admissionControl, AdmissionControl::getRejectedByCustomer)
+                .tag("reason", "customer_rate").register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    // One workflow stage (receive, locate, reserve, schedule) and whether the order survived it
+    public void stage(Timer.Sample sample, String stage, String outcome) {
+        sample.stop(timer("order.stage", "stage", stage, "outcome", outcome));
+    }
+
+    // Ranking lookup for an address: source = cache | location-service, outcome = found | empty
+    public void locationLookup(Timer.Sample sample, String source, String outcome) {
+        sample.stop(timer("order.location.lookup", "source", source, "outcome", outcome));
+    }
+
+    // One reservation call: operation = item | batch, outcome = reserved | rejected | skipped | error
+    public void warehouseCall(Timer.Sample sample, String operation, Long warehouseId, String outcome) {
+        sample.stop(timer("order.warehouse.reservation", "operation", operation,
+                "warehouse", String.valueOf(warehouseId), "outcome", outcome));
+    }
+
+    public void shipmentScheduling(Timer.Sample sample) {
+        sample.stop(timer("order.shipment.schedule"));
+    }
+
+    public void dbWrite(Timer.Sample sample, String operation) {
+        sample.stop(timer("order.db.write", "operation", operation));
+    }
+
+    // Terminal order statuses (SCHEDULED_FOR_DELIVERY, FAILED)
+    public void orderOutcome(OrderStatus status) {
+        Counter.builder("order.outcomes").tag("status", status.name()).register(registry).increment();
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
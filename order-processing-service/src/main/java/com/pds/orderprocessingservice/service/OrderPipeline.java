@@ -0,0 +1,212 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import com.pds.orderprocessingservice.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Staged pipeline behind the asynchronous intake mode: locate -> reserve -> schedule.
+ * Each stage has its own bounded worker pool and queue, so a slow downstream service
+ * only backs up its own stage. Intake rejects new orders once the locate queue is full;
+ * later stages push back on the stage before them (caller runs) instead of dropping work.
+ *
+ * The queues live in memory only. Every status an order passes through is committed, so an
+ * order lost with them (crash, or a shutdown that timed out) is picked up again by the recovery
+ * sweep: RECEIVED and ASSIGNED orders go back to the locate stage, STOCK_RESERVED ones to the
+ * schedule stage. The sweep runs at startup and every recovery.interval-ms, and only takes orders
+ * older than recovery.min-age that nobody has claimed and that are not already queued here.
+ * It can still race a run that is between two stages; each stage claims the order in the status
+ * it expects (OrderService), so whichever run comes second skips the stage.
+ */
+@Component
+public class OrderPipeline {
+
+    private static final List<OrderStatus> UNFINISHED =
+            List.of(OrderStatus.RECEIVED, OrderStatus.ASSIGNED, OrderStatus.STOCK_RESERVED);
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+
+    private final ThreadPoolExecutor locateStage;
+    private final ThreadPoolExecutor reserveStage;
+    private final ThreadPoolExecutor scheduleStage;
+    private final int queueCapacity;
+
+    // Orders queued or running in this instance's stages
+    private final Set<Long> inPipeline = ConcurrentHashMap.newKeySet();
+
+    @Value("${order.pipeline.recovery.min-age:PT2M}")
+    private Duration recoveryMinAge;
+
+    // How long shutdown waits for each stage to finish its queue
+    @Value("${order.pipeline.shutdown-timeout:PT30S}")
+    private Duration shutdownTimeout;
+
+    public OrderPipeline(OrderService orderService, OrderRepository orderRepository,
+                         @Value("${order.pipeline.locate.threads:4}") int locateThreads,
+                         @Value("${order.pipeline.reserve.threads:8}") int reserveThreads,
+                         @Value("${order.pipeline.schedule.threads:4}") int scheduleThreads,
+                         @Value("${order.pipeline.queue-capacity:500}") int queueCapacity) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.queueCapacity = queueCapacity;
+        this.locateStage = newStage("locate", locateThreads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+        this.reserveStage = newStage("reserve", reserveThreads, queueCapacity, callerRunsUnlessShutDown());
+        this.scheduleStage = newStage("schedule", scheduleThreads, queueCapacity, callerRunsUnlessShutDown());
+    }
+
+    /**
+     * Queues a RECEIVED order for processing.
+     * @return False if intake is saturated and the order was not accepted.
+     */
+    public boolean submit(Long orderId) {
+        return enqueue(new Step(locateStage, () -> locate(orderId)), orderId);
+    }
+
+    /**
+     * Recovery sweep: re-queues unfinished orders that no stage here is working on, oldest first,
+     * as many as the stages have room for; the rest wait for the next run.
+     */
+    @Scheduled(initialDelayString = "${order.pipeline.recovery.initial-delay-ms:0}",
+            fixedDelayString = "${order.pipeline.recovery.interval-ms:60000}")
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> stale = orderRepository.findUnclaimed(UNFINISHED, now.minus(recoveryMinAge), now,
+                PageRequest.of(0, queueCapacity));
+
+        int requeued = 0;
+        for (Order order : stale) {
+            Long orderId = order.getId();
+            if (inPipeline.contains(orderId)) {
+                continue;
+            }
+            Step step = order.getStatus() == OrderStatus.STOCK_RESERVED
+                    ? new Step(scheduleStage, () -> schedule(orderId))
+                    : new Step(locateStage, () -> locate(orderId));
+            if (step.stage().getQueue().remainingCapacity() == 0 || !enqueue(step, orderId)) {
+                break;
+            }
+            requeued++;
+        }
+        if (requeued > 0) {
+            System.out.println("Order pipeline recovery: re-queued " + requeued + " unfinished orders");
+        }
+    }
+
+    // --- Stages: each returns the order's next step, or null when it leaves the pipeline ---
+
+    private Step locate(Long orderId) {
+        List<CandidateWarehouse> candidateWarehouses = orderService.locateWarehouses(orderId);
+        return candidateWarehouses.isEmpty() ? null : new Step(reserveStage, () -> reserve(orderId, candidateWarehouses));
+    }
+
+    private Step reserve(Long orderId, List<CandidateWarehouse> candidateWarehouses) {
+        return orderService.reserveStock(orderId, candidateWarehouses) ? new Step(scheduleStage, () -> schedule(orderId)) : null;
+    }
+
+    private Step schedule(Long orderId) {
+        orderService.scheduleDelivery(orderId);
+        return null;
+    }
+
+    // An order entering the pipeline; false if its stage refused it
+    private boolean enqueue(Step step, Long orderId) {
+        if (!inPipeline.add(orderId)) {
+            return true; // already on its way
+        }
+        try {
+            step.stage().execute(new StageTask(orderId, step));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inPipeline.remove(orderId);
+            return false;
+        }
+    }
+
+    private ThreadPoolExecutor newStage(String name, int threads, int queueCapacity,
+                                        RejectedExecutionHandler rejection) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "order-" + name + "-" + counter.incrementAndGet()),
+                rejection);
+    }
+
+    // Back-pressure on the previous stage; once the stage is shut down the order is left to the recovery sweep
+    private RejectedExecutionHandler callerRunsUnlessShutDown() {
+        return (runnable, executor) -> {
+            if (!executor.isShutdown()) {
+                runnable.run();
+            } else if (runnable instanceof StageTask task) {
+                inPipeline.remove(task.orderId);
+                System.err.println("Order " + task.orderId + " left for the recovery sweep: pipeline is shutting down");
+            }
+        };
+    }
+
+    /**
+     * Stops the stages front to back, each once the stage feeding it has finished, so nothing
+     * handed on is refused. Orders still queued when a stage times out stay in the database
+     * for the recovery sweep of the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor stage : List.of(locateStage, reserveStage, scheduleStage)) {
+            stage.shutdown();
+            if (!stage.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                int left = stage.shutdownNow().size();
+                System.err.println("Order pipeline stage did not finish within " + shutdownTimeout
+                        + "; " + left + " queued orders left for the recovery sweep");
+            }
+        }
+    }
+
+    private record Step(ThreadPoolExecutor stage, Supplier<Step> work) {}
+
+    // One stage of one order: runs it, then hands the order to its next stage or lets it go
+    private final class StageTask implements Runnable {
+
+        private final Long orderId;
+        private final Step step;
+
+        StageTask(Long orderId, Step step) {
+            this.orderId = orderId;
+            this.step = step;
+        }
+
+        @Override
+        public void run() {
+            Step next = null;
+            try {
+                next = step.work().get();
+            } catch (Exception e) {
+                // A stage that throws leaves the order FAILED rather than stuck mid-pipeline
+                System.err.println("Order " + orderId + " failed in pipeline: " + e.getMessage());
+                orderService.markFailed(orderId);
+            }
+            if (next == null) {
+                inPipeline.remove(orderId);
+            } else {
+                next.stage().execute(new StageTask(orderId, next));
+            }
+        }
+    }
+}
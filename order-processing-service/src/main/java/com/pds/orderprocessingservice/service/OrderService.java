@@ -4,25 +4,52 @@ import com.pds.orderprocessingservice.model.ItemStatus;
 import com.pds.orderprocessingservice.model.Order;
 import com.pds.orderprocessingservice.model.OrderItem;
 import com.pds.orderprocessingservice.model.OrderStatus;
+import com.pds.orderprocessingservice.model.ShipmentOutbox;
 import com.pds.orderprocessingservice.repository.OrderRepository;
+import com.pds.orderprocessingservice.repository.ShipmentOutboxRepository;
+import com.pds.orderprocessingservice.web.AvailabilityRequest;
+import com.pds.orderprocessingservice.web.AvailabilityResponse;
+import com.pds.orderprocessingservice.web.BatchReservationRequest;
+import com.pds.orderprocessingservice.web.BatchReservationResponse;
+import com.pds.orderprocessingservice.web.ReservationIdsRequest;
+import com.pds.orderprocessingservice.web.ReservationUpdateResponse;
 import com.pds.orderprocessingservice.web.ShipmentItem;
 import com.pds.orderprocessingservice.web.ShipmentRequest;
 import com.pds.orderprocessingservice.web.StockReservationRequest;
 import com.pds.orderprocessingservice.web.StockReservationResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Map;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class OrderService {
 
     private final OrderRepository orderRepository;
     private final RestTemplate restTemplate;
+    private final FulfillmentEngine fulfillmentEngine;
+    private final ShipmentOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final CandidateWarehouseCache candidateCache;
+    private final FulfillmentPlanner planner;
+    private final DownstreamGuards guards;
+    private final OrderMetrics metrics;
 
     @Value("${service.location.url}")
     private String locationServiceUrl;
@@ -30,53 +57,219 @@ public class OrderService {
     @Value("${service.warehouse.url}")
     private String warehouseServiceUrl;
 
-    @Value("${service.logistics.url}")
-    private String logisticsServiceUrl;
+    // Reserve all items bound for one warehouse in a single /reserve-items call
+    @Value("${order.fulfillment.batch-reservations:true}")
+    private boolean batchReservations;
 
-    public OrderService(OrderRepository orderRepository, RestTemplate restTemplate) {
+    // Plan warehouses from a stock snapshot first, to minimize split shipments
+    @Value("${order.planner.enabled:true}")
+    private boolean plannerEnabled;
+
+    // How long one workflow stage may hold an order before the recovery sweep can take it over
+    @Value("${order.pipeline.claim-ttl:PT5M}")
+    private Duration claimTtl;
+
+    public OrderService(OrderRepository orderRepository, RestTemplate restTemplate,
+                        FulfillmentEngine fulfillmentEngine, ShipmentOutboxRepository outboxRepository,
+                        ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                        CandidateWarehouseCache candidateCache, FulfillmentPlanner planner,
+                        DownstreamGuards guards, OrderMetrics metrics) {
         this.orderRepository = orderRepository;
         this.restTemplate = restTemplate;
+        this.fulfillmentEngine = fulfillmentEngine;
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.candidateCache = candidateCache;
+        this.planner = planner;
+        this.guards = guards;
+        this.metrics = metrics;
     }
 
     /**
+     * Runs the whole workflow on the caller's thread (synchronous intake mode).
      * 1. Saves the initial order.
      * 2. Coordinates with Location Service for potential warehouses.
      * 3. Applies load balancing to choose the best warehouse.
      * 4. Coordinates with Warehouse Service to reserve stock.
+     * Each stage commits on its own, so no DB transaction stays open across remote calls.
      */
-    @Transactional
     public Order processNewOrder(Order newOrder) {
-        // 1. Save Initial State & Prepare Items (Must ensure items have 'order' set)
+        Order savedOrder = receiveOrder(newOrder);
+        Long orderId = savedOrder.getId();
+
+        List<CandidateWarehouse> candidateWarehouses = locateWarehouses(orderId);
+        if (!candidateWarehouses.isEmpty() && reserveStock(orderId, candidateWarehouses)) {
+            scheduleDelivery(orderId);
+        }
+
+        return orderRepository.findWithItemsById(orderId).orElse(savedOrder);
+    }
+
+    // --- Workflow Stages (also driven one by one by the OrderPipeline) ---
+    // Stages 1-3 each claim the order in the status they expect (a compare-and-set with a lease) and
+    // skip it if the claim fails, so a stage never runs twice for one order, whoever drives it.
+
+    /**
+     * Stage 0: Save Initial State & Prepare Items (Must ensure items have 'order' set)
+     */
+    @Transactional
+    public Order receiveOrder(Order newOrder) {
+        Timer.Sample sample = metrics.start();
         newOrder.setStatus(OrderStatus.RECEIVED);
         newOrder.getItems().forEach(item -> item.setOrder(newOrder)); // Link children to parent
-        Order savedOrder = orderRepository.save(newOrder); // Saves items due to CascadeType.ALL
+        Timer.Sample save = metrics.start();
+        Order saved = orderRepository.save(newOrder); // Saves items due to CascadeType.ALL
+        metrics.dbWrite(save, "insert_order");
+        metrics.stage(sample, "receive", "ok");
+        return saved;
+    }
+
+    /**
+     * Stage 1: Find Potential Warehouses (Ranked by Distance - Priority #1).
+     * Moves the order to ASSIGNED, or FAILED when no warehouse can serve the address.
+     * @return The ranked candidate warehouses (empty if the order failed).
+     */
+    public List<CandidateWarehouse> locateWarehouses(Long orderId) {
+        String claim = claim(orderId, OrderStatus.RECEIVED, OrderStatus.ASSIGNED);
+        if (claim == null) {
+            return List.of();
+        }
+        Timer.Sample sample = metrics.start();
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order " + orderId + " not found"));
 
-        // 2. Coordinate: Find Potential Warehouses (Ranked by Distance - Priority #1)
-        List<Long> candidateWarehouses = findCandidateWarehouses(savedOrder.getDeliveryAddress());
+        List<CandidateWarehouse> candidateWarehouses = findRankedWarehouses(order.getDeliveryAddress());
+        if (!complete(orderId, claim, candidateWarehouses.isEmpty() ? OrderStatus.FAILED : OrderStatus.ASSIGNED)) {
+            return List.of();
+        }
+        metrics.stage(sample, "locate", candidateWarehouses.isEmpty() ? "failed" : "ok");
+        return candidateWarehouses;
+    }
 
-        if (candidateWarehouses.isEmpty()) {
-            savedOrder.setStatus(OrderStatus.FAILED);
-        } else {
-            // 3. Fulfill Items (Checks Stock Availability - Priority #2)
-            boolean allItemsReserved = fulfillOrder(savedOrder.getItems(), candidateWarehouses);
-
-            if (allItemsReserved) {
-                // Overall status reflects successful reservation
-                savedOrder.setStatus(OrderStatus.STOCK_RESERVED);
-                // The savedOrder now implicitly knows the assigned warehouses via items list
-
-                scheduleShipment(savedOrder);
-                savedOrder.setStatus(OrderStatus.SCHEDULED_FOR_DELIVERY);
-            } else {
-                savedOrder.setStatus(OrderStatus.FAILED);
-                //The items list will show which items failed (ItemStatus.NOT_AVAILABLE)
+    /**
+     * Stage 2: Fulfill Items (Checks Stock Availability - Priority #2).
+     * The items list will show which items failed (ItemStatus.NOT_AVAILABLE)
+     * and which ship from a secondary warehouse (ItemStatus.SPLIT_SHIPMENT).
+     * Warehouse holds are confirmed when every item was reserved, and released otherwise,
+     * so a failed order does not keep stock from other orders until the holds expire.
+     * If the claim on the order was lost meanwhile (the stage outlived claim-ttl), the holds are given
+     * back and nothing is saved: whoever holds the order now reserves for it.
+     * @return True if every item was reserved and the order is STOCK_RESERVED.
+     */
+    public boolean reserveStock(Long orderId, List<CandidateWarehouse> candidateWarehouses) {
+        String claim = claim(orderId, OrderStatus.ASSIGNED);
+        if (claim == null) {
+            return false;
+        }
+        Timer.Sample sample = metrics.start();
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order " + orderId + " not found"));
+
+        boolean allItemsReserved = fulfillOrder(order.getItems(), candidateWarehouses)
+                && confirmReservations(order.getItems());
+        if (!allItemsReserved) {
+            releaseReservations(order.getItems());
+        }
+        OrderStatus next = allItemsReserved ? OrderStatus.STOCK_RESERVED : OrderStatus.FAILED;
+        order.setStatus(next);
+        order.setClaimToken(null);
+        order.setClaimedUntil(null);
+
+        Timer.Sample save = metrics.start();
+        boolean saved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (orderRepository.completeClaim(orderId, claim, next) == 0) {
+                return false;
             }
+            orderRepository.save(order);
+            return true;
+        }));
+        metrics.dbWrite(save, "save_reservations");
+        if (!saved) {
+            System.err.println("Order " + orderId + " was claimed by another run while reserving; releasing its holds");
+            releaseReservations(order.getItems());
+            return false;
+        }
+        if (!allItemsReserved) {
+            metrics.orderOutcome(OrderStatus.FAILED);
+        }
+        metrics.stage(sample, "reserve", allItemsReserved ? "ok" : "failed");
+        return allItemsReserved;
+    }
+
+    /**
+     * Stage 3: Hand the reserved items to the Logistics Service.
+     * The shipment is written to the outbox in the same transaction that marks the order
+     * SCHEDULED_FOR_DELIVERY, and only if the claim still holds, so an order gets one outbox row.
+     * ShipmentOutboxDispatcher delivers it to Logistics afterwards.
+     */
+    public void scheduleDelivery(Long orderId) {
+        String claim = claim(orderId, OrderStatus.STOCK_RESERVED);
+        if (claim == null) {
+            return;
         }
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order " + orderId + " not found"));
 
-        return orderRepository.save(savedOrder);
+        Timer.Sample sample = metrics.start();
+        boolean scheduled = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (orderRepository.completeClaim(orderId, claim, OrderStatus.SCHEDULED_FOR_DELIVERY) == 0) {
+                return false;
+            }
+            scheduleShipment(order);
+            return true;
+        }));
+        if (!scheduled) {
+            return;
+        }
+        metrics.orderOutcome(OrderStatus.SCHEDULED_FOR_DELIVERY);
+        metrics.stage(sample, "schedule", "ok");
     }
 
+    // Used when a stage throws or the pipeline cannot accept the order; gives back any stock it still holds
+    public void markFailed(Long orderId) {
+        orderRepository.findWithItemsById(orderId).ifPresent(order -> {
+            if (releaseReservations(order.getItems())) {
+                orderRepository.save(order);
+            }
+        });
+        updateStatus(orderId, OrderStatus.FAILED);
+    }
+
+    // Timed status write; FAILED is a terminal outcome
+    private void updateStatus(Long orderId, OrderStatus status) {
+        Timer.Sample sample = metrics.start();
+        orderRepository.updateStatus(orderId, status);
+        metrics.dbWrite(sample, "update_status");
+        if (status == OrderStatus.FAILED) {
+            metrics.orderOutcome(status);
+        }
+    }
 
+    // Takes the order for one stage if it is in one of the expected statuses and nobody holds it; null otherwise
+    private String claim(Long orderId, OrderStatus... expected) {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        return orderRepository.claim(orderId, List.of(expected), token, now.plus(claimTtl), now) == 1 ? token : null;
+    }
+
+    // Timed status write that ends a claim; false if the claim was lost meanwhile
+    private boolean complete(Long orderId, String claim, OrderStatus status) {
+        Timer.Sample sample = metrics.start();
+        boolean completed = orderRepository.completeClaim(orderId, claim, status) == 1;
+        metrics.dbWrite(sample, "update_status");
+        if (completed && status == OrderStatus.FAILED) {
+            metrics.orderOutcome(status);
+        }
+        return completed;
+    }
+
+    /**
+     * How long a claim taken at insert (bulk chunks) keeps the recovery sweep away from the order.
+     */
+    public Duration getClaimTtl() {
+        return claimTtl;
+    }
 
     public Optional<Order> getOrderById(Long id) {
         return orderRepository.findById(id);
@@ -86,9 +279,34 @@ public class OrderService {
 
     /**
      * Calls Location Service to get a list of nearby warehouses.
-     * Simulates an HTTP call.
+     * @return Warehouse IDs ranked by distance (empty if the lookup failed).
      */
     public List<Long> findCandidateWarehouses(String address) {
+        return findRankedWarehouses(address).stream()
+                .map(CandidateWarehouse::getId)
+                .toList();
+    }
+
+    /**
+     * Ranked warehouses with their distances, served from the local CandidateWarehouseCache
+     * when the same address was ranked recently.
+     */
+    public List<CandidateWarehouse> findRankedWarehouses(String address) {
+        Timer.Sample sample = metrics.start();
+        List<CandidateWarehouse> cached = candidateCache.get(address);
+        if (cached != null) {
+            metrics.locationLookup(sample, "cache", "found");
+            return cached;
+        }
+
+        long generation = candidateCache.generation();
+        List<CandidateWarehouse> ranked = fetchRankedWarehouses(address);
+        candidateCache.put(address, ranked, generation);
+        metrics.locationLookup(sample, "location-service", ranked.isEmpty() ? "empty" : "found");
+        return ranked;
+    }
+
+    private List<CandidateWarehouse> fetchRankedWarehouses(String address) {
 
         // 1. makes a url for the get request
         String url = locationServiceUrl + "/api/warehouses/ranked/async?address=" + address;
@@ -96,17 +314,19 @@ public class OrderService {
         try {
             // Expect a Map where the value is a List, which contains Maps.
             // Use a raw Map here for simplicity
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            Map<String, Object> response = guards.forService(DownstreamGuards.LOCATION)
+                    .call(() -> restTemplate.getForObject(url, Map.class));
 
             // --- Response Parsing and Extraction ---
             if (response != null && response.containsKey("ranked_warehouses")) {
                 // Unchecked cast is necessary here since RestTemplate returns a raw List
                 List<Map<String, Object>> rankedWarehouses = (List<Map<String, Object>>) response.get("ranked_warehouses");
 
-                // 3. Extract only the IDs from the ranked list
-                // Use Integer.toLong() instead of longValue() for clarity (since JSON numbers are usually Integer)
+                // 3. Extract the IDs and distances from the ranked list (JSON numbers may be Integer or Long)
                 return rankedWarehouses.stream()
-                        .map(warehouseInfo -> ((Integer) warehouseInfo.get("id")).longValue())
+                        .map(warehouseInfo -> new CandidateWarehouse(
+                                ((Number) warehouseInfo.get("id")).longValue(),
+                                warehouseInfo.get("distanceKm") instanceof Number km ? km.doubleValue() : 0.0))
                         .toList();
             }
             return List.of();
@@ -118,52 +338,61 @@ public class OrderService {
         }
     }
 
-
     /**
-     * Calls Warehouse Service to reserve stock atomically.
-     * Simulates an HTTP call.
+     * One keyset page of orders (newest first), see OrderRepositoryCustom.findPage.
      */
-
-    public List<Order> findAll() {
-
-        return orderRepository.findAll();
+    public List<Order> findPage(Long customerId, OrderStatus status,
+                                LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+        return orderRepository.findPage(customerId, status, cursorCreatedAt, cursorId, limit);
     }
 
     /**
      * Attempts to fulfill all items by checking ranked warehouses in order.
+     * With the planner enabled, a stock snapshot is used to pick the fewest (then nearest)
+     * warehouses that cover the order, and each item tries its planned warehouse first.
+     * Otherwise items are grouped per warehouse and reserved with one batch call per warehouse,
+     * or reserved concurrently one by one when batch reservations are disabled.
+     * Either way an item whose first choice is out of stock goes to the next ranked warehouse.
+     * Warehouses with an open circuit are skipped up front.
      * @return True if all items were successfully reserved, false otherwise.
      */
-    private boolean fulfillOrder(List<OrderItem> items, List<Long> candidateWarehouseIds) {
-
-        for (OrderItem item : items) {
-
-            // 1. Check warehouses one by one for the current item
-            boolean itemReserved = false;
-
-            for (Long warehouseId : candidateWarehouseIds) {
+    private boolean fulfillOrder(List<OrderItem> items, List<CandidateWarehouse> rankedWarehouses) {
+        List<CandidateWarehouse> candidateWarehouses = reachable(rankedWarehouses);
+        List<Long> candidateWarehouseIds = candidateWarehouses.stream().map(CandidateWarehouse::getId).toList();
+
+        List<Long> plan = null;
+        if (plannerEnabled && batchReservations) {
+            StockAvailability availability = fetchAvailability(items, candidateWarehouseIds);
+            plan = availability == null ? null : planner.plan(items, candidateWarehouses, availability);
+        }
 
-                // 2. uses the internal method checkAndReserveStock to call warehouse, stores response
-                StockReservationResponse response = checkAndReserveStock(warehouseId, item);
+        FulfillmentReport report;
+        if (plan != null) {
+            report = fulfillmentEngine.reserveGrouped(items, FulfillmentPlanner.plannedFirst(plan, candidateWarehouseIds), this::checkAndReserveStock,
+                    this::releaseReservationIds);
+        } else if (batchReservations) {
+            report = fulfillmentEngine.reserveBatched(items, candidateWarehouseIds, this::checkAndReserveStock, this::releaseReservationIds);
+        } else {
+            report = fulfillmentEngine.reserveAll(items, candidateWarehouseIds, this::checkAndReserveStock);
+        }
+        FulfillmentPlanner.markSplitShipments(items);
+        // Only the outcomes worth a look; every order's timings are in the metrics
+        boolean split = items.stream().anyMatch(item -> item.getItemStatus() == ItemStatus.SPLIT_SHIPMENT);
+        if (!report.allReserved() || split) {
+            System.out.println(report);
+        }
 
-                if (response != null && response.isSuccess()) {
-                    // SUCCESS: Stock found and reserved at this warehouse
-                    item.setFulfilledByWarehouseId(warehouseId);
-                    item.setItemStatus(ItemStatus.RESERVED);
-                    itemReserved = true;
-                    break; // Move to the next item in the order
-                }
-            }
+        // If any item couldn't be reserved at ANY candidate warehouse the entire order fails
+        return report.allReserved();
+    }
 
-            // 3. If the item couldn't be reserved at ANY candidate warehouse
-            if (!itemReserved) {
-                item.setItemStatus(ItemStatus.NOT_AVAILABLE);
-                // In a real system, this would trigger backorder or customer notification
-                // We return false, causing the entire order to fail for simplicity.
-                return false;
-            }
-        }
-        // All items were successfully reserved across the candidate warehouses
-        return true;
+    /**
+     * Drops warehouses whose circuit is open, so no time is spent planning for or calling them.
+     */
+    public List<CandidateWarehouse> reachable(List<CandidateWarehouse> rankedWarehouses) {
+        return rankedWarehouses.stream()
+                .filter(warehouse -> guards.isWarehouseAvailable(warehouse.getId()))
+                .toList();
     }
 
     // Helper method to call the Warehouse Service for a single item
@@ -179,25 +408,166 @@ public class OrderService {
                 item.getQuantity()
         );
 
+        Timer.Sample sample = metrics.start();
         try {
             // 2. POST the request and expect a structured response (DTO)
-            return restTemplate.postForObject(url, payload, StockReservationResponse.class);
+            StockReservationResponse response = guards.forWarehouse(warehouseId)
+                    .call(() -> restTemplate.postForObject(url, payload, StockReservationResponse.class));
+            metrics.warehouseCall(sample, "item", warehouseId, response != null && response.isSuccess() ? "reserved" : "rejected");
+            return response;
+        } catch (HttpClientErrorException.Conflict e) {
+            // 409: the warehouse turned the item down, which is an answer rather than a failed call
+            metrics.warehouseCall(sample, "item", warehouseId, "rejected");
+            return new StockReservationResponse(false);
         } catch (Exception e) {
+            metrics.warehouseCall(sample, "item", warehouseId, failureOutcome(e));
             System.err.println("Warehouse " + warehouseId + " call failed for item " + item.getProductCode() + ": " + e.getMessage());
             return new StockReservationResponse(false); // Return failure DTO on exception
         }
     }
 
 
+    // Helper method to call the Warehouse Service for every item bound for one warehouse
+    BatchReservationResponse checkAndReserveStock(Long warehouseId, List<OrderItem> items) {
+        //calls the http://localhost:8081/reserve-items
+        String url = warehouseServiceUrl + "/reserve-items";
+
+        // 1. Construct the payload: one line per item, all for the same warehouse
+        BatchReservationRequest payload = new BatchReservationRequest(
+                warehouseId,
+                items.stream()
+                        .map(item -> new BatchReservationRequest.Line(item.getProductCode(), item.getQuantity()))
+                        .toList()
+        );
+
+        Timer.Sample sample = metrics.start();
+        try {
+            BatchReservationResponse response = guards.forWarehouse(warehouseId)
+                    .call(() -> restTemplate.postForObject(url, payload, BatchReservationResponse.class));
+            metrics.warehouseCall(sample, "batch", warehouseId, response != null && response.isSuccess() ? "reserved" : "rejected");
+            return response;
+        } catch (HttpClientErrorException.Conflict e) {
+            // 409 carries the per-line results of the rejected batch
+            metrics.warehouseCall(sample, "batch", warehouseId, "rejected");
+            BatchReservationResponse rejected = e.getResponseBodyAs(BatchReservationResponse.class);
+            return rejected != null ? rejected : new BatchReservationResponse(false);
+        } catch (Exception e) {
+            metrics.warehouseCall(sample, "batch", warehouseId, failureOutcome(e));
+            System.err.println("Warehouse " + warehouseId + " batch call failed for " + items.size() + " items: " + e.getMessage());
+            return new BatchReservationResponse(false);
+        }
+    }
+
+    /**
+     * Confirms the warehouse holds of every reserved item.
+     * @return False if any hold could not be confirmed (expired, or the call failed).
+     */
+    boolean confirmReservations(List<OrderItem> items) {
+        List<Long> ids = heldReservationIds(items);
+        return ids.isEmpty() || confirmReservationIds(ids).isEmpty();
+    }
+
+    /**
+     * Confirms many holds with one call.
+     * @return The IDs that were NOT confirmed (all of them if the call failed).
+     */
+    Set<Long> confirmReservationIds(List<Long> reservationIds) {
+        ReservationUpdateResponse response = updateReservations("/reservations/confirm", reservationIds);
+        return response == null ? Set.copyOf(reservationIds) : Set.copyOf(response.getRejectedIds());
+    }
+
+    /**
+     * Releases the holds of every reserved item and resets those items to PENDING.
+     * If the call fails the holds still lapse after the Warehouse Service's hold TTL.
+     * @return True if any item was changed.
+     */
+    boolean releaseReservations(List<OrderItem> items) {
+        List<Long> ids = heldReservationIds(items);
+        if (ids.isEmpty()) {
+            return false;
+        }
+        releaseReservationIds(ids);
+        for (OrderItem item : items) {
+            if (item.getReservationId() != null && item.getItemStatus().isReserved()) {
+                item.setItemStatus(ItemStatus.PENDING);
+                item.setFulfilledByWarehouseId(null);
+                item.setReservationId(null);
+            }
+        }
+        return true;
+    }
+
+    void releaseReservationIds(Collection<Long> reservationIds) {
+        updateReservations("/reservations/release", List.copyOf(reservationIds));
+    }
+
+    private List<Long> heldReservationIds(List<OrderItem> items) {
+        return items.stream()
+                .filter(item -> item.getReservationId() != null && item.getItemStatus().isReserved())
+                .map(OrderItem::getReservationId)
+                .toList();
+    }
+
+    // Calls the Warehouse Service to confirm or release holds; null if the call failed
+    private ReservationUpdateResponse updateReservations(String path, List<Long> reservationIds) {
+        //calls the http://localhost:8081/reservations/confirm or /reservations/release
+        String url = warehouseServiceUrl + path;
+        ReservationIdsRequest payload = new ReservationIdsRequest(reservationIds);
+
+        try {
+            return guards.forService(DownstreamGuards.WAREHOUSE)
+                    .call(() -> restTemplate.postForObject(url, payload, ReservationUpdateResponse.class));
+        } catch (Exception e) {
+            System.err.println("Warehouse " + path + " failed for " + reservationIds.size() + " reservations: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // "skipped" when the guard did not even attempt the call (circuit open / bulkhead full)
+    private String failureOutcome(Exception e) {
+        return e instanceof DownstreamUnavailableException ? "skipped" : "error";
+    }
+
+    /**
+     * Calls Warehouse Service for the available quantity of every item's product in every candidate warehouse.
+     * @return The stock snapshot, or null if the call failed (callers then reserve greedily).
+     */
+    StockAvailability fetchAvailability(List<OrderItem> items, List<Long> warehouseIds) {
+        //calls the http://localhost:8081/availability
+        String url = warehouseServiceUrl + "/availability";
+
+        AvailabilityRequest payload = new AvailabilityRequest(
+                items.stream().map(OrderItem::getProductCode).distinct().toList(),
+                warehouseIds
+        );
+
+        try {
+            AvailabilityResponse response = guards.forService(DownstreamGuards.WAREHOUSE)
+                    .call(() -> restTemplate.postForObject(url, payload, AvailabilityResponse.class));
+            if (response == null) {
+                return null;
+            }
+            StockAvailability availability = new StockAvailability();
+            for (AvailabilityResponse.Entry entry : response.getAvailability()) {
+                availability.put(entry.getWarehouseId(), entry.getProductCode(), entry.getAvailableQuantity());
+            }
+            return availability;
+        } catch (Exception e) {
+            System.err.println("Error calling Warehouse Service for availability: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
-     * Prepares data and calls the Logistics Service to schedule the shipment.
+     * Prepares data and queues the call to the Logistics Service in the shipment outbox.
      * Only sends the warehouse ID, relying on Logistics to query Location for the address.
+     * Must run inside the transaction that updates the order status.
      */
-    private void scheduleShipment(Order order) {
+    void scheduleShipment(Order order) {
 
         // Collect unique warehouse IDs and prepare ShipmentItems
         List<ShipmentItem> shipmentItems = order.getItems().stream()
-                .filter(item -> item.getItemStatus() == ItemStatus.RESERVED)
+                .filter(item -> item.getItemStatus().isReserved())
                 .map(item -> {
                     // 1. Create ShipmentItem DTO with only the ID
                     return new ShipmentItem(
@@ -221,14 +591,13 @@ public class OrderService {
                 shipmentItems
         );
 
-        // 3. Call Logistics Service
-        String url = logisticsServiceUrl + "/assignment";
+        // 3. Queue the Logistics Service call; the dispatcher sends it with retries
+        Timer.Sample sample = metrics.start();
         try {
-            restTemplate.postForObject(url, payload, String.class);
-            System.out.println("Shipment successfully scheduled for Order ID " + order.getId());
-
-        } catch (Exception e) {
-            System.err.println("Error calling Logistics Service: " + e.getMessage());
+            outboxRepository.save(new ShipmentOutbox(order.getId(), objectMapper.writeValueAsString(payload)));
+            metrics.shipmentScheduling(sample);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize shipment for order " + order.getId(), e);
         }
     }
 
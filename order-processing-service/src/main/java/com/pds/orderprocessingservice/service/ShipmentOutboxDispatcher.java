@@ -0,0 +1,137 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.OutboxStatus;
+import com.pds.orderprocessingservice.model.ShipmentOutbox;
+import com.pds.orderprocessingservice.repository.ShipmentOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Drains the shipment outbox to the Logistics Service.
+ * Rows are sent oldest first in batches. A send that fails with a 5xx or an I/O error is retried
+ * with exponential backoff until the attempt limit, after which the row is parked as FAILED so it
+ * can be inspected instead of silently lost. A 4xx would fail the same way every time, so it parks
+ * the row as FAILED right away.
+ * Any number of instances can drain the same outbox: each row is claimed before it is sent (a
+ * lease of claim-ttl), and its outcome is written right after its send, only if the lease still holds.
+ */
+@Component
+public class ShipmentOutboxDispatcher {
+
+    private final ShipmentOutboxRepository outboxRepository;
+    private final RestTemplate restTemplate;
+    private final DownstreamGuard logisticsGuard;
+
+    @Value("${service.logistics.url}")
+    private String logisticsServiceUrl;
+
+    @Value("${order.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${order.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${order.outbox.claim-ttl:PT1M}")
+    private Duration claimTtl;
+
+    public ShipmentOutboxDispatcher(ShipmentOutboxRepository outboxRepository, RestTemplate restTemplate,
+                                    DownstreamGuards guards) {
+        this.outboxRepository = outboxRepository;
+        this.restTemplate = restTemplate;
+        this.logisticsGuard = guards.forService(DownstreamGuards.LOGISTICS);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        List<ShipmentOutbox> batch;
+        boolean allAttempted;
+        do {
+            // While the Logistics circuit is open, rows just wait for the next poll
+            if (!logisticsGuard.isCallPermitted()) {
+                return;
+            }
+            batch = outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+
+            allAttempted = true;
+            for (ShipmentOutbox entry : batch) {
+                LocalDateTime now = LocalDateTime.now();
+                String claim = UUID.randomUUID().toString();
+                if (outboxRepository.claim(entry.getId(), claim, now.plus(claimTtl), now) == 0) {
+                    continue; // another dispatcher has it
+                }
+                allAttempted &= send(entry);
+                // Written per row, so a crash mid-batch cannot resend the rows already sent
+                if (outboxRepository.completeClaim(entry.getId(), claim, entry.getStatus(), entry.getAttempts(),
+                        entry.getNextAttemptAt(), entry.getLastError()) == 0) {
+                    System.err.println("Lost the claim on shipment outbox row " + entry.getId() + " while sending it");
+                }
+            }
+        } while (allAttempted && batch.size() == batchSize); // keep going while there is a full backlog
+    }
+
+    // @return False if the call was not attempted (circuit open / bulkhead full); the row is left due as it was
+    private boolean send(ShipmentOutbox entry) {
+        // Logistics only maps POST /assignment/assign, taking an OrderRequest (orderId, pickup coordinates,
+        // volume) the order service has no data for yet; until that contract is agreed these calls get a 4xx
+        String url = logisticsServiceUrl + "/assignment";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        try {
+            logisticsGuard.call(() -> restTemplate.postForObject(url, new HttpEntity<>(entry.getPayload(), headers), String.class));
+            entry.setStatus(OutboxStatus.SENT);
+            entry.setLastError(null);
+            System.out.println("Shipment successfully scheduled for Order ID " + entry.getOrderId());
+
+        } catch (DownstreamUnavailableException e) {
+            return false;
+        } catch (HttpClientErrorException e) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setLastError(truncate(e.getMessage()));
+            entry.setStatus(OutboxStatus.FAILED);
+            System.err.println("Logistics Service rejected shipment for Order ID " + entry.getOrderId() + ": " + e.getMessage());
+        } catch (Exception e) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setLastError(truncate(e.getMessage()));
+
+            if (entry.getAttempts() >= maxAttempts) {
+                entry.setStatus(OutboxStatus.FAILED);
+                System.err.println("Giving up on shipment for Order ID " + entry.getOrderId() + ": " + e.getMessage());
+            } else {
+                entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis(entry.getAttempts()))));
+                System.err.println("Error calling Logistics Service (attempt " + entry.getAttempts() + "): " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    // initial * 2^(attempts-1), capped
+    private long backoffMillis(int attempts) {
+        long backoff = initialBackoffMs << Math.min(attempts - 1, 20);
+        return Math.min(backoff, maxBackoffMs);
+    }
+
+    private String truncate(String message) {
+        if (message == null) return null;
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -0,0 +1,32 @@
+package com.pds.orderprocessingservice.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Point-in-time stock matrix (warehouse -> product -> available quantity) fetched from
+ * the Warehouse Service for planning. Missing pairs have no stock. Planning deducts what
+ * it assigns, so several orders can be planned against one snapshot.
+ */
+public class StockAvailability {
+
+    private final Map<Long, Map<Long, Long>> byWarehouse = new HashMap<>();
+
+    public void put(Long warehouseId, Long productCode, long availableQuantity) {
+        byWarehouse.computeIfAbsent(warehouseId, w -> new HashMap<>()).put(productCode, availableQuantity);
+    }
+
+    public long get(Long warehouseId, Long productCode) {
+        return byWarehouse.getOrDefault(warehouseId, Map.of()).getOrDefault(productCode, 0L);
+    }
+
+    public void deduct(Long warehouseId, Long productCode, long quantity) {
+        put(warehouseId, productCode, get(warehouseId, productCode) - quantity);
+    }
+
+    public StockAvailability copy() {
+        StockAvailability copy = new StockAvailability();
+        byWarehouse.forEach((warehouseId, products) -> copy.byWarehouse.put(warehouseId, new HashMap<>(products)));
+        return copy;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// DTO used for the POST /availability body: which products, in which warehouses
+@Getter
+public class AvailabilityRequest {
+
+    private final List<Long> productCodes;
+    private final List<Long> warehouseIds;
+
+    public AvailabilityRequest(List<Long> productCodes, List<Long> warehouseIds) {
+        this.productCodes = productCodes;
+        this.warehouseIds = warehouseIds;
+    }
+}
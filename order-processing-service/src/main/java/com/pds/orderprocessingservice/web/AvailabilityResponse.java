@@ -0,0 +1,24 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// DTO used for the POST /availability response body
+@Data
+@NoArgsConstructor // Required by Jackson for deserialization from JSON
+public class AvailabilityResponse {
+
+    // One entry per (warehouse, product) pair that has stock records; missing pairs have none
+    private List<Entry> availability = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Entry {
+        private Long warehouseId;
+        private Long productCode;
+        private long availableQuantity;
+    }
+}
@@ -0,0 +1,29 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// DTO used for the POST /reserve-items body: every line destined for one warehouse
+@Getter
+public class BatchReservationRequest {
+
+    private final Long warehouseId;
+    private final List<Line> items;
+
+    public BatchReservationRequest(Long warehouseId, List<Line> items) {
+        this.warehouseId = warehouseId;
+        this.items = items;
+    }
+
+    @Getter
+    public static class Line {
+        private final Long productCode;
+        private final int quantity;
+
+        public Line(Long productCode, int quantity) {
+            this.productCode = productCode;
+            this.quantity = quantity;
+        }
+    }
+}
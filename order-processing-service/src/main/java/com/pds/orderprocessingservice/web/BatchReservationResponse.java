@@ -0,0 +1,37 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// DTO used for the POST /reserve-items response body
+@Data
+@NoArgsConstructor // Required by Jackson for deserialization from JSON
+public class BatchReservationResponse {
+
+    // True only if every line was reserved (the batch is all-or-nothing)
+    private boolean success;
+
+    // One result per request line, in request order
+    private List<LineResult> items = new ArrayList<>();
+
+    /**
+     * Constructor for a failure that has no per-line detail (e.g. the call itself failed).
+     */
+    public BatchReservationResponse(boolean success) {
+        this.success = success;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class LineResult {
+        private Long productCode;
+        private int quantity;
+        // On a rejected batch: whether this line alone could have been reserved
+        private boolean success;
+        private Long reservationId;
+        private String message;
+    }
+}
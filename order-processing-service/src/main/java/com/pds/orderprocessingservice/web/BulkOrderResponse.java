@@ -0,0 +1,55 @@
+package com.pds.orderprocessingservice.web;
+
+import com.pds.orderprocessingservice.model.OrderStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// DTO returned by POST /orders/bulk: totals plus one result per submitted order, in input order
+@Getter
+public class BulkOrderResponse {
+
+    private int received;
+    private int scheduled;
+    private int failed;
+    private int rejected; // invalid orders, never saved
+    private final List<Result> results = new ArrayList<>();
+
+    // Set if the input could not be read to the end; results cover the orders before that point
+    @Setter
+    private String error;
+
+    public void add(Result result) {
+        results.add(result);
+        received++;
+        if (result.getStatus() == OrderStatus.FAILED) {
+            failed++;
+        } else {
+            scheduled++;
+        }
+    }
+
+    // An order that failed validation: no orderId or status, the message says why
+    public void reject(int index, String message) {
+        results.add(new Result(index, null, null, message));
+        received++;
+        rejected++;
+    }
+
+    @Getter
+    public static class Result {
+        private final int index; // position in the submitted array / NDJSON stream
+        private final Long orderId;
+        private final OrderStatus status;
+        private final String message;
+
+        public Result(int index, Long orderId, OrderStatus status, String message) {
+            this.index = index;
+            this.orderId = orderId;
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
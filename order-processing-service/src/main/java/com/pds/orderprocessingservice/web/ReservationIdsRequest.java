@@ -0,0 +1,16 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// DTO used for the POST /reservations/confirm and /reservations/release bodies
+@Getter
+public class ReservationIdsRequest {
+
+    private final List<Long> reservationIds;
+
+    public ReservationIdsRequest(List<Long> reservationIds) {
+        this.reservationIds = reservationIds;
+    }
+}
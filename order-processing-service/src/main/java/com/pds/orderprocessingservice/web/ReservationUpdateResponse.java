@@ -0,0 +1,19 @@
+package com.pds.orderprocessingservice.web;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// DTO used for the POST /reservations/confirm and /reservations/release response bodies
+@Data
+@NoArgsConstructor // Required by Jackson for deserialization from JSON
+public class ReservationUpdateResponse {
+
+    // Reservations moved to the requested state
+    private List<Long> updatedIds = new ArrayList<>();
+
+    // Reservations that could not be (e.g. a hold that already expired and was released)
+    private List<Long> rejectedIds = new ArrayList<>();
+}
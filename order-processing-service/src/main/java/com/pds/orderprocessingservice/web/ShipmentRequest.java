@@ -12,7 +12,9 @@ import java.util.List;
         private List<ShipmentItem> items;
 
     public ShipmentRequest(Long id, String deliveryAddress, List<ShipmentItem> shipmentItems) {
+        this.orderId = id;
+        this.customerDeliveryAddress = deliveryAddress;
+        this.items = shipmentItems;
     }
 
 }
-
@@ -1,13 +1,34 @@
+-- Ids come from pooled sequences (emulated with tables on MySQL) so inserts can be JDBC-batched
+-- IdSequenceInitializer moves next_val past the existing ids at every startup
+CREATE TABLE IF NOT EXISTS customer_order_seq (
+    next_val BIGINT
+);
+INSERT INTO customer_order_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM customer_order_seq);
+
+CREATE TABLE IF NOT EXISTS order_item_seq (
+    next_val BIGINT
+);
+INSERT INTO order_item_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM order_item_seq);
+
 CREATE TABLE IF NOT EXISTS customer_order (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY,
     customer_id BIGINT NOT NULL,
     delivery_address VARCHAR(255) NOT NULL,
     status VARCHAR(50) NOT NULL,
-    created_at DATETIME
+    created_at DATETIME,
+
+    -- Lease of the workflow stage (or bulk chunk) working on the order; see OrderService.claim
+    claim_token VARCHAR(36),
+    claimed_until DATETIME,
+
+    -- Keyset pagination by (created_at, id), optionally filtered by customer or status
+    INDEX idx_order_created_id (created_at, id),
+    INDEX idx_order_customer_created_id (customer_id, created_at, id),
+    INDEX idx_order_status_created_id (status, created_at, id)
 );
 
 CREATE TABLE IF NOT EXISTS order_item (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY,
 
     -- Foreign Key linking back to the parent order
     order_id BIGINT NOT NULL,
@@ -18,8 +39,49 @@ CREATE TABLE IF NOT EXISTS order_item (
     -- Tracks which warehouse fulfilled this specific item (Split Shipment)
     fulfilled_by_warehouse_id BIGINT,
 
+    -- Warehouse Service hold for this item (confirmed or released with the order's outcome)
+    reservation_id BIGINT,
+
     -- Tracks the reservation status for this item (PENDING, RESERVED, NOT_AVAILABLE)
     item_status VARCHAR(50) NOT NULL,
 
     FOREIGN KEY (order_id) REFERENCES customer_order(id)
-);
\ No newline at end of file
+);
+
+-- Pending shipment-scheduling calls to the Logistics Service (transactional outbox)
+CREATE TABLE IF NOT EXISTS shipment_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+
+    -- JSON body of the ShipmentRequest
+    payload TEXT NOT NULL,
+
+    -- PENDING, SENT, FAILED
+    status VARCHAR(50) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME,
+    last_error VARCHAR(255),
+
+    -- Dispatcher sending the row right now; its lease ends at next_attempt_at
+    claim_token VARCHAR(36),
+    created_at DATETIME,
+
+    INDEX idx_shipment_outbox_due (status, next_attempt_at),
+    FOREIGN KEY (order_id) REFERENCES customer_order(id)
+);
+
+-- Responses of POST /orders calls made with an Idempotency-Key header, replayed on retries
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+
+    -- SHA-256 of customer, address and items; a reused key must carry the same order
+    request_hash VARCHAR(64) NOT NULL,
+
+    -- NULL while the original request is still being processed
+    response_status INT,
+    response_body TEXT,
+    location VARCHAR(255),
+    created_at DATETIME,
+
+    INDEX idx_idempotency_key_created (created_at)
+);
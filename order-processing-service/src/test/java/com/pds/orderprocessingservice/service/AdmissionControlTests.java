@@ -0,0 +1,93 @@
+package com.pds.orderprocessingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdmissionControl: the concurrency limit and the per-customer token buckets.
+ * Customers refill one token every ~17 minutes here, so a spent bucket stays empty for the test.
+ */
+class AdmissionControlTests {
+
+    private static final double SLOW_RATE = 0.001;
+
+    @Test
+    void requestOverTheLimitIsShedWithoutCostingTheCustomerAToken() {
+        AdmissionControl admission = new AdmissionControl(true, 1, 1, 1, 0.2, SLOW_RATE, 1, 100);
+        AdmissionControl.Permit first = admission.admit(1L);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.admit(2L));
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, admission.getRejectedByLimit());
+
+        first.release(true);
+        admission.admit(2L).release(true); // customer 2 still has its only token
+        assertEquals(0, admission.getRejectedByCustomer());
+    }
+
+    @Test
+    void customerOverItsRateIsRejectedAndGivesItsSlotBack() {
+        AdmissionControl admission = new AdmissionControl(true, 10, 1, 10, 0.2, SLOW_RATE, 2, 100);
+        admission.admit(1L).release(true);
+        admission.admit(1L).release(true);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.admit(1L));
+        assertTrue(e.getRetryAfterSeconds() > 1);
+        assertEquals(1, admission.getRejectedByCustomer());
+        assertEquals(0, admission.getInFlight());
+
+        admission.admit(2L).release(true); // other customers are not affected
+    }
+
+    @Test
+    void failedRequestsShrinkTheLimitDownToTheMinimum() {
+        AdmissionControl admission = new AdmissionControl(true, 20, 15, 200, 0.2, 10, 20, 100);
+
+        admission.admit(1L).release(false);
+        assertEquals(18, admission.getLimit());
+
+        admission.admit(1L).release(false);
+        admission.admit(1L).release(false);
+        assertEquals(15, admission.getLimit());
+    }
+
+    @Test
+    void bulkChunkTakesOneSlotAndChargesEachCustomerSeparately() {
+        AdmissionControl admission = new AdmissionControl(true, 1, 1, 1, 0.2, SLOW_RATE, 1, 100);
+        AdmissionControl.Permit chunk = admission.admitBulkChunk();
+        assertEquals(1, admission.getInFlight());
+
+        assertTrue(admission.chargeCustomer(1L));
+        assertFalse(admission.chargeCustomer(1L));
+        assertTrue(admission.chargeCustomer(2L));
+        assertThrows(AdmissionRejectedException.class, admission::admitBulkChunk);
+
+        chunk.release(true);
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    void leastRecentlySeenCustomerIsForgottenBeyondMaxBuckets() {
+        AdmissionControl admission = new AdmissionControl(true, 10, 1, 10, 0.2, SLOW_RATE, 1, 1);
+        admission.admit(1L).release(true);
+        assertThrows(AdmissionRejectedException.class, () -> admission.admit(1L));
+
+        admission.admit(2L).release(true); // evicts customer 1's bucket
+        admission.admit(1L).release(true); // ...so it starts again with a full one
+        assertEquals(1, admission.stats().get("customer_buckets"));
+    }
+
+    @Test
+    void disabledAdmissionLetsEverythingThrough() {
+        AdmissionControl admission = new AdmissionControl(false, 1, 1, 1, 0.2, SLOW_RATE, 1, 100);
+        for (int i = 0; i < 5; i++) {
+            admission.admit(1L);
+        }
+        assertEquals(0, admission.getInFlight());
+        assertEquals(0, admission.getRejectedByCustomer());
+    }
+}
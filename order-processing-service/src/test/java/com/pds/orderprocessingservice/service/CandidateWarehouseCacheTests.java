@@ -0,0 +1,70 @@
+package com.pds.orderprocessingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * CandidateWarehouseCache: address normalization, LRU bound, TTL, and rankings fetched across
+ * an invalidation not being cached.
+ */
+class CandidateWarehouseCacheTests {
+
+    private static final List<CandidateWarehouse> RANKING = List.of(new CandidateWarehouse(1L, 2.0), new CandidateWarehouse(2L, 5.0));
+
+    @Test
+    void equivalentAddressesShareAnEntry() {
+        CandidateWarehouseCache cache = new CandidateWarehouseCache(10, Duration.ofMinutes(10));
+        cache.put("100 Queen St W,  Toronto , Canada", RANKING, cache.generation());
+
+        assertEquals(RANKING, cache.get("100 queen st w, toronto"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        CandidateWarehouseCache cache = new CandidateWarehouseCache(2, Duration.ofMinutes(10));
+        cache.put("a", RANKING, cache.generation());
+        cache.put("b", RANKING, cache.generation());
+        cache.get("a");
+        cache.put("c", RANKING, cache.generation());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(RANKING, cache.get("a"));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() {
+        CandidateWarehouseCache cache = new CandidateWarehouseCache(10, Duration.ZERO);
+        cache.put("a", RANKING, cache.generation());
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void emptyRankingIsNotCached() {
+        CandidateWarehouseCache cache = new CandidateWarehouseCache(10, Duration.ofMinutes(10));
+        cache.put("a", List.of(), cache.generation());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rankingFetchedBeforeAnInvalidationIsDropped() {
+        CandidateWarehouseCache cache = new CandidateWarehouseCache(10, Duration.ofMinutes(10));
+        long generation = cache.generation();
+        cache.invalidateAll(); // a warehouse changed while the ranking was being fetched
+        cache.put("a", RANKING, generation);
+
+        assertNull(cache.get("a"));
+
+        cache.put("a", RANKING, cache.generation());
+        assertEquals(RANKING, cache.get("a"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.pds.orderprocessingservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DownstreamGuard: breaker transitions, 4xx answers counting as healthy, and the bulkhead.
+ */
+class DownstreamGuardTests {
+
+    private static final long LONG_OPEN = Duration.ofMinutes(10).toNanos();
+
+    @Test
+    void opensAfterConsecutiveFailuresAndThenShortCircuits() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 2, LONG_OPEN, 4);
+        fail(guard);
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+        fail(guard);
+        assertEquals(DownstreamGuard.State.OPEN, guard.getState());
+
+        assertThrows(DownstreamUnavailableException.class, () -> guard.call(() -> "never called"));
+        assertFalse(guard.isCallPermitted());
+        assertEquals(1, guard.getShortCircuited());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 2, LONG_OPEN, 4);
+        fail(guard);
+        guard.call(() -> "ok");
+        fail(guard);
+
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void clientErrorAnswerCountsAsHealthy() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 1, LONG_OPEN, 4);
+
+        assertThrows(HttpClientErrorException.class, () -> guard.call(() -> {
+            throw new HttpClientErrorException(HttpStatus.CONFLICT);
+        }));
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void trialCallAfterTheOpenPeriodDecidesTheState() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 1, 0, 4);
+        fail(guard);
+        assertEquals(DownstreamGuard.State.OPEN, guard.getState());
+
+        // Open period over: one trial, which fails and opens the circuit again
+        assertTrue(guard.isCallPermitted());
+        fail(guard);
+        assertEquals(DownstreamGuard.State.OPEN, guard.getState());
+
+        assertEquals("ok", guard.call(() -> "ok"));
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void halfOpenLetsOnlyOneTrialThrough() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 1, 0, 4);
+        fail(guard);
+
+        String result = guard.call(() -> {
+            assertEquals(DownstreamGuard.State.HALF_OPEN, guard.getState());
+            assertFalse(guard.isCallPermitted());
+            assertThrows(DownstreamUnavailableException.class, () -> guard.call(() -> "second trial"));
+            return "trial";
+        });
+
+        assertEquals("trial", result);
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void fullBulkheadRejectsAtOnce() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 5, LONG_OPEN, 1);
+
+        guard.call(() -> {
+            assertEquals(1, guard.getInFlight());
+            assertThrows(DownstreamUnavailableException.class, () -> guard.call(() -> "nested"));
+            return null;
+        });
+
+        assertEquals(1, guard.getBulkheadRejected());
+        assertEquals(0, guard.getInFlight());
+        assertEquals(DownstreamGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void fallbackReplacesFailuresAndRejections() {
+        DownstreamGuard guard = new DownstreamGuard("warehouse-1", 1, LONG_OPEN, 4);
+
+        assertEquals("fallback", guard.call(() -> {
+            throw new ResourceAccessException("timeout");
+        }, e -> "fallback"));
+        assertEquals("fallback", guard.call(() -> "never called", e -> "fallback"));
+    }
+
+    private static void fail(DownstreamGuard guard) {
+        assertThrows(ResourceAccessException.class, () -> guard.call(() -> {
+            throw new ResourceAccessException("Read timed out");
+        }));
+    }
+}
@@ -0,0 +1,102 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.ItemStatus;
+import com.pds.orderprocessingservice.model.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * FulfillmentPlanner against a small stock snapshot. Warehouses 1, 2 and 3 are ranked by
+ * distance (1, 5 and 9 km); products 100 and 200.
+ */
+class FulfillmentPlannerTests {
+
+    private static final List<CandidateWarehouse> CANDIDATES = List.of(
+            new CandidateWarehouse(1L, 1.0), new CandidateWarehouse(2L, 5.0), new CandidateWarehouse(3L, 9.0));
+
+    private final FulfillmentPlanner planner = new FulfillmentPlanner(1_000, 10);
+
+    @Test
+    void oneWarehouseThatCoversTheOrderBeatsANearerSplit() {
+        StockAvailability availability = new StockAvailability();
+        availability.put(1L, 100L, 10);
+        availability.put(2L, 100L, 10);
+        availability.put(2L, 200L, 10);
+
+        assertEquals(List.of(2L, 2L), planner.plan(List.of(item(100L, 1), item(200L, 1)), CANDIDATES, availability));
+    }
+
+    @Test
+    void splitUsesTheNearestWarehousesThatCoverTheOrder() {
+        StockAvailability availability = new StockAvailability();
+        availability.put(1L, 100L, 10);
+        availability.put(2L, 200L, 10);
+        availability.put(3L, 200L, 10);
+
+        assertEquals(List.of(1L, 2L), planner.plan(List.of(item(100L, 1), item(200L, 1)), CANDIDATES, availability));
+    }
+
+    @Test
+    void planIsDeductedFromTheSnapshot() {
+        StockAvailability availability = new StockAvailability();
+        availability.put(1L, 100L, 5);
+        availability.put(2L, 100L, 5);
+
+        assertEquals(List.of(1L), planner.plan(List.of(item(100L, 4)), CANDIDATES, availability));
+        assertEquals(1L, availability.get(1L, 100L));
+        // A second order planned against the same snapshot no longer fits the nearest warehouse
+        assertEquals(List.of(2L), planner.plan(List.of(item(100L, 4)), CANDIDATES, availability));
+    }
+
+    @Test
+    void orderTheSnapshotCannotCoverFallsBackToGreedy() {
+        StockAvailability availability = new StockAvailability();
+        availability.put(1L, 100L, 1);
+        availability.put(2L, 100L, 1);
+
+        assertNull(planner.plan(List.of(item(100L, 2)), CANDIDATES, availability));
+        assertEquals(1L, availability.get(1L, 100L));
+    }
+
+    @Test
+    void planningPastTheTimeBudgetFallsBackToGreedy() {
+        StockAvailability availability = new StockAvailability();
+        availability.put(1L, 100L, 10);
+
+        assertNull(new FulfillmentPlanner(-1, 10).plan(List.of(item(100L, 1)), CANDIDATES, availability));
+    }
+
+    @Test
+    void plannedWarehouseIsTriedFirstThenTheRestOfTheRanking() {
+        assertEquals(List.of(List.of(2L, 1L, 3L), List.of(1L, 2L, 3L)),
+                FulfillmentPlanner.plannedFirst(List.of(2L, 1L), List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void itemsOutsideThePrimaryWarehouseAreSplitShipments() {
+        List<OrderItem> items = List.of(reserved(100L, 2L), reserved(200L, 1L), reserved(300L, 1L), item(400L, 1));
+
+        FulfillmentPlanner.markSplitShipments(items);
+
+        assertEquals(List.of(ItemStatus.SPLIT_SHIPMENT, ItemStatus.RESERVED, ItemStatus.RESERVED, ItemStatus.PENDING),
+                items.stream().map(OrderItem::getItemStatus).toList());
+    }
+
+    private static OrderItem item(Long productCode, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProductCode(productCode);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static OrderItem reserved(Long productCode, Long warehouseId) {
+        OrderItem item = item(productCode, 1);
+        item.setFulfilledByWarehouseId(warehouseId);
+        item.setItemStatus(ItemStatus.RESERVED);
+        return item;
+    }
+}
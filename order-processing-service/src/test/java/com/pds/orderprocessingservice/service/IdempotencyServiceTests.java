@@ -0,0 +1,191 @@
+package com.pds.orderprocessingservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pds.orderprocessingservice.model.IdempotencyRecord;
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderItem;
+import com.pds.orderprocessingservice.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * IdempotencyService over an in-memory idempotency_key table: completed keys replay the stored
+ * response without running the handler again, failed attempts free the key, and a key cannot be
+ * reused for a different order.
+ */
+class IdempotencyServiceTests {
+
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final AtomicInteger handled = new AtomicInteger();
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+        when(repository.claim(anyString(), anyString(), any())).thenAnswer(call -> {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setIdempotencyKey(call.getArgument(0));
+            record.setRequestHash(call.getArgument(1));
+            if (table.putIfAbsent(record.getIdempotencyKey(), record) != null) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            return 1;
+        });
+        when(repository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(table.get(call.<String>getArgument(0))));
+        when(repository.complete(anyString(), any(), any(), any())).thenAnswer(call -> {
+            IdempotencyRecord record = table.get(call.<String>getArgument(0));
+            record.setResponseStatus(call.getArgument(1));
+            record.setResponseBody(call.getArgument(2));
+            record.setLocation(call.getArgument(3));
+            return 1;
+        });
+        when(repository.release(anyString())).thenAnswer(call ->
+                table.computeIfPresent(call.getArgument(0), (key, record) -> record.getResponseStatus() == null ? null : record) == null ? 1 : 0);
+
+        service = new IdempotencyService(repository, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(service, "waitTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void completedKeyReplaysTheStoredResponse() {
+        ResponseEntity<Order> first = service.execute("key-1", order(10L), created(42L));
+        ResponseEntity<Order> retry = service.execute("key-1", order(10L), created(43L));
+
+        assertEquals(1, handled.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(42L, retry.getBody().getId());
+        assertEquals(URI.create("/orders/42"), retry.getHeaders().getLocation());
+    }
+
+    @Test
+    void keyReusedForADifferentOrderIsRejected() {
+        service.execute("key-1", order(10L), created(42L));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.execute("key-1", order(11L), created(43L)));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void failedAttemptFreesTheKeyForTheNextRetry() {
+        ResponseEntity<Order> saturated = service.execute("key-1", order(10L), () -> {
+            handled.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        });
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, saturated.getStatusCode());
+
+        assertThrows(IllegalStateException.class, () -> service.execute("key-1", order(10L), () -> {
+            handled.incrementAndGet();
+            throw new IllegalStateException("Warehouse Service down");
+        }));
+
+        ResponseEntity<Order> retry = service.execute("key-1", order(10L), created(42L));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(3, handled.get());
+    }
+
+    @Test
+    void keyStillRunningOnAnotherInstanceIsAConflict() {
+        IdempotencyRecord claimed = new IdempotencyRecord();
+        claimed.setIdempotencyKey("key-1");
+        table.put("key-1", claimed);
+        // Claimed for the same order, which another key's completed run gives the hash of
+        service.execute("key-0", order(10L), created(42L));
+        claimed.setRequestHash(table.get("key-0").getRequestHash());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.execute("key-1", order(10L), created(43L)));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+
+    @Test
+    void retryWhileTheOriginalRunsHereSharesItsResponse() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<Order>> original = executor.submit(() -> service.execute("key-1", order(10L), () -> {
+                running.countDown();
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return created(42L).get();
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            AtomicReference<Thread> retryThread = new AtomicReference<>();
+            Future<ResponseEntity<Order>> retry = executor.submit(() -> {
+                retryThread.set(Thread.currentThread());
+                return service.execute("key-1", order(10L), created(43L));
+            });
+            // The original only finishes once the retry is waiting on it
+            while (retryThread.get() == null || retryThread.get().getState() != Thread.State.TIMED_WAITING) {
+                Thread.onSpinWait();
+            }
+            finish.countDown();
+
+            assertEquals(42L, original.get(5, TimeUnit.SECONDS).getBody().getId());
+            ResponseEntity<Order> replayed = retry.get(5, TimeUnit.SECONDS);
+            assertEquals(42L, replayed.getBody().getId());
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(1, handled.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Supplier<ResponseEntity<Order>> created(Long id) {
+        return () -> {
+            handled.incrementAndGet();
+            Order order = order(10L);
+            order.setId(id);
+            return ResponseEntity.created(URI.create("/orders/" + id)).body(order);
+        };
+    }
+
+    private static Order order(Long customerId) {
+        OrderItem item = new OrderItem();
+        item.setProductCode(100L);
+        item.setQuantity(2);
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        order.setDeliveryAddress("100 Queen St W, Toronto");
+        order.setItems(List.of(item));
+        return order;
+    }
+}
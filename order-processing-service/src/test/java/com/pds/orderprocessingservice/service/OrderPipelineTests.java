@@ -0,0 +1,124 @@
+package com.pds.orderprocessingservice.service;
+
+import com.pds.orderprocessingservice.model.Order;
+import com.pds.orderprocessingservice.model.OrderStatus;
+import com.pds.orderprocessingservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * OrderPipeline with a mocked OrderService: orders are handed from stage to stage, the recovery
+ * sweep re-queues each unfinished order at the stage its status calls for, and an order is never
+ * queued twice. shutdown() drains the stages, so the checks run once everything has finished.
+ */
+class OrderPipelineTests {
+
+    private static final List<CandidateWarehouse> CANDIDATES = List.of(new CandidateWarehouse(7L, 1.5));
+
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        orderService = mock(OrderService.class);
+        orderRepository = mock(OrderRepository.class);
+        pipeline = new OrderPipeline(orderService, orderRepository, 2, 2, 2, 10);
+        ReflectionTestUtils.setField(pipeline, "recoveryMinAge", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(pipeline, "shutdownTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void submittedOrderRunsEveryStageInOrder() throws Exception {
+        when(orderService.locateWarehouses(1L)).thenReturn(CANDIDATES);
+        when(orderService.reserveStock(1L, CANDIDATES)).thenReturn(true);
+
+        assertTrue(pipeline.submit(1L));
+        pipeline.shutdown();
+
+        var order = inOrder(orderService);
+        order.verify(orderService).locateWarehouses(1L);
+        order.verify(orderService).reserveStock(1L, CANDIDATES);
+        order.verify(orderService).scheduleDelivery(1L);
+    }
+
+    @Test
+    void orderLeavesThePipelineWhenAStageSkipsIt() throws Exception {
+        // No candidates: locate marked it FAILED, or another run holds its claim
+        when(orderService.locateWarehouses(1L)).thenReturn(List.of());
+
+        pipeline.submit(1L);
+        pipeline.shutdown();
+
+        verify(orderService, never()).reserveStock(anyLong(), any());
+        verify(orderService, never()).scheduleDelivery(anyLong());
+    }
+
+    @Test
+    void stageThatThrowsMarksTheOrderFailed() throws Exception {
+        when(orderService.locateWarehouses(1L)).thenReturn(CANDIDATES);
+        when(orderService.reserveStock(1L, CANDIDATES)).thenThrow(new IllegalStateException("boom"));
+
+        pipeline.submit(1L);
+        pipeline.shutdown();
+
+        verify(orderService).markFailed(1L);
+        verify(orderService, never()).scheduleDelivery(anyLong());
+    }
+
+    @Test
+    void recoveryResumesEachOrderAtItsStage() throws Exception {
+        when(orderRepository.findUnclaimed(any(), any(), any(), any()))
+                .thenReturn(List.of(order(1L, OrderStatus.RECEIVED), order(2L, OrderStatus.STOCK_RESERVED)));
+
+        pipeline.recover();
+        pipeline.shutdown();
+
+        verify(orderService).locateWarehouses(1L);
+        verify(orderService).scheduleDelivery(2L);
+        verify(orderService, never()).locateWarehouses(2L);
+    }
+
+    @Test
+    void recoverySkipsOrdersAlreadyInThePipeline() throws Exception {
+        CountDownLatch locating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.locateWarehouses(1L)).thenAnswer(call -> {
+            locating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(orderRepository.findUnclaimed(any(), any(), any(), any())).thenReturn(List.of(order(1L, OrderStatus.RECEIVED)));
+
+        pipeline.submit(1L);
+        assertTrue(locating.await(5, TimeUnit.SECONDS));
+        pipeline.recover();
+        release.countDown();
+        pipeline.shutdown();
+
+        verify(orderService, times(1)).locateWarehouses(1L);
+    }
+
+    private static Order order(Long id, OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        return order;
+    }
+}
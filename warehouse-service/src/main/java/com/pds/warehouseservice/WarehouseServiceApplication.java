@@ -2,8 +2,10 @@ package com.pds.warehouseservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // ReservationSweeper
 public class WarehouseServiceApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(WarehouseServiceApplication.class, args);
@@ -10,7 +10,10 @@ import java.time.Instant;
 @Setter
 @Entity
 @Table(name = "inventories",
-        uniqueConstraints = {@UniqueConstraint(columnNames = {"warehouse_id", "product_id"})})
+        // One row per bucket; in bucket order, which is also the order reservations lock them in
+        uniqueConstraints = {@UniqueConstraint(name = "uk_inventory_bucket", columnNames = {"warehouse_id", "product_id", "bucket"})},
+        // InventorySnapshot reads the rows changed since its last refresh
+        indexes = {@Index(name = "idx_inventory_updated_at", columnList = "updated_at")})
 public class Inventory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,14 +26,25 @@ public class Inventory {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // The stock of a hot product can be split over several rows (buckets 0..n-1) so that
+    // concurrent reservations lock different rows; see InventoryService.reshard
+    @Column(nullable = false, columnDefinition = "int default 0")
+    private int bucket;
+
     @Column(nullable = false)
     private long availableQuantity;
 
     @Column(nullable = false)
     private long reservedQuantity;
 
+    @Column(name = "updated_at")
     private Instant updatedAt;
 
+    // Only checked in warehouse.inventory.mode=optimistic; the other modes lock or bypass the row
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     public Inventory() {}
 
     public Inventory(Long warehouseId, Product product, long availableQuantity) {
@@ -0,0 +1,6 @@
+package com.pds.warehouseservice.model;
+
+/**
+ * Plain (unmanaged) view of one bucket row, used to choose which bucket to lock.
+ */
+public record InventoryBucket(Long id, int bucket, long availableQuantity) {}
@@ -0,0 +1,30 @@
+package com.pds.warehouseservice.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Last journal entry of an inventory ledger instance that has been written to the inventories
+ * and stock_reservations tables. Updated in the same transaction as the flushed rows, so a
+ * restart replays exactly the entries after it. Written by InventoryLedger through JDBC.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "ledger_checkpoint")
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    private Instant updatedAt;
+
+    public LedgerCheckpoint() {}
+}
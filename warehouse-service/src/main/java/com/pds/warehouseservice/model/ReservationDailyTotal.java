@@ -0,0 +1,58 @@
+package com.pds.warehouseservice.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Finished reservations of one day (by createdAt, UTC), warehouse, product and final status, rolled up
+ * by the ReservationArchiver when it moves the raw stock_reservations rows to the archive files.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "reservation_daily_totals",
+        uniqueConstraints = {@UniqueConstraint(name = "uk_reservation_daily_total",
+                columnNames = {"reservation_day", "warehouse_id", "product_code", "status"})})
+public class ReservationDailyTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // DAY is a reserved word in H2 (and a function name in MySQL)
+    @Column(name = "reservation_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "warehouse_id", nullable = false)
+    private Long warehouseId;
+
+    @Column(name = "product_code", nullable = false)
+    private Long productCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status;
+
+    // Number of reservations and their summed quantity
+    @Column(nullable = false)
+    private long reservations;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    // Highest id rolled up here, so ids are not handed out again once their rows are gone (ledger mode)
+    @Column(name = "last_reservation_id", nullable = false)
+    private long lastReservationId;
+
+    public ReservationDailyTotal() {}
+
+    public ReservationDailyTotal(LocalDate day, Long warehouseId, Long productCode, ReservationStatus status) {
+        this.day = day;
+        this.warehouseId = warehouseId;
+        this.productCode = productCode;
+        this.status = status;
+    }
+}
@@ -0,0 +1,7 @@
+package com.pds.warehouseservice.model;
+
+public enum ReservationStatus {
+    HELD,       // Stock set aside for an order in progress; released automatically once expiresAt passes
+    CONFIRMED,  // The order went through; kept until shipped or explicitly released
+    RELEASED    // Quantity returned to availableQuantity
+}
@@ -8,7 +8,10 @@ import java.time.Instant;
 
 @Getter
 @Entity
-@Table(name = "stock_reservations")
+@Table(name = "stock_reservations",
+        // The sweeper scans HELD reservations by expiry, the archiver finished ones by age
+        indexes = {@Index(name = "idx_reservation_status_expires", columnList = "status, expires_at"),
+                @Index(name = "idx_reservation_status_created", columnList = "status, created_at")})
 public class StockReservation {
 
     @Id
@@ -28,15 +31,29 @@ public class StockReservation {
     @Setter
     private Instant createdAt = Instant.now();
 
+    @Setter
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status = ReservationStatus.HELD;
+
+    // When a HELD reservation lapses; null once confirmed or released
+    @Setter
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    @Setter
+    private Instant releasedAt;
+
     // 1. Default (no-argument) constructor for Hibernate
     public StockReservation() {}
 
 
     // 2. Parameterized constructor for service layer instantiation
-    public StockReservation(Long warehouseId, Long productCode, long quantity) {
+    public StockReservation(Long warehouseId, Long productCode, long quantity, Instant expiresAt) {
         this.warehouseId = warehouseId;
         this.productCode = productCode;
         this.quantity = quantity;
+        this.expiresAt = expiresAt;
     }
 
     public Long getId() {
@@ -1,16 +1,45 @@
 package com.pds.warehouseservice.repository;
 
 import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.InventoryBucket;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import jakarta.persistence.LockModeType;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
+    // Not loaded as entities, so a later read of the chosen row returns its current state
+    @Query("SELECT new com.pds.warehouseservice.model.InventoryBucket(i.id, i.bucket, i.availableQuantity) FROM Inventory i "
+            + "WHERE i.warehouseId = :warehouseId AND i.product.productCode = :productCode ORDER BY i.bucket")
+    List<InventoryBucket> findBuckets(Long warehouseId, Long productCode);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.id = :id")
+    Optional<Inventory> findByIdForUpdate(Long id);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT i FROM Inventory i WHERE i.warehouseId = :warehouseId AND i.product.productCode = :productCode")
-    Optional<Inventory> findByWarehouseAndProductForUpdate(Long warehouseId, Long productCode);}
\ No newline at end of file
+    @Query("SELECT i FROM Inventory i WHERE i.warehouseId = :warehouseId AND i.product.productCode = :productCode ORDER BY i.bucket")
+    List<Inventory> findAllBucketsForUpdate(Long warehouseId, Long productCode);
+
+    // Plain read; the @Version check on update detects concurrent changes (optimistic mode)
+    @Query("SELECT i FROM Inventory i WHERE i.warehouseId = :warehouseId AND i.product.productCode = :productCode ORDER BY i.bucket")
+    List<Inventory> findAllBuckets(Long warehouseId, Long productCode);
+
+    // Plain (non-locking) read of many (warehouse, product) pairs at once
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product p WHERE i.warehouseId IN :warehouseIds AND p.productCode IN :productCodes")
+    List<Inventory> findByWarehousesAndProducts(Collection<Long> warehouseIds, Collection<Long> productCodes);
+
+    // InventorySnapshot: full load, then only rows changed since (index on updated_at)
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product")
+    List<Inventory> findAllWithProduct();
+
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product WHERE i.updatedAt >= :since")
+    List<Inventory> findUpdatedSince(Instant since);
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.pds.warehouseservice.repository;
+
+import com.pds.warehouseservice.model.ReservationDailyTotal;
+import com.pds.warehouseservice.model.ReservationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface ReservationDailyTotalRepository extends JpaRepository<ReservationDailyTotal, Long> {
+
+    Optional<ReservationDailyTotal> findByDayAndWarehouseIdAndProductCodeAndStatus(LocalDate day, Long warehouseId,
+                                                                                  Long productCode, ReservationStatus status);
+}
@@ -1,7 +1,29 @@
 package com.pds.warehouseservice.repository;
 
+import com.pds.warehouseservice.model.ReservationStatus;
 import com.pds.warehouseservice.model.StockReservation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Locked in id order so concurrent confirm/release calls acquire row locks in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.id IN :ids ORDER BY r.id")
+    List<StockReservation> findAllByIdForUpdate(Collection<Long> ids);
+
+    // Index range scan on (status, expires_at); the Pageable bounds the batch
+    @Query("SELECT r.id FROM StockReservation r WHERE r.status = :status AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<Long> findIdsByStatusExpiredBefore(ReservationStatus status, Instant now, Pageable batch);
+
+    // Index range scan on (status, created_at); finished reservations for the ReservationArchiver, oldest first
+    @Query("SELECT r.id FROM StockReservation r WHERE r.status = :status AND r.createdAt < :before ORDER BY r.createdAt")
+    List<Long> findIdsByStatusCreatedBefore(ReservationStatus status, Instant before, Pageable batch);
 }
@@ -0,0 +1,121 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.web.InventoryEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered log of inventory changes behind GET /inventory/events. Each publish of a (warehouse, product)
+ * whose totals differ from the last one becomes an InventoryEvent with the next sequence number.
+ * Fed by the InventorySnapshot (locking and optimistic modes) or the InventoryLedger (ledger mode),
+ * so changes a few milliseconds apart may arrive as one event with the latest totals.
+ *
+ * The last buffer-size events are kept for readers resuming from a sequence number; a reader further
+ * behind starts over from snapshot(), the latest event of every product. Sequence numbers restart
+ * with the process, which is why events are addressed as (epoch, seq).
+ */
+@Component
+public class InventoryEventLog {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    // Event seq is at ring[seq % ring.length]; guarded by lock
+    private final InventoryEvent[] ring;
+    private final Map<List<Long>, InventoryEvent> latest = new HashMap<>();
+    private long lastSeq;
+
+    public InventoryEventLog(@Value("${warehouse.events.buffer-size:100000}") int bufferSize) {
+        this.ring = new InventoryEvent[bufferSize];
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public void publish(Long warehouseId, Long productCode, long available, long reserved) {
+        lock.lock();
+        try {
+            List<Long> key = List.of(warehouseId, productCode);
+            InventoryEvent previous = latest.get(key);
+            if (previous != null && previous.getAvailableQuantity() == available && previous.getReservedQuantity() == reserved) {
+                return;
+            }
+            InventoryEvent event = new InventoryEvent(++lastSeq, warehouseId, productCode, available, reserved, Instant.now());
+            ring[(int) (event.getSeq() % ring.length)] = event;
+            latest.put(key, event);
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to max events after seq, oldest first; empty if there are none yet,
+     * null if seq is no longer (or was never) in the buffer.
+     */
+    public List<InventoryEvent> after(long seq, int max) {
+        lock.lock();
+        try {
+            if (seq > lastSeq || seq < lastSeq - ring.length) {
+                return null;
+            }
+            long last = Math.min(lastSeq, seq + max);
+            List<InventoryEvent> events = new ArrayList<>((int) (last - seq));
+            for (long s = seq + 1; s <= last; s++) {
+                events.add(ring[(int) (s % ring.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is an event after seq.
+     * @return false if none arrived within the timeout.
+     */
+    public boolean awaitAfter(long seq, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (lastSeq <= seq) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The latest event of every (warehouse, product) in seq order, and the seq it is current as of.
+     */
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            List<InventoryEvent> state = latest.values().stream()
+                    .sorted(Comparator.comparingLong(InventoryEvent::getSeq))
+                    .toList();
+            return new Snapshot(lastSeq, state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record Snapshot(long seq, List<InventoryEvent> state) {}
+}
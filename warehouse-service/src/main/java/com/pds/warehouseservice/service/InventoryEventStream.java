@@ -0,0 +1,114 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.web.InventoryEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server-Sent Events for GET /inventory/events, one virtual thread per subscriber.
+ * A new subscriber first gets "snapshot" events with the current totals of every product, then "changes"
+ * events; both carry a JSON array of InventoryEvents, at most batch-size per message. Changes arriving
+ * within linger-ms of each other go out as one message.
+ * Every message that completes a snapshot or a batch has the id "epoch-seq". A subscriber reconnecting with it
+ * (Last-Event-ID, or ?from=) continues after seq; one from another epoch or further behind than the
+ * InventoryEventLog buffer gets a new snapshot instead.
+ */
+@Component
+public class InventoryEventStream {
+
+    private final InventoryEventLog log;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${warehouse.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${warehouse.events.linger-ms:50}")
+    private long lingerMillis;
+
+    // Comment line sent when nothing changed, so proxies keep the connection open and dead clients are noticed
+    @Value("${warehouse.events.heartbeat-ms:15000}")
+    private long heartbeatMillis;
+
+    public InventoryEventStream(InventoryEventLog log) {
+        this.log = log;
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L); // no timeout: the stream stays open
+        long from = resumePoint(lastEventId);
+        senders.execute(() -> stream(emitter, from));
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void stream(SseEmitter emitter, long from) {
+        try {
+            long cursor = from < 0 ? sendSnapshot(emitter) : from;
+            while (true) {
+                if (!log.awaitAfter(cursor, heartbeatMillis)) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                Thread.sleep(lingerMillis);
+                List<InventoryEvent> batch = log.after(cursor, batchSize);
+                if (batch == null) {
+                    cursor = sendSnapshot(emitter); // fell behind the buffer
+                    continue;
+                }
+                cursor = batch.get(batch.size() - 1).getSeq();
+                emitter.send(SseEmitter.event().id(id(cursor)).name("changes").data(batch));
+            }
+        } catch (InterruptedException e) {
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away (or the emitter was completed); nothing left to send to
+            emitter.completeWithError(e);
+        }
+    }
+
+    // Only the last chunk carries an id, so a client cut off mid-snapshot does not resume from it
+    private long sendSnapshot(SseEmitter emitter) throws IOException {
+        InventoryEventLog.Snapshot snapshot = log.snapshot();
+        List<InventoryEvent> state = snapshot.state();
+        for (int start = 0; start < state.size() || start == 0; start += batchSize) {
+            List<InventoryEvent> chunk = state.subList(start, Math.min(state.size(), start + batchSize));
+            SseEmitter.SseEventBuilder event = SseEmitter.event().name("snapshot").data(chunk);
+            if (start + batchSize >= state.size()) {
+                event.id(id(snapshot.seq()));
+            }
+            emitter.send(event);
+        }
+        return snapshot.seq();
+    }
+
+    private String id(long seq) {
+        return log.epoch() + "-" + seq;
+    }
+
+    // seq to continue after, or -1 for a snapshot first
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(log.epoch())) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock counters for warehouse.inventory.mode=ledger.
+ * This instance owns the counters: a reservation is a CAS decrement of availableQuantity plus an
+ * entry in the LedgerJournal, with no database round trip. The flusher writes the journal behind
+ * to MySQL every few hundred milliseconds as summed deltas per (warehouse, product) and one
+ * stock_reservations row per entry, together with the ledger_checkpoint.
+ * On startup the journal entries after the checkpoint are replayed into the tables, then the
+ * counters are loaded from the inventories table.
+ * Counters are published to the InventoryEventLog on load, after each flush and after releases.
+ *
+ * Only one instance may run in ledger mode, and the inventories table must not be edited
+ * behind its back while it runs (the counters would not see the change).
+ */
+@Component
+@ConditionalOnProperty(name = "warehouse.inventory.mode", havingValue = "ledger")
+@DependsOnDatabaseInitialization
+public class InventoryLedger {
+
+    // Counters are kept per (warehouse, product); bucket rows are summed on load
+    private static final String SELECT_INVENTORY =
+            "SELECT i.warehouse_id, p.product_code, SUM(i.available_quantity), SUM(i.reserved_quantity) "
+                    + "FROM inventories i JOIN products p ON p.id = i.product_id";
+
+    private static final String GROUP_BY_ROW = " GROUP BY i.warehouse_id, p.product_code";
+
+    // ...and deltas are written to bucket 0, which every product has
+    private static final String UPDATE_INVENTORY =
+            "UPDATE inventories i JOIN products p ON p.id = i.product_id "
+                    + "SET i.available_quantity = i.available_quantity + ?, "
+                    + "i.reserved_quantity = GREATEST(0, i.reserved_quantity + ?), i.updated_at = ? "
+                    + "WHERE i.warehouse_id = ? AND p.product_code = ? AND i.bucket = 0";
+
+    private static final String INSERT_RESERVATION =
+            "INSERT INTO stock_reservations (id, warehouse_id, product_code, quantity, created_at, status, expires_at) "
+                    + "VALUES (?, ?, ?, ?, ?, 'HELD', ?)";
+
+    private static final String SAVE_CHECKPOINT =
+            "INSERT INTO ledger_checkpoint (instance_id, last_seq, updated_at) VALUES (?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE last_seq = VALUES(last_seq), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTransaction;
+    private final LedgerJournal journal;
+    private final String instanceId;
+    private final InventoryEventLog eventLog;
+
+    private final ConcurrentHashMap<Key, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong nextReservationId = new AtomicLong();
+
+    // Closed journal segments not yet in MySQL, oldest first; guarded by this
+    private final List<LedgerJournal.Segment> unflushed = new ArrayList<>();
+
+    public InventoryLedger(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${warehouse.ledger.journal-dir:./data/inventory-journal}") String journalDir,
+                           @Value("${warehouse.ledger.instance-id:warehouse-1}") String instanceId,
+                           InventoryEventLog eventLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.journal = new LedgerJournal(Path.of(journalDir));
+        this.instanceId = instanceId;
+        this.eventLog = eventLog;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        // 1) replay what the previous run journaled but did not flush
+        long checkpoint = jdbcTemplate.queryForList("SELECT last_seq FROM ledger_checkpoint WHERE instance_id = ?",
+                Long.class, instanceId).stream().findFirst().orElse(0L);
+        List<LedgerJournal.Segment> segments = journal.open(checkpoint);
+        int replayed = 0;
+        synchronized (this) {
+            for (LedgerJournal.Segment segment : segments) {
+                List<LedgerJournal.Entry> pending = segment.entries().stream().filter(entry -> entry.seq() > checkpoint).toList();
+                replayed += pending.size();
+                unflushed.add(new LedgerJournal.Segment(segment.file(), pending));
+            }
+            flush();
+            if (!unflushed.isEmpty()) {
+                throw new IllegalStateException("Could not replay the inventory journal into MySQL");
+            }
+        }
+
+        // 2) the tables are now current: load the counters and continue the reservation ids after them
+        jdbcTemplate.query(SELECT_INVENTORY + GROUP_BY_ROW, rs -> {
+            counters.put(new Key(rs.getLong(1), rs.getLong(2)), new Counter(rs.getLong(3), rs.getLong(4)));
+        });
+        counters.keySet().forEach(this::publish);
+        // Archived reservations are gone from stock_reservations, but their ids must not be handed out again
+        Long maxId = jdbcTemplate.queryForObject("SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM stock_reservations), "
+                + "(SELECT COALESCE(MAX(last_reservation_id), 0) FROM reservation_daily_totals))", Long.class);
+        nextReservationId.set(maxId + 1);
+
+        System.out.println("Inventory ledger ready: replayed " + replayed + " journal entries, loaded " + counters.size() + " counters");
+    }
+
+    /**
+     * The counter of one inventory row, or null if the warehouse does not stock the product.
+     */
+    public Counter counter(Long warehouseId, Long productCode) {
+        Key key = new Key(warehouseId, productCode);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        // Rows added after startup
+        return counters.computeIfAbsent(key, this::load);
+    }
+
+    /**
+     * Journals one HELD reservation per line (stock already taken from the counters).
+     * @return The reservation IDs, aligned with lines; they become stock_reservations rows on the next flush.
+     */
+    public List<Long> record(Long warehouseId, List<BatchReservationRequest.Line> lines, Instant expiresAt) {
+        long now = System.currentTimeMillis();
+        List<LedgerJournal.Entry> drafts = new ArrayList<>(lines.size());
+        List<Long> ids = new ArrayList<>(lines.size());
+        for (BatchReservationRequest.Line line : lines) {
+            long id = nextReservationId.getAndIncrement();
+            ids.add(id);
+            drafts.add(new LedgerJournal.Entry(0, id, warehouseId, line.getProductCode(), line.getQuantity(), now, expiresAt.toEpochMilli()));
+        }
+        try {
+            journal.append(drafts);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the inventory journal", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns released stock to the inventories rows inside the caller's transaction,
+     * and to the counters once it commits.
+     */
+    public void returnStock(Map<Key, Long> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> updates = new ArrayList<>(quantities.size());
+        quantities.forEach((key, quantity) -> updates.add(new Object[]{quantity, -quantity, now, key.warehouseId(), key.productCode()}));
+        jdbcTemplate.batchUpdate(UPDATE_INVENTORY, updates);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                quantities.forEach((key, quantity) -> counters.computeIfPresent(key, (k, counter) -> {
+                    counter.giveBack(quantity);
+                    return counter;
+                }));
+                quantities.keySet().forEach(InventoryLedger.this::publish);
+            }
+        });
+    }
+
+    /**
+     * Writes every journaled reservation to MySQL in one transaction. A failed flush leaves its
+     * segments queued and is retried on the next run, together with newer segments.
+     */
+    @Scheduled(fixedDelayString = "${warehouse.ledger.flush-interval-ms:200}")
+    public synchronized void flush() {
+        try {
+            LedgerJournal.Segment closed = journal.rotate();
+            if (closed != null) {
+                unflushed.add(closed);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot rotate the inventory journal: " + e.getMessage());
+            return;
+        }
+        if (unflushed.isEmpty()) {
+            return;
+        }
+
+        // Deltas summed per row and applied in (warehouse, product) order, like the locking mode takes its locks
+        Map<Key, Long> taken = new TreeMap<>();
+        List<Object[]> reservations = new ArrayList<>();
+        long lastSeq = 0;
+        for (LedgerJournal.Segment segment : unflushed) {
+            for (LedgerJournal.Entry entry : segment.entries()) {
+                taken.merge(new Key(entry.warehouseId(), entry.productCode()), entry.quantity(), Long::sum);
+                reservations.add(new Object[]{entry.reservationId(), entry.warehouseId(), entry.productCode(), entry.quantity(),
+                        new Timestamp(entry.createdAtMillis()), new Timestamp(entry.expiresAtMillis())});
+                lastSeq = Math.max(lastSeq, entry.seq());
+            }
+        }
+
+        if (!reservations.isEmpty()) {
+            Timestamp now = Timestamp.from(Instant.now());
+            long checkpoint = lastSeq;
+            try {
+                flushTransaction.executeWithoutResult(status -> {
+                    List<Object[]> updates = new ArrayList<>(taken.size());
+                    taken.forEach((key, quantity) -> updates.add(new Object[]{-quantity, quantity, now, key.warehouseId(), key.productCode()}));
+                    jdbcTemplate.batchUpdate(UPDATE_INVENTORY, updates);
+                    jdbcTemplate.batchUpdate(INSERT_RESERVATION, reservations);
+                    jdbcTemplate.update(SAVE_CHECKPOINT, instanceId, checkpoint, now);
+                });
+            } catch (RuntimeException e) {
+                System.err.println("Inventory ledger flush failed, retrying " + reservations.size() + " reservations later: " + e.getMessage());
+                return;
+            }
+        }
+
+        taken.keySet().forEach(this::publish);
+
+        // Committed: the segments are no longer needed (a leftover one is skipped on restart by the checkpoint)
+        for (LedgerJournal.Segment segment : unflushed) {
+            try {
+                journal.delete(segment);
+            } catch (IOException e) {
+                System.err.println("Cannot delete journal segment " + segment.file() + ": " + e.getMessage());
+            }
+        }
+        unflushed.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        journal.close();
+    }
+
+    // The counter as it is now, which may already include reservations the next flush writes
+    private void publish(Key key) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            eventLog.publish(key.warehouseId(), key.productCode(), counter.getAvailable(), counter.getReserved());
+        }
+    }
+
+    private Counter load(Key key) {
+        return jdbcTemplate.query(SELECT_INVENTORY + " WHERE i.warehouse_id = ? AND p.product_code = ?" + GROUP_BY_ROW,
+                rs -> rs.next() ? new Counter(rs.getLong(3), rs.getLong(4)) : null,
+                key.warehouseId(), key.productCode());
+    }
+
+    public record Key(long warehouseId, long productCode) implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator.comparingLong(Key::warehouseId).thenComparingLong(Key::productCode);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * availableQuantity and reservedQuantity of one row. Reservations decrement availableQuantity
+     * with compare-and-set, so requests for a hot product never wait on each other.
+     */
+    public static final class Counter {
+        private final AtomicLong available;
+        private final AtomicLong reserved;
+
+        Counter(long available, long reserved) {
+            this.available = new AtomicLong(available);
+            this.reserved = new AtomicLong(reserved);
+        }
+
+        public boolean tryTake(long quantity) {
+            long current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            reserved.addAndGet(quantity);
+            return true;
+        }
+
+        public void giveBack(long quantity) {
+            reserved.updateAndGet(value -> Math.max(0, value - quantity));
+            available.addAndGet(quantity);
+        }
+
+        public long getAvailable() {
+            return available.get();
+        }
+
+        public long getReserved() {
+            return reserved.get();
+        }
+    }
+}
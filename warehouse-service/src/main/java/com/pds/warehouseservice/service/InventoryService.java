@@ -1,61 +1,189 @@
 package com.pds.warehouseservice.service;
 
 import com.pds.warehouseservice.model.Inventory;
-import com.pds.warehouseservice.model.Product;
+import com.pds.warehouseservice.model.ReservationStatus;
 import com.pds.warehouseservice.model.StockReservation;
 import com.pds.warehouseservice.repository.InventoryRepository;
-import com.pds.warehouseservice.repository.ProductRepository;
 import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.AvailabilityRequest;
+import com.pds.warehouseservice.web.AvailabilityResponse;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.OutOfStockResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.ReshardRequest;
+import com.pds.warehouseservice.web.ReshardResponse;
 import com.pds.warehouseservice.web.StockReservationRequest;
 import com.pds.warehouseservice.web.StockReservationResponse;
-import com.pds.warehouseservice.web.exception.InsufficientStockException;
 import com.pds.warehouseservice.web.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock reservations. How the counters are changed (row locks or the in-memory ledger)
+ * is up to the ReservationStrategy selected by warehouse.inventory.mode.
+ */
 @Service
 public class InventoryService {
 
+    private final ReservationStrategy strategy;
     private final InventoryRepository inventoryRepository;
     private final StockReservationRepository reservationRepository;
+    private final OutOfStockCache outOfStock;
 
-    public InventoryService(InventoryRepository inventoryRepository,
-                            StockReservationRepository reservationRepository) {
-        this.inventoryRepository = inventoryRepository;
+    @Value("${warehouse.inventory.max-buckets:64}")
+    private int maxBuckets;
 
+    public InventoryService(ReservationStrategy strategy,
+                            InventoryRepository inventoryRepository,
+                            StockReservationRepository reservationRepository,
+                            OutOfStockCache outOfStock) {
+        this.strategy = strategy;
+        this.inventoryRepository = inventoryRepository;
         this.reservationRepository = reservationRepository;
+        this.outOfStock = outOfStock;
     }
 
     /**
      * Atomically reserve stock in a particular warehouse.
      * Returns a StockReservationResponse with success + reservationId on success.
+     * A product known to be sold out in that warehouse is refused right away (success = false).
      */
-    @Transactional
     public StockReservationResponse reserveItem(StockReservationRequest req) {
-        if (req.getQuantity() <= 0) {
+        if (outOfStock.reject(req.getWarehouseId(), req.getProductCode())) {
             return new StockReservationResponse(false);
         }
+        return strategy.reserveItem(req);
+    }
 
+    /**
+     * Reserve every line of a batch in one warehouse, all-or-nothing.
+     * Nothing is modified unless every line can be satisfied.
+     */
+    public BatchReservationResponse reserveItems(BatchReservationRequest req) {
+        Map<Long, String> soldOut = new HashMap<>();
+        for (BatchReservationRequest.Line line : req.getItems()) {
+            if (line.getProductCode() != null && outOfStock.reject(req.getWarehouseId(), line.getProductCode())) {
+                soldOut.put(line.getProductCode(), "Out of stock");
+            }
+        }
+        if (!soldOut.isEmpty()) {
+            return ReservationStrategy.rejectShort(req.getItems(), soldOut);
+        }
+        return strategy.reserveItems(req);
+    }
 
-        // 1) lock inventory row
-        Inventory inv = inventoryRepository.findByWarehouseAndProductForUpdate(req.getWarehouseId(), req.getProductCode())
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for warehouse " + req.getWarehouseId() + " product " + req.getProductCode()));
+    /**
+     * HELD -> CONFIRMED for every listed reservation that is still held; confirmed reservations no longer expire.
+     * Reservations already released (e.g. expired) are reported back in rejectedIds.
+     */
+    @Transactional
+    public ReservationUpdateResponse confirmReservations(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ReservationUpdateResponse(List.of(), List.of());
+        }
+        strategy.syncReservations();
+        List<Long> updated = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>(ids);
 
-        // 2) check availability
-        if (inv.getAvailableQuantity() < req.getQuantity()) {
-            throw new InsufficientStockException("Not enough stock. Available=" + inv.getAvailableQuantity() + " requested=" + req.getQuantity());
+        for (StockReservation reservation : reservationRepository.findAllByIdForUpdate(ids)) {
+            if (reservation.getStatus() == ReservationStatus.HELD) {
+                reservation.setStatus(ReservationStatus.CONFIRMED);
+                reservation.setExpiresAt(null);
+                updated.add(reservation.getId());
+                rejected.remove(reservation.getId());
+            } else if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+                updated.add(reservation.getId()); // confirming twice is harmless
+                rejected.remove(reservation.getId());
+            }
         }
+        return new ReservationUpdateResponse(updated, rejected);
+    }
 
-        // 4) adjust counts
-        inv.setAvailableQuantity(inv.getAvailableQuantity() - req.getQuantity());
-        inv.setReservedQuantity(inv.getReservedQuantity() + req.getQuantity());
-        inv.touch();
-        inventoryRepository.save(inv);
+    /**
+     * Returns HELD or CONFIRMED reservations to stock (called by order processing when an order fails).
+     */
+    public ReservationUpdateResponse releaseReservations(Collection<Long> ids) {
+        return strategy.release(ids, reservation -> reservation.getStatus() != ReservationStatus.RELEASED);
+    }
 
-        // 5) create reservation record
-        StockReservation reservation = new StockReservation(req.getWarehouseId(), req.getProductCode(), req.getQuantity());
-        StockReservation saved = reservationRepository.save(reservation);
+    /**
+     * Returns expired holds to stock; used by the ReservationSweeper.
+     * Re-checked under lock: a hold confirmed since it was selected is left alone.
+     */
+    public ReservationUpdateResponse releaseExpired(Collection<Long> ids) {
+        Instant now = Instant.now();
+        return strategy.release(ids, reservation -> reservation.getStatus() == ReservationStatus.HELD
+                && reservation.getExpiresAt() != null && reservation.getExpiresAt().isBefore(now));
+    }
+
+    /**
+     * Available quantities for every requested (warehouse, product) pair, without taking locks.
+     * The numbers are a point-in-time view; only a reservation guarantees stock.
+     */
+    public AvailabilityResponse getAvailability(AvailabilityRequest req) {
+        return strategy.getAvailability(req);
+    }
+
+    /**
+     * The products currently refused as sold out, and how many requests that saved.
+     */
+    public OutOfStockResponse getOutOfStock() {
+        return outOfStock.stats();
+    }
+
+    /**
+     * Spreads one product's stock in a warehouse evenly over buckets 0..buckets-1, while reservations keep running:
+     * every existing bucket is locked in bucket order (the order reservations use), the totals are
+     * redistributed, missing buckets are created and surplus ones deleted. buckets = 1 merges them back.
+     */
+    @Transactional
+    public ReshardResponse reshard(ReshardRequest req) {
+        int buckets = req.getBuckets();
+        if (buckets < 1 || buckets > maxBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "buckets must be between 1 and " + maxBuckets);
+        }
+        List<Inventory> rows = inventoryRepository.findAllBucketsForUpdate(req.getWarehouseId(), req.getProductCode());
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Inventory not found for warehouse " + req.getWarehouseId() + " product " + req.getProductCode());
+        }
+        long available = rows.stream().mapToLong(Inventory::getAvailableQuantity).sum();
+        long reserved = rows.stream().mapToLong(Inventory::getReservedQuantity).sum();
+
+        Map<Integer, Inventory> byBucket = new HashMap<>();
+        rows.forEach(inv -> byBucket.put(inv.getBucket(), inv));
+        List<Inventory> kept = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            Inventory inv = byBucket.remove(bucket);
+            if (inv == null) {
+                inv = new Inventory(req.getWarehouseId(), rows.get(0).getProduct(), 0);
+                inv.setBucket(bucket);
+            }
+            inv.setAvailableQuantity(share(available, buckets, bucket));
+            inv.setReservedQuantity(share(reserved, buckets, bucket));
+            inv.touch();
+            kept.add(inv);
+        }
+        inventoryRepository.saveAll(kept);
+        inventoryRepository.deleteAll(byBucket.values());
+
+        System.out.println("Re-sharded warehouse " + req.getWarehouseId() + " product " + req.getProductCode()
+                + " from " + rows.size() + " to " + buckets + " buckets");
+        return new ReshardResponse(req.getWarehouseId(), req.getProductCode(), buckets, available, reserved);
+    }
 
-        return new StockReservationResponse(true, saved.getId());
+    // Even split; the first (total % buckets) buckets get one more
+    private long share(long total, int buckets, int bucket) {
+        return total / buckets + (bucket < total % buckets ? 1 : 0);
     }
 }
@@ -0,0 +1,136 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.web.AvailabilityRequest;
+import com.pds.warehouseservice.web.AvailabilityResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only copy of availableQuantity per (warehouse, product), summed over its buckets, serving
+ * POST /availability without touching the inventories rows a reservation may be locking.
+ * Refreshed incrementally: every refresh-interval-ms only products with a row whose updated_at moved
+ * are re-read (all their buckets, so a re-shard is picked up as a whole), with an overlap window so
+ * rows committed slightly out of updated_at order are not missed.
+ * A periodic full reload also drops rows that were deleted.
+ * Products it sees with stock again are taken off the OutOfStockCache, and every product it reads
+ * is published to the InventoryEventLog (which drops those whose totals did not change).
+ * Not used in ledger mode, where the counters themselves are lock-free.
+ */
+@Component
+@ConditionalOnExpression("'${warehouse.inventory.mode:locking}' != 'ledger'")
+@DependsOnDatabaseInitialization
+public class InventorySnapshot {
+
+    private final InventoryRepository inventoryRepository;
+    private final OutOfStockCache outOfStock;
+    private final InventoryEventLog eventLog;
+    private final ConcurrentHashMap<List<Long>, Long> available = new ConcurrentHashMap<>();
+
+    // Rows updated less than this before the last refresh are read again
+    @Value("${warehouse.availability.refresh-overlap:PT5S}")
+    private Duration overlap;
+
+    private volatile Instant refreshedAt = Instant.EPOCH;
+
+    public InventorySnapshot(InventoryRepository inventoryRepository, OutOfStockCache outOfStock, InventoryEventLog eventLog) {
+        this.inventoryRepository = inventoryRepository;
+        this.outOfStock = outOfStock;
+        this.eventLog = eventLog;
+    }
+
+    // Both queries fetch the product with the row, so no transaction needs to stay open
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${warehouse.availability.full-reload-interval-ms:300000}",
+            initialDelayString = "${warehouse.availability.full-reload-interval-ms:300000}")
+    public synchronized void reload() {
+        Instant started = Instant.now();
+        Map<List<Long>, Totals> fresh = sumBuckets(inventoryRepository.findAllWithProduct());
+        available.keySet().retainAll(fresh.keySet());
+        store(fresh);
+        refreshedAt = started;
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.availability.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        Instant started = Instant.now();
+        Set<List<Long>> changed = new HashSet<>();
+        for (Inventory inv : inventoryRepository.findUpdatedSince(refreshedAt.minus(overlap))) {
+            changed.add(key(inv));
+        }
+        if (!changed.isEmpty()) {
+            Set<Long> warehouseIds = new HashSet<>();
+            Set<Long> productCodes = new HashSet<>();
+            changed.forEach(key -> {
+                warehouseIds.add(key.get(0));
+                productCodes.add(key.get(1));
+            });
+            List<Inventory> buckets = inventoryRepository.findByWarehousesAndProducts(warehouseIds, productCodes).stream()
+                    .filter(inv -> changed.contains(key(inv)))
+                    .toList();
+            store(sumBuckets(buckets));
+        }
+        refreshedAt = started;
+    }
+
+    /**
+     * Quantities as of the last refresh; pairs without an inventories row are left out.
+     */
+    public AvailabilityResponse get(AvailabilityRequest req) {
+        Instant asOf = refreshedAt;
+        List<AvailabilityResponse.Entry> entries = new ArrayList<>();
+        for (Long warehouseId : req.getWarehouseIds()) {
+            for (Long productCode : req.getProductCodes()) {
+                Long quantity = available.get(List.of(warehouseId, productCode));
+                if (quantity != null) {
+                    entries.add(new AvailabilityResponse.Entry(warehouseId, productCode, quantity));
+                }
+            }
+        }
+        return new AvailabilityResponse(entries, asOf);
+    }
+
+    // Stock seen here that a reservation found sold out was replenished (or released by another instance)
+    private void store(Map<List<Long>, Totals> sums) {
+        sums.forEach((key, totals) -> {
+            available.put(key, totals.available());
+            eventLog.publish(key.get(0), key.get(1), totals.available(), totals.reserved());
+            if (totals.available() > 0) {
+                outOfStock.restocked(key.get(0), key.get(1));
+            }
+        });
+    }
+
+    private Map<List<Long>, Totals> sumBuckets(List<Inventory> rows) {
+        Map<List<Long>, Totals> sums = new HashMap<>();
+        for (Inventory inv : rows) {
+            sums.merge(key(inv), new Totals(inv.getAvailableQuantity(), inv.getReservedQuantity()), Totals::plus);
+        }
+        return sums;
+    }
+
+    private List<Long> key(Inventory inv) {
+        return List.of(inv.getWarehouseId(), inv.getProduct().getProductCode());
+    }
+
+    private record Totals(long available, long reserved) {
+        Totals plus(Totals other) {
+            return new Totals(available + other.available, reserved + other.reserved);
+        }
+    }
+}
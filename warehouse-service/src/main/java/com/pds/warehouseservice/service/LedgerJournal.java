@@ -0,0 +1,204 @@
+package com.pds.warehouseservice.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of the reservations handed out by the InventoryLedger.
+ * Entries go to the current segment file; append() returns only once they are forced to disk,
+ * and callers that arrive while an fsync is running share the next one (group commit).
+ * The flusher rotates the current segment away, writes its entries to MySQL and then deletes it.
+ * Lock order: syncLock before writeLock.
+ */
+class LedgerJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Guarded by writeLock
+    private FileChannel channel;
+    private Path currentFile;
+    private List<Entry> currentEntries = new ArrayList<>();
+    private long nextSeq = 1;
+    private long writtenSeq;
+
+    private volatile long syncedSeq;
+
+    LedgerJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the segments left by the previous run, in sequence order, and starts a new segment after them.
+     * A torn last line (crash in the middle of a write) was never acknowledged and is dropped.
+     * @param checkpoint The last sequence number already in MySQL. Sequence numbers continue after it
+     *                   even when the flushed segments are gone, so new entries are never taken for flushed ones.
+     */
+    List<Segment> open(long checkpoint) throws IOException {
+        Files.createDirectories(directory);
+        nextSeq = checkpoint + 1;
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)).sorted().toList();
+        }
+
+        List<Segment> segments = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            String[] lines = content.split("\n");
+            int complete = content.endsWith("\n") ? lines.length : lines.length - 1;
+            List<Entry> entries = new ArrayList<>(complete);
+            for (int i = 0; i < complete; i++) {
+                if (!lines[i].isBlank()) {
+                    entries.add(Entry.parse(lines[i]));
+                }
+            }
+            if (!entries.isEmpty()) {
+                nextSeq = Math.max(nextSeq, entries.get(entries.size() - 1).seq() + 1);
+            }
+            segments.add(new Segment(file, entries));
+        }
+
+        writtenSeq = nextSeq - 1;
+        syncedSeq = writtenSeq;
+        openSegment();
+        return segments;
+    }
+
+    /**
+     * Assigns sequence numbers to the entries and returns once they are durable.
+     */
+    List<Entry> append(List<Entry> drafts) throws IOException {
+        List<Entry> entries = new ArrayList<>(drafts.size());
+        long lastSeq;
+        writeLock.lock();
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (Entry draft : drafts) {
+                Entry entry = draft.withSeq(nextSeq++);
+                entries.add(entry);
+                lines.append(entry.format()).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            currentEntries.addAll(entries);
+            writtenSeq = nextSeq - 1;
+            lastSeq = writtenSeq;
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(lastSeq);
+        return entries;
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     * @return The closed segment, or null if nothing was written to it.
+     */
+    Segment rotate() throws IOException {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            if (currentEntries.isEmpty()) {
+                return null;
+            }
+            channel.force(false);
+            channel.close();
+            Segment closed = new Segment(currentFile, currentEntries);
+            syncedSeq = writtenSeq;
+            openSegment();
+            return closed;
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    void delete(Segment segment) throws IOException {
+        Files.deleteIfExists(segment.file());
+    }
+
+    void close() throws IOException {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    // One fsync covers everything written before it started
+    private void awaitDurable(long seq) throws IOException {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSeq >= seq) {
+                return; // another caller's fsync covered this entry while we waited
+            }
+            long target;
+            FileChannel toSync;
+            writeLock.lock();
+            try {
+                target = writtenSeq;
+                toSync = channel;
+            } finally {
+                writeLock.unlock();
+            }
+            toSync.force(false);
+            syncedSeq = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        currentFile = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSeq, SEGMENT_SUFFIX));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentEntries = new ArrayList<>();
+    }
+
+    /**
+     * One HELD reservation: seq,reservationId,warehouseId,productCode,quantity,createdAtMillis,expiresAtMillis
+     */
+    record Entry(long seq, long reservationId, long warehouseId, long productCode, long quantity,
+                 long createdAtMillis, long expiresAtMillis) {
+
+        Entry withSeq(long seq) {
+            return new Entry(seq, reservationId, warehouseId, productCode, quantity, createdAtMillis, expiresAtMillis);
+        }
+
+        String format() {
+            return seq + "," + reservationId + "," + warehouseId + "," + productCode + "," + quantity + ","
+                    + createdAtMillis + "," + expiresAtMillis;
+        }
+
+        static Entry parse(String line) {
+            String[] f = line.split(",");
+            return new Entry(Long.parseLong(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2]), Long.parseLong(f[3]),
+                    Long.parseLong(f[4]), Long.parseLong(f[5]), Long.parseLong(f[6]));
+        }
+    }
+
+    record Segment(Path file, List<Entry> entries) {}
+}
@@ -0,0 +1,189 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.ReservationStatus;
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.AvailabilityRequest;
+import com.pds.warehouseservice.web.AvailabilityResponse;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+import com.pds.warehouseservice.web.exception.InsufficientStockException;
+import com.pds.warehouseservice.web.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * warehouse.inventory.mode=ledger: reservations are taken from the InventoryLedger's in-memory
+ * counters and journaled; MySQL is only written by the background flush.
+ * Releases still lock their stock_reservations rows, so confirm and release stay exclusive.
+ */
+@Component
+@ConditionalOnProperty(name = "warehouse.inventory.mode", havingValue = "ledger")
+public class LedgerReservationStrategy implements ReservationStrategy {
+
+    private final InventoryLedger ledger;
+    private final StockReservationRepository reservationRepository;
+    private final OutOfStockCache outOfStock;
+
+    // How long a reservation stays HELD before the sweeper returns it to stock
+    @Value("${warehouse.reservation.hold-ttl:PT15M}")
+    private Duration holdTtl;
+
+    public LedgerReservationStrategy(InventoryLedger ledger, StockReservationRepository reservationRepository,
+                                     OutOfStockCache outOfStock) {
+        this.ledger = ledger;
+        this.reservationRepository = reservationRepository;
+        this.outOfStock = outOfStock;
+    }
+
+    @Override
+    public StockReservationResponse reserveItem(StockReservationRequest req) {
+        if (req.getQuantity() <= 0) {
+            return new StockReservationResponse(false);
+        }
+
+        InventoryLedger.Counter counter = ledger.counter(req.getWarehouseId(), req.getProductCode());
+        if (counter == null) {
+            throw new ResourceNotFoundException("Inventory not found for warehouse " + req.getWarehouseId() + " product " + req.getProductCode());
+        }
+        if (!counter.tryTake(req.getQuantity())) {
+            markIfSoldOut(req.getWarehouseId(), req.getProductCode(), counter);
+            throw new InsufficientStockException("Not enough stock. Available=" + counter.getAvailable() + " requested=" + req.getQuantity());
+        }
+
+        try {
+            List<Long> ids = ledger.record(req.getWarehouseId(),
+                    List.of(new BatchReservationRequest.Line(req.getProductCode(), req.getQuantity())),
+                    Instant.now().plus(holdTtl));
+            return new StockReservationResponse(true, ids.get(0));
+        } catch (RuntimeException e) {
+            counter.giveBack(req.getQuantity());
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReservationResponse reserveItems(BatchReservationRequest req) {
+        List<BatchReservationRequest.Line> lines = req.getItems();
+
+        // 1) total demand per product (duplicate lines for one product share a counter)
+        Map<Long, Long> demand = new TreeMap<>();
+        for (BatchReservationRequest.Line line : lines) {
+            if (line.getProductCode() == null || line.getQuantity() <= 0) {
+                return ReservationStrategy.rejectAll(lines, "Invalid line");
+            }
+            demand.merge(line.getProductCode(), (long) line.getQuantity(), Long::sum);
+        }
+
+        // 2) take stock product by product; after the first shortage the rest is only checked
+        Map<InventoryLedger.Counter, Long> taken = new HashMap<>();
+        Map<Long, String> shortages = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : demand.entrySet()) {
+            Long productCode = entry.getKey();
+            InventoryLedger.Counter counter = ledger.counter(req.getWarehouseId(), productCode);
+            if (counter == null) {
+                shortages.put(productCode, "Inventory not found for warehouse " + req.getWarehouseId() + " product " + productCode);
+            } else if (shortages.isEmpty() ? counter.tryTake(entry.getValue()) : counter.getAvailable() >= entry.getValue()) {
+                if (shortages.isEmpty()) {
+                    taken.put(counter, entry.getValue());
+                }
+            } else {
+                markIfSoldOut(req.getWarehouseId(), productCode, counter);
+                shortages.put(productCode, "Not enough stock. Available=" + counter.getAvailable() + " requested=" + entry.getValue());
+            }
+        }
+
+        // 3) any shortage rejects the whole batch and gives back what was taken
+        if (!shortages.isEmpty()) {
+            taken.forEach(InventoryLedger.Counter::giveBack);
+            return ReservationStrategy.rejectShort(lines, shortages);
+        }
+
+        // 4) journal one HELD reservation per line
+        List<Long> ids;
+        try {
+            ids = ledger.record(req.getWarehouseId(), lines, Instant.now().plus(holdTtl));
+        } catch (RuntimeException e) {
+            taken.forEach(InventoryLedger.Counter::giveBack);
+            throw e;
+        }
+
+        List<BatchReservationResponse.LineResult> results = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            BatchReservationRequest.Line line = lines.get(i);
+            results.add(new BatchReservationResponse.LineResult(line.getProductCode(), line.getQuantity(),
+                    true, ids.get(i), null));
+        }
+        return new BatchReservationResponse(true, results);
+    }
+
+    @Override
+    public AvailabilityResponse getAvailability(AvailabilityRequest req) {
+        List<AvailabilityResponse.Entry> entries = new ArrayList<>();
+        for (Long warehouseId : req.getWarehouseIds()) {
+            for (Long productCode : req.getProductCodes()) {
+                InventoryLedger.Counter counter = ledger.counter(warehouseId, productCode);
+                if (counter != null) {
+                    entries.add(new AvailabilityResponse.Entry(warehouseId, productCode, counter.getAvailable()));
+                }
+            }
+        }
+        return new AvailabilityResponse(entries, Instant.now());
+    }
+
+    @Override
+    @Transactional
+    public ReservationUpdateResponse release(Collection<Long> ids, Predicate<StockReservation> releasable) {
+        if (ids.isEmpty()) {
+            return new ReservationUpdateResponse(List.of(), List.of());
+        }
+        ledger.flush(); // reservations handed out since the last flush must exist as rows first
+        List<Long> updated = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>(ids);
+
+        // Lock the reservations and re-check their state; the stock goes back through the ledger
+        Map<InventoryLedger.Key, Long> returned = new TreeMap<>();
+        Instant now = Instant.now();
+        for (StockReservation reservation : reservationRepository.findAllByIdForUpdate(ids)) {
+            if (!releasable.test(reservation)) {
+                continue;
+            }
+            returned.merge(new InventoryLedger.Key(reservation.getWarehouseId(), reservation.getProductCode()),
+                    reservation.getQuantity(), Long::sum);
+            reservation.setStatus(ReservationStatus.RELEASED);
+            reservation.setExpiresAt(null);
+            reservation.setReleasedAt(now);
+            updated.add(reservation.getId());
+            rejected.remove(reservation.getId());
+        }
+        ledger.returnStock(returned);
+        returned.keySet().forEach(key -> outOfStock.restocked(key.warehouseId(), key.productCode()));
+        return new ReservationUpdateResponse(updated, rejected);
+    }
+
+    @Override
+    public void syncReservations() {
+        ledger.flush();
+    }
+
+    private void markIfSoldOut(Long warehouseId, Long productCode, InventoryLedger.Counter counter) {
+        if (counter.getAvailable() == 0) {
+            outOfStock.markSoldOut(warehouseId, productCode);
+        }
+    }
+}
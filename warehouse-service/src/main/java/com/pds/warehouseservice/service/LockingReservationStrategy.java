@@ -0,0 +1,82 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Default mode: every reservation locks the inventories rows it changes (SELECT ... FOR UPDATE),
+ * so any number of instances can share the table. Requests for one hot row queue on its lock.
+ */
+@Component
+@ConditionalOnProperty(name = "warehouse.inventory.mode", havingValue = "locking", matchIfMissing = true)
+public class LockingReservationStrategy extends RowReservationStrategy {
+
+    private final TransactionTemplate transactionTemplate;
+
+    public LockingReservationStrategy(InventoryRepository inventoryRepository,
+                                      StockReservationRepository reservationRepository,
+                                      InventorySnapshot snapshot,
+                                      OutOfStockCache outOfStock,
+                                      PlatformTransactionManager transactionManager) {
+        super(inventoryRepository, reservationRepository, snapshot, outOfStock);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    protected Optional<Inventory> findBucket(Long inventoryId) {
+        return inventoryRepository.findByIdForUpdate(inventoryId);
+    }
+
+    @Override
+    protected List<Inventory> findAllBuckets(Long warehouseId, Long productCode) {
+        return inventoryRepository.findAllBucketsForUpdate(warehouseId, productCode);
+    }
+
+    @Override
+    protected boolean locksBuckets() {
+        return true;
+    }
+
+    @Override
+    public StockReservationResponse reserveItem(StockReservationRequest req) {
+        return inBucketOrderOnRetry(fromFirstBucket -> doReserveItem(req, fromFirstBucket));
+    }
+
+    @Override
+    public BatchReservationResponse reserveItems(BatchReservationRequest req) {
+        return inBucketOrderOnRetry(fromFirstBucket -> doReserveItems(req, fromFirstBucket));
+    }
+
+    @Override
+    @Transactional
+    public ReservationUpdateResponse release(Collection<Long> ids, Predicate<StockReservation> releasable) {
+        return doRelease(ids, releasable);
+    }
+
+    // Each attempt is its own transaction, so the retry starts without the locks of the first one
+    private <T> T inBucketOrderOnRetry(Function<Boolean, T> attempt) {
+        try {
+            return transactionTemplate.execute(status -> attempt.apply(false));
+        } catch (BucketOrderRetry e) {
+            return transactionTemplate.execute(status -> attempt.apply(true));
+        }
+    }
+}
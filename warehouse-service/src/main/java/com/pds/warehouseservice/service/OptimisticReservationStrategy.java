@@ -0,0 +1,112 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+import com.pds.warehouseservice.web.exception.ReservationConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * warehouse.inventory.mode=optimistic: rows are read without locks and written with a
+ * version check (Inventory.version). A request that loses a race is retried in a fresh
+ * transaction after a jittered exponential backoff, up to max-attempts times.
+ * No lock is held while the request runs, so uncontended rows never wait; a row that
+ * many requests update at once turns into retries instead of a lock queue.
+ */
+@Component
+@ConditionalOnProperty(name = "warehouse.inventory.mode", havingValue = "optimistic")
+public class OptimisticReservationStrategy extends RowReservationStrategy {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    public OptimisticReservationStrategy(InventoryRepository inventoryRepository,
+                                         StockReservationRepository reservationRepository,
+                                         InventorySnapshot snapshot,
+                                         OutOfStockCache outOfStock,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${warehouse.inventory.optimistic.max-attempts:5}") int maxAttempts,
+                                         @Value("${warehouse.inventory.optimistic.backoff-base-ms:2}") long backoffBaseMillis,
+                                         @Value("${warehouse.inventory.optimistic.backoff-max-ms:50}") long backoffMaxMillis) {
+        super(inventoryRepository, reservationRepository, snapshot, outOfStock);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    @Override
+    protected Optional<Inventory> findBucket(Long inventoryId) {
+        return inventoryRepository.findById(inventoryId);
+    }
+
+    @Override
+    protected List<Inventory> findAllBuckets(Long warehouseId, Long productCode) {
+        return inventoryRepository.findAllBuckets(warehouseId, productCode);
+    }
+
+    @Override
+    protected boolean locksBuckets() {
+        return false;
+    }
+
+    @Override
+    public StockReservationResponse reserveItem(StockReservationRequest req) {
+        return withRetry(() -> doReserveItem(req, false));
+    }
+
+    @Override
+    public BatchReservationResponse reserveItems(BatchReservationRequest req) {
+        return withRetry(() -> doReserveItems(req, false));
+    }
+
+    @Override
+    public ReservationUpdateResponse release(Collection<Long> ids, Predicate<StockReservation> releasable) {
+        return withRetry(() -> doRelease(ids, releasable));
+    }
+
+    // Each attempt is its own transaction: the version conflict surfaces when it commits
+    private <T> T withRetry(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return transactionTemplate.execute(status -> attempt.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (i >= maxAttempts) {
+                    throw new ReservationConflictException("Inventory row kept changing concurrently; gave up after " + i + " attempts");
+                }
+                backoff(i);
+            }
+        }
+    }
+
+    // Full jitter: a random pause up to base * 2^(attempt - 1), capped, so retries of one row spread out
+    private void backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReservationConflictException("Interrupted while retrying the reservation");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.web.OutOfStockResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * (warehouse, product) pairs last seen with no available stock at all, so InventoryService can turn
+ * reservations for a sold-out product away without a database round trip or an exception.
+ * A pair is marked by the ReservationStrategy when it reads a total of 0, and unmarked when stock
+ * goes back (a release commits) or shows up in the InventorySnapshot (replenishment).
+ * Marks expire after warehouse.inventory.out-of-stock.ttl, which bounds how long a missed
+ * unmark (e.g. another instance releasing the stock) can turn requests away.
+ */
+@Component
+public class OutOfStockCache {
+
+    private final ConcurrentHashMap<List<Long>, Instant> soldOut = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder marked = new LongAdder();
+    private final LongAdder unmarked = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @Value("${warehouse.inventory.out-of-stock.ttl:PT30S}")
+    private Duration ttl;
+
+    /**
+     * True if the pair is marked sold out; counts the request as rejected.
+     */
+    public boolean reject(Long warehouseId, Long productCode) {
+        List<Long> key = List.of(warehouseId, productCode);
+        Instant markedAt = soldOut.get(key);
+        if (markedAt == null) {
+            return false;
+        }
+        if (markedAt.plus(ttl).isBefore(Instant.now())) {
+            if (soldOut.remove(key, markedAt)) {
+                expired.increment();
+            }
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    public void markSoldOut(Long warehouseId, Long productCode) {
+        if (soldOut.putIfAbsent(List.of(warehouseId, productCode), Instant.now()) == null) {
+            marked.increment();
+        }
+    }
+
+    /**
+     * Stock came back; inside a transaction the mark is dropped once it commits, so a reservation
+     * that still reads the old total cannot be let through and then find nothing.
+     */
+    public void restocked(Long warehouseId, Long productCode) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            unmark(List.of(warehouseId, productCode));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                unmark(List.of(warehouseId, productCode));
+            }
+        });
+    }
+
+    public OutOfStockResponse stats() {
+        Instant now = Instant.now();
+        List<OutOfStockResponse.Entry> entries = soldOut.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(e -> new OutOfStockResponse.Entry(e.getKey().get(0), e.getKey().get(1), e.getValue()))
+                .toList();
+        // Oldest first: its age is how long the set may have been wrong about a product
+        long oldestAgeMillis = entries.isEmpty() ? 0 : Duration.between(entries.get(0).getMarkedAt(), now).toMillis();
+        return new OutOfStockResponse(entries, rejected.sum(), marked.sum(), unmarked.sum(), expired.sum(),
+                oldestAgeMillis, ttl.toMillis(), now);
+    }
+
+    private void unmark(List<Long> key) {
+        if (soldOut.remove(key) != null) {
+            unmarked.increment();
+        }
+    }
+}
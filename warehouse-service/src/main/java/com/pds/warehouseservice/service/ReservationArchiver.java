@@ -0,0 +1,189 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.ReservationDailyTotal;
+import com.pds.warehouseservice.model.ReservationStatus;
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.repository.ReservationDailyTotalRepository;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps stock_reservations down to the reservations that can still change: finished ones (CONFIRMED or
+ * RELEASED) created more than archive-after ago, in whole UTC days, are rolled up into
+ * reservation_daily_totals and moved to one gzip CSV file per creation day in archive-dir.
+ * Confirm, release and the sweeper only touch rows by id or through the (status, expires_at) index, so
+ * they stay fast however much history there was; a reservation archived this way can no longer be released.
+ *
+ * Each batch is one transaction: lock the rows, append them to the day files (a new gzip member each
+ * time, flushed to disk), add them to the totals, delete them. If the transaction then fails the rows are
+ * archived again by the next run, so a file may hold a batch twice; the id column tells them apart.
+ */
+@Component
+public class ReservationArchiver {
+
+    private static final List<ReservationStatus> FINISHED = List.of(ReservationStatus.RELEASED, ReservationStatus.CONFIRMED);
+    private static final String HEADER = "id,warehouse_id,product_code,quantity,status,created_at,expires_at,released_at";
+
+    private final StockReservationRepository reservationRepository;
+    private final ReservationDailyTotalRepository dailyTotalRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path archiveDir;
+
+    // Confirmed reservations younger than this may still be released by order processing
+    @Value("${warehouse.reservation.archive-after:P7D}")
+    private Duration archiveAfter;
+
+    @Value("${warehouse.reservation.archive-batch-size:1000}")
+    private int batchSize;
+
+    public ReservationArchiver(StockReservationRepository reservationRepository,
+                               ReservationDailyTotalRepository dailyTotalRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${warehouse.reservation.archive-dir:./data/reservation-archive}") String archiveDir) {
+        this.reservationRepository = reservationRepository;
+        this.dailyTotalRepository = dailyTotalRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveDir = Path.of(archiveDir);
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.reservation.archive-interval-ms:3600000}",
+            initialDelayString = "${warehouse.reservation.archive-interval-ms:3600000}")
+    public void archive() {
+        Instant before = Instant.now().minus(archiveAfter).truncatedTo(ChronoUnit.DAYS);
+        int archived = 0;
+        for (ReservationStatus status : FINISHED) {
+            List<Long> ids;
+            do {
+                ids = reservationRepository.findIdsByStatusCreatedBefore(status, before, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                List<Long> batch = ids;
+                int moved;
+                try {
+                    moved = transactionTemplate.execute(tx -> archiveBatch(batch));
+                } catch (RuntimeException e) {
+                    System.err.println("Archiving stock reservations failed, retrying on the next run: " + e.getMessage());
+                    return;
+                }
+                archived += moved;
+                if (moved == 0) {
+                    break; // archived concurrently by another instance
+                }
+            } while (ids.size() == batchSize);
+        }
+
+        if (archived > 0) {
+            System.out.println("Archived " + archived + " finished stock reservations created before " + before);
+        }
+    }
+
+    private int archiveBatch(List<Long> ids) {
+        List<StockReservation> rows = reservationRepository.findAllByIdForUpdate(ids).stream()
+                .filter(reservation -> reservation.getStatus() != ReservationStatus.HELD)
+                .toList();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<LocalDate, List<StockReservation>> byDay = new TreeMap<>();
+        for (StockReservation reservation : rows) {
+            byDay.computeIfAbsent(day(reservation), day -> new ArrayList<>()).add(reservation);
+        }
+        byDay.forEach(this::append);
+
+        rollUp(rows);
+        reservationRepository.deleteAllByIdInBatch(rows.stream().map(StockReservation::getId).toList());
+        return rows.size();
+    }
+
+    private void rollUp(List<StockReservation> rows) {
+        Map<TotalKey, ReservationDailyTotal> totals = new TreeMap<>();
+        for (StockReservation reservation : rows) {
+            TotalKey key = new TotalKey(day(reservation), reservation.getWarehouseId(), reservation.getProductCode(), reservation.getStatus());
+            ReservationDailyTotal total = totals.computeIfAbsent(key, k -> dailyTotalRepository
+                    .findByDayAndWarehouseIdAndProductCodeAndStatus(k.day(), k.warehouseId(), k.productCode(), k.status())
+                    .orElseGet(() -> new ReservationDailyTotal(k.day(), k.warehouseId(), k.productCode(), k.status())));
+            total.setReservations(total.getReservations() + 1);
+            total.setQuantity(total.getQuantity() + reservation.getQuantity());
+            total.setLastReservationId(Math.max(total.getLastReservationId(), reservation.getId()));
+        }
+        dailyTotalRepository.saveAll(totals.values());
+    }
+
+    // Appends one gzip member; readers such as zcat or GZIPInputStream see the members as one file
+    private void append(LocalDate day, List<StockReservation> rows) {
+        Path file = archiveDir.resolve("stock_reservations-" + day + ".csv.gz");
+        try {
+            Files.createDirectories(archiveDir);
+            boolean created = Files.notExists(file);
+            try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+                if (created) {
+                    writer.write(HEADER);
+                    writer.newLine();
+                }
+                for (StockReservation reservation : rows) {
+                    writer.write(csv(reservation));
+                    writer.newLine();
+                }
+                writer.flush();
+                gzip.finish();
+                out.getFD().sync(); // on disk before the rows are deleted
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reservation archive " + file, e);
+        }
+    }
+
+    private String csv(StockReservation reservation) {
+        return reservation.getId() + "," + reservation.getWarehouseId() + "," + reservation.getProductCode() + ","
+                + reservation.getQuantity() + "," + reservation.getStatus() + "," + orEmpty(reservation.getCreatedAt()) + ","
+                + orEmpty(reservation.getExpiresAt()) + "," + orEmpty(reservation.getReleasedAt());
+    }
+
+    private String orEmpty(Instant instant) {
+        return instant == null ? "" : instant.toString();
+    }
+
+    private LocalDate day(StockReservation reservation) {
+        return LocalDate.ofInstant(reservation.getCreatedAt(), ZoneOffset.UTC);
+    }
+
+    // Ordered like the unique key, so concurrent archivers insert and lock totals in the same order
+    private record TotalKey(LocalDate day, Long warehouseId, Long productCode, ReservationStatus status) implements Comparable<TotalKey> {
+        private static final Comparator<TotalKey> ORDER = Comparator.comparing(TotalKey::day)
+                .thenComparing(TotalKey::warehouseId).thenComparing(TotalKey::productCode).thenComparing(TotalKey::status);
+
+        @Override
+        public int compareTo(TotalKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
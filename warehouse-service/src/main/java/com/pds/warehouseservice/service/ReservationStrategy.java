@@ -0,0 +1,60 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.web.AvailabilityRequest;
+import com.pds.warehouseservice.web.AvailabilityResponse;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * How stock counters are changed, selected by warehouse.inventory.mode:
+ * - locking (default): every reservation locks its inventories row (LockingReservationStrategy)
+ * - optimistic: rows are versioned and conflicting updates retried (OptimisticReservationStrategy)
+ * - ledger: this instance owns the counters in memory and writes them behind (LedgerReservationStrategy)
+ */
+public interface ReservationStrategy {
+
+    StockReservationResponse reserveItem(StockReservationRequest req);
+
+    BatchReservationResponse reserveItems(BatchReservationRequest req);
+
+    AvailabilityResponse getAvailability(AvailabilityRequest req);
+
+    /**
+     * Returns every listed reservation that passes the check (re-evaluated under lock) to stock.
+     */
+    ReservationUpdateResponse release(Collection<Long> ids, Predicate<StockReservation> releasable);
+
+    /**
+     * Makes every reservation handed out so far visible in stock_reservations.
+     */
+    default void syncReservations() {
+    }
+
+    static BatchReservationResponse rejectAll(List<BatchReservationRequest.Line> lines, String message) {
+        List<BatchReservationResponse.LineResult> results = lines.stream()
+                .map(line -> new BatchReservationResponse.LineResult(line.getProductCode(), line.getQuantity(), false, null, message))
+                .toList();
+        return new BatchReservationResponse(false, results);
+    }
+
+    // Any shortage rejects the whole batch; per-line flags tell the caller which lines would fit
+    static BatchReservationResponse rejectShort(List<BatchReservationRequest.Line> lines, Map<Long, String> shortages) {
+        List<BatchReservationResponse.LineResult> results = lines.stream()
+                .map(line -> {
+                    String problem = shortages.get(line.getProductCode());
+                    return new BatchReservationResponse.LineResult(line.getProductCode(), line.getQuantity(),
+                            problem == null, null, problem == null ? "Reservable (batch rejected)" : problem);
+                })
+                .toList();
+        return new BatchReservationResponse(false, results);
+    }
+}
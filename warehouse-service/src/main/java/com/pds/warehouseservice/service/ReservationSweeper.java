@@ -0,0 +1,55 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.ReservationStatus;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Returns expired HELD reservations to availableQuantity, so stock held for orders that
+ * never confirmed (crashed caller, lost release call) becomes sellable again.
+ * Expired holds are found through the (status, expires_at) index and released in batches,
+ * one short transaction per batch.
+ */
+@Component
+public class ReservationSweeper {
+
+    private final StockReservationRepository reservationRepository;
+    private final InventoryService inventoryService;
+
+    @Value("${warehouse.reservation.sweep-batch-size:200}")
+    private int batchSize;
+
+    public ReservationSweeper(StockReservationRepository reservationRepository, InventoryService inventoryService) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryService = inventoryService;
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.reservation.sweep-interval-ms:30000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        int released = 0;
+        List<Long> expired;
+        do {
+            expired = reservationRepository.findIdsByStatusExpiredBefore(
+                    ReservationStatus.HELD, now, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            int batchReleased = inventoryService.releaseExpired(expired).getUpdatedIds().size();
+            released += batchReleased;
+            if (batchReleased == 0) {
+                break; // every selected hold was confirmed concurrently; pick them up on the next run
+            }
+        } while (expired.size() == batchSize);
+
+        if (released > 0) {
+            System.out.println("Released " + released + " expired stock reservations");
+        }
+    }
+}
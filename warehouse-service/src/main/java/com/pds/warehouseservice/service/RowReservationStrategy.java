@@ -0,0 +1,280 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.InventoryBucket;
+import com.pds.warehouseservice.model.ReservationStatus;
+import com.pds.warehouseservice.model.StockReservation;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.AvailabilityRequest;
+import com.pds.warehouseservice.web.AvailabilityResponse;
+import com.pds.warehouseservice.web.BatchReservationRequest;
+import com.pds.warehouseservice.web.BatchReservationResponse;
+import com.pds.warehouseservice.web.ReservationUpdateResponse;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+import com.pds.warehouseservice.web.exception.InsufficientStockException;
+import com.pds.warehouseservice.web.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Reservations that read, check and update the inventories rows through JPA in one transaction.
+ * Subclasses decide how a row is read (locked or versioned) and where the transaction starts.
+ *
+ * A product's stock may be split over several bucket rows (InventoryService.reshard). A reservation
+ * takes it from one random bucket that can cover it, so concurrent reservations of a hot product
+ * mostly lock different rows. Rows of one product are always locked in bucket order, and products
+ * in productCode order, so no two transactions wait on each other in a cycle.
+ */
+abstract class RowReservationStrategy implements ReservationStrategy {
+
+    protected final InventoryRepository inventoryRepository;
+    protected final StockReservationRepository reservationRepository;
+    private final InventorySnapshot snapshot;
+    private final OutOfStockCache outOfStock;
+
+    // How long a reservation stays HELD before the sweeper returns it to stock
+    @Value("${warehouse.reservation.hold-ttl:PT15M}")
+    private Duration holdTtl;
+
+    protected RowReservationStrategy(InventoryRepository inventoryRepository,
+                                     StockReservationRepository reservationRepository,
+                                     InventorySnapshot snapshot,
+                                     OutOfStockCache outOfStock) {
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        this.snapshot = snapshot;
+        this.outOfStock = outOfStock;
+    }
+
+    /**
+     * One bucket row, consistent until the surrounding transaction commits; empty if it was deleted.
+     */
+    protected abstract Optional<Inventory> findBucket(Long inventoryId);
+
+    /**
+     * Every bucket row of a product, in bucket order.
+     */
+    protected abstract List<Inventory> findAllBuckets(Long warehouseId, Long productCode);
+
+    /**
+     * Whether findBucket / findAllBuckets lock the rows they read until the transaction ends.
+     */
+    protected abstract boolean locksBuckets();
+
+    /**
+     * @param fromFirstBucket take the stock across every bucket in bucket order instead of from one random
+     *                        bucket; set when retrying after {@link BucketOrderRetry}
+     */
+    protected StockReservationResponse doReserveItem(StockReservationRequest req, boolean fromFirstBucket) {
+        if (req.getQuantity() <= 0) {
+            return new StockReservationResponse(false);
+        }
+
+        // 1) pick and read the bucket row(s); throws if the stock is not there
+        List<Take> takes = allocate(req.getWarehouseId(), req.getProductCode(), req.getQuantity(), fromFirstBucket);
+
+        // 2) adjust counts
+        apply(takes);
+
+        // 3) create reservation record
+        StockReservation reservation = new StockReservation(req.getWarehouseId(), req.getProductCode(), req.getQuantity(),
+                Instant.now().plus(holdTtl));
+        StockReservation saved = reservationRepository.save(reservation);
+
+        return new StockReservationResponse(true, saved.getId());
+    }
+
+    /**
+     * Products are allocated one at a time in ascending productCode order so two batches
+     * touching the same products always lock or update them in the same order (no deadlocks).
+     * Nothing is modified unless every line can be satisfied.
+     */
+    protected BatchReservationResponse doReserveItems(BatchReservationRequest req, boolean fromFirstBucket) {
+        List<BatchReservationRequest.Line> lines = req.getItems();
+
+        // 1) total demand per product (duplicate lines for one product are taken together), sorted by productCode
+        Map<Long, Long> demand = new TreeMap<>();
+        for (BatchReservationRequest.Line line : lines) {
+            if (line.getProductCode() == null || line.getQuantity() <= 0) {
+                return ReservationStrategy.rejectAll(lines, "Invalid line");
+            }
+            demand.merge(line.getProductCode(), (long) line.getQuantity(), Long::sum);
+        }
+
+        // 2) allocate in deterministic order and check availability
+        List<Take> takes = new ArrayList<>();
+        Map<Long, String> shortages = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : demand.entrySet()) {
+            try {
+                takes.addAll(allocate(req.getWarehouseId(), entry.getKey(), entry.getValue(), fromFirstBucket));
+            } catch (ResourceNotFoundException | InsufficientStockException e) {
+                shortages.put(entry.getKey(), e.getMessage());
+            }
+        }
+
+        // 3) any shortage rejects the whole batch
+        if (!shortages.isEmpty()) {
+            return ReservationStrategy.rejectShort(lines, shortages);
+        }
+
+        // 4) adjust counts
+        apply(takes);
+
+        // 5) create one HELD reservation record per line
+        Instant expiresAt = Instant.now().plus(holdTtl);
+        List<StockReservation> reservations = new ArrayList<>(lines.size());
+        for (BatchReservationRequest.Line line : lines) {
+            reservations.add(new StockReservation(req.getWarehouseId(), line.getProductCode(), line.getQuantity(), expiresAt));
+        }
+        List<StockReservation> saved = reservationRepository.saveAll(reservations);
+
+        List<BatchReservationResponse.LineResult> results = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            BatchReservationRequest.Line line = lines.get(i);
+            results.add(new BatchReservationResponse.LineResult(line.getProductCode(), line.getQuantity(),
+                    true, saved.get(i).getId(), null));
+        }
+        return new BatchReservationResponse(true, results);
+    }
+
+    // Served from the snapshot, so availability checks never queue behind reservation locks
+    @Override
+    public AvailabilityResponse getAvailability(AvailabilityRequest req) {
+        return snapshot.get(req);
+    }
+
+    protected ReservationUpdateResponse doRelease(Collection<Long> ids, Predicate<StockReservation> releasable) {
+        if (ids.isEmpty()) {
+            return new ReservationUpdateResponse(List.of(), List.of());
+        }
+        List<Long> updated = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>(ids);
+
+        // 1) read the bucket each (warehouse, product) goes back to first, in (warehouse, product) order like reserveItems
+        Map<List<Long>, Inventory> rows = new HashMap<>();
+        reservationRepository.findAllById(ids).stream()
+                .map(reservation -> List.of(reservation.getWarehouseId(), reservation.getProductCode()))
+                .distinct()
+                .sorted(Comparator.<List<Long>, Long>comparing(key -> key.get(0)).thenComparing(key -> key.get(1)))
+                .forEach(key -> returnBucket(key.get(0), key.get(1))
+                        .ifPresent(inv -> rows.put(key, inv)));
+
+        // 2) then lock the reservations, and re-check their state now that nobody else can change it
+        Instant now = Instant.now();
+        for (StockReservation reservation : reservationRepository.findAllByIdForUpdate(ids)) {
+            Inventory inv = rows.get(List.of(reservation.getWarehouseId(), reservation.getProductCode()));
+            if (inv == null || !releasable.test(reservation)) {
+                continue;
+            }
+            inv.setAvailableQuantity(inv.getAvailableQuantity() + reservation.getQuantity());
+            inv.setReservedQuantity(Math.max(0, inv.getReservedQuantity() - reservation.getQuantity()));
+            inv.touch();
+            reservation.setStatus(ReservationStatus.RELEASED);
+            reservation.setExpiresAt(null);
+            reservation.setReleasedAt(now);
+            outOfStock.restocked(reservation.getWarehouseId(), reservation.getProductCode());
+            updated.add(reservation.getId());
+            rejected.remove(reservation.getId());
+        }
+        inventoryRepository.saveAll(rows.values());
+        return new ReservationUpdateResponse(updated, rejected);
+    }
+
+    /**
+     * Chooses the bucket row(s) to take a product's quantity from, without changing them yet.
+     * 1) One random bucket that could cover the quantity in a plain read. If it was drained in the
+     *    meantime, only buckets after it are tried, so locks are still taken in bucket order.
+     * 2) If no single bucket is big enough, or they were all drained, all buckets, and the quantity is
+     *    taken across them. When rows are locked and step 1 holds any bucket but the first one,
+     *    locking the others now would break bucket order: {@link BucketOrderRetry} asks the
+     *    caller to roll back and run again with fromFirstBucket.
+     */
+    private List<Take> allocate(Long warehouseId, Long productCode, long quantity, boolean fromFirstBucket) {
+        List<InventoryBucket> buckets = inventoryRepository.findBuckets(warehouseId, productCode);
+        if (buckets.isEmpty()) {
+            throw new ResourceNotFoundException("Inventory not found for warehouse " + warehouseId + " product " + productCode);
+        }
+
+        List<InventoryBucket> candidates = buckets.stream().filter(bucket -> bucket.availableQuantity() >= quantity).toList();
+        if (!candidates.isEmpty() && !fromFirstBucket) {
+            int start = ThreadLocalRandom.current().nextInt(candidates.size());
+            for (int i = start; i < candidates.size(); i++) {
+                Optional<Inventory> inv = findBucket(candidates.get(i).id());
+                if (inv.isPresent() && inv.get().getAvailableQuantity() >= quantity) {
+                    return List.of(new Take(inv.get(), quantity));
+                }
+            }
+            // Drained since the plain read; the total across buckets may still be enough. Every candidate
+            // from start on is locked now, and locking all buckets stays in order only if that is just the first one
+            boolean onlyFirstLocked = start == candidates.size() - 1 && candidates.get(start).id().equals(buckets.get(0).id());
+            if (locksBuckets() && !onlyFirstLocked) {
+                throw new BucketOrderRetry();
+            }
+        }
+
+        List<Inventory> rows = findAllBuckets(warehouseId, productCode);
+        long available = rows.stream().mapToLong(Inventory::getAvailableQuantity).sum();
+        if (available < quantity) {
+            if (available == 0) {
+                outOfStock.markSoldOut(warehouseId, productCode); // from the fresh read of every bucket, not the plain one
+            }
+            throw new InsufficientStockException("Not enough stock. Available=" + available + " requested=" + quantity);
+        }
+        List<Take> takes = new ArrayList<>();
+        long remaining = quantity;
+        for (Inventory inv : rows) {
+            long part = Math.min(remaining, inv.getAvailableQuantity());
+            if (part > 0) {
+                takes.add(new Take(inv, part));
+                remaining -= part;
+            }
+        }
+        return takes;
+    }
+
+    private void apply(List<Take> takes) {
+        for (Take take : takes) {
+            Inventory inv = take.row();
+            inv.setAvailableQuantity(inv.getAvailableQuantity() - take.quantity());
+            inv.setReservedQuantity(inv.getReservedQuantity() + take.quantity());
+            inv.touch();
+        }
+        inventoryRepository.saveAll(takes.stream().map(Take::row).toList());
+    }
+
+    // Released stock goes back to a random bucket (or the first one if that bucket was re-sharded away)
+    private Optional<Inventory> returnBucket(Long warehouseId, Long productCode) {
+        List<InventoryBucket> buckets = inventoryRepository.findBuckets(warehouseId, productCode);
+        if (buckets.isEmpty()) {
+            return Optional.empty();
+        }
+        InventoryBucket chosen = buckets.get(ThreadLocalRandom.current().nextInt(buckets.size()));
+        return findBucket(chosen.id()).or(() -> findAllBuckets(warehouseId, productCode).stream().findFirst());
+    }
+
+    private record Take(Inventory row, long quantity) {}
+
+    /**
+     * Thrown out of a reservation that needs rows below one it has already locked. The transaction
+     * must be rolled back (releasing that lock) and the reservation run again with fromFirstBucket.
+     */
+    static final class BucketOrderRetry extends RuntimeException {
+        BucketOrderRetry() {
+            super("Retry taking buckets in order", null, false, false);
+        }
+    }
+}
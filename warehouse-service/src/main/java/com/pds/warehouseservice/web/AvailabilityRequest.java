@@ -0,0 +1,19 @@
+package com.pds.warehouseservice.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /availability: which products, in which warehouses.
+ */
+public class AvailabilityRequest {
+    private List<Long> productCodes = new ArrayList<>();
+    private List<Long> warehouseIds = new ArrayList<>();
+
+    public AvailabilityRequest() {}
+
+    public List<Long> getProductCodes() { return productCodes; }
+    public void setProductCodes(List<Long> productCodes) { this.productCodes = productCodes; }
+    public List<Long> getWarehouseIds() { return warehouseIds; }
+    public void setWarehouseIds(List<Long> warehouseIds) { this.warehouseIds = warehouseIds; }
+}
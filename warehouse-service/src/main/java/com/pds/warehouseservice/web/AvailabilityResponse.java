@@ -0,0 +1,47 @@
+package com.pds.warehouseservice.web;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of POST /availability: one entry per (warehouse, product) pair that has an inventory row.
+ * Pairs without a row have no stock. asOf is when the quantities were read.
+ */
+public class AvailabilityResponse {
+    private List<Entry> availability = new ArrayList<>();
+    private Instant asOf;
+
+    public AvailabilityResponse() {}
+
+    public AvailabilityResponse(List<Entry> availability, Instant asOf) {
+        this.availability = availability;
+        this.asOf = asOf;
+    }
+
+    public List<Entry> getAvailability() { return availability; }
+    public void setAvailability(List<Entry> availability) { this.availability = availability; }
+    public Instant getAsOf() { return asOf; }
+    public void setAsOf(Instant asOf) { this.asOf = asOf; }
+
+    public static class Entry {
+        private Long warehouseId;
+        private Long productCode;
+        private long availableQuantity;
+
+        public Entry() {}
+
+        public Entry(Long warehouseId, Long productCode, long availableQuantity) {
+            this.warehouseId = warehouseId;
+            this.productCode = productCode;
+            this.availableQuantity = availableQuantity;
+        }
+
+        public Long getWarehouseId() { return warehouseId; }
+        public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+        public Long getProductCode() { return productCode; }
+        public void setProductCode(Long productCode) { this.productCode = productCode; }
+        public long getAvailableQuantity() { return availableQuantity; }
+        public void setAvailableQuantity(long availableQuantity) { this.availableQuantity = availableQuantity; }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pds.warehouseservice.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /reserve-items: every order line destined for one warehouse.
+ */
+public class BatchReservationRequest {
+    private Long warehouseId;
+    private List<Line> items = new ArrayList<>();
+
+    public BatchReservationRequest() {}
+
+    public BatchReservationRequest(Long warehouseId, List<Line> items) {
+        this.warehouseId = warehouseId;
+        this.items = items;
+    }
+
+    public Long getWarehouseId() { return warehouseId; }
+    public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+    public List<Line> getItems() { return items; }
+    public void setItems(List<Line> items) { this.items = items; }
+
+    public static class Line {
+        private Long productCode;
+        private int quantity;
+
+        public Line() {}
+
+        public Line(Long productCode, int quantity) {
+            this.productCode = productCode;
+            this.quantity = quantity;
+        }
+
+        public Long getProductCode() { return productCode; }
+        public void setProductCode(Long productCode) { this.productCode = productCode; }
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+    }
+}
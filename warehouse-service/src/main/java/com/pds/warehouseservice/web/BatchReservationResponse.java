@@ -0,0 +1,56 @@
+package com.pds.warehouseservice.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of POST /reserve-items.
+ * success is true only if every line was reserved. Line results are returned in
+ * request order; on failure nothing was reserved, and each line's success flag says
+ * whether that line alone could have been satisfied.
+ */
+public class BatchReservationResponse {
+    private boolean success;
+    private List<LineResult> items = new ArrayList<>();
+
+    public BatchReservationResponse() {}
+
+    public BatchReservationResponse(boolean success, List<LineResult> items) {
+        this.success = success;
+        this.items = items;
+    }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+    public List<LineResult> getItems() { return items; }
+    public void setItems(List<LineResult> items) { this.items = items; }
+
+    public static class LineResult {
+        private Long productCode;
+        private int quantity;
+        private boolean success;
+        private Long reservationId;
+        private String message;
+
+        public LineResult() {}
+
+        public LineResult(Long productCode, int quantity, boolean success, Long reservationId, String message) {
+            this.productCode = productCode;
+            this.quantity = quantity;
+            this.success = success;
+            this.reservationId = reservationId;
+            this.message = message;
+        }
+
+        public Long getProductCode() { return productCode; }
+        public void setProductCode(Long productCode) { this.productCode = productCode; }
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+        public boolean isSuccess() { return success; }
+        public void setSuccess(boolean success) { this.success = success; }
+        public Long getReservationId() { return reservationId; }
+        public void setReservationId(Long reservationId) { this.reservationId = reservationId; }
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
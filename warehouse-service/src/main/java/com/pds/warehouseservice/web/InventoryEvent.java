@@ -0,0 +1,40 @@
+package com.pds.warehouseservice.web;
+
+import java.time.Instant;
+
+/**
+ * One change on GET /inventory/events: the new totals of a (warehouse, product), summed over its buckets.
+ * seq increases by one per event; the totals replace what a replica held, so applying an event twice is harmless.
+ */
+public class InventoryEvent {
+    private long seq;
+    private Long warehouseId;
+    private Long productCode;
+    private long availableQuantity;
+    private long reservedQuantity;
+    private Instant changedAt;
+
+    public InventoryEvent() {}
+
+    public InventoryEvent(long seq, Long warehouseId, Long productCode, long availableQuantity, long reservedQuantity, Instant changedAt) {
+        this.seq = seq;
+        this.warehouseId = warehouseId;
+        this.productCode = productCode;
+        this.availableQuantity = availableQuantity;
+        this.reservedQuantity = reservedQuantity;
+        this.changedAt = changedAt;
+    }
+
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+    public Long getWarehouseId() { return warehouseId; }
+    public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+    public Long getProductCode() { return productCode; }
+    public void setProductCode(Long productCode) { this.productCode = productCode; }
+    public long getAvailableQuantity() { return availableQuantity; }
+    public void setAvailableQuantity(long availableQuantity) { this.availableQuantity = availableQuantity; }
+    public long getReservedQuantity() { return reservedQuantity; }
+    public void setReservedQuantity(long reservedQuantity) { this.reservedQuantity = reservedQuantity; }
+    public Instant getChangedAt() { return changedAt; }
+    public void setChangedAt(Instant changedAt) { this.changedAt = changedAt; }
+}
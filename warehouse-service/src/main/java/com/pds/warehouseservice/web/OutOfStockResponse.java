@@ -0,0 +1,73 @@
+package com.pds.warehouseservice.web;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of GET /admin/inventory/out-of-stock: the (warehouse, product) pairs currently marked sold out,
+ * oldest first, and counters since startup. oldestAgeMillis is how stale the oldest mark is; marks
+ * older than ttlMillis are ignored.
+ */
+public class OutOfStockResponse {
+    private List<Entry> soldOut = new ArrayList<>();
+    private long rejected;
+    private long marked;
+    private long unmarked;
+    private long expired;
+    private long oldestAgeMillis;
+    private long ttlMillis;
+    private Instant asOf;
+
+    public OutOfStockResponse() {}
+
+    public OutOfStockResponse(List<Entry> soldOut, long rejected, long marked, long unmarked, long expired,
+                              long oldestAgeMillis, long ttlMillis, Instant asOf) {
+        this.soldOut = soldOut;
+        this.rejected = rejected;
+        this.marked = marked;
+        this.unmarked = unmarked;
+        this.expired = expired;
+        this.oldestAgeMillis = oldestAgeMillis;
+        this.ttlMillis = ttlMillis;
+        this.asOf = asOf;
+    }
+
+    public List<Entry> getSoldOut() { return soldOut; }
+    public void setSoldOut(List<Entry> soldOut) { this.soldOut = soldOut; }
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+    public long getMarked() { return marked; }
+    public void setMarked(long marked) { this.marked = marked; }
+    public long getUnmarked() { return unmarked; }
+    public void setUnmarked(long unmarked) { this.unmarked = unmarked; }
+    public long getExpired() { return expired; }
+    public void setExpired(long expired) { this.expired = expired; }
+    public long getOldestAgeMillis() { return oldestAgeMillis; }
+    public void setOldestAgeMillis(long oldestAgeMillis) { this.oldestAgeMillis = oldestAgeMillis; }
+    public long getTtlMillis() { return ttlMillis; }
+    public void setTtlMillis(long ttlMillis) { this.ttlMillis = ttlMillis; }
+    public Instant getAsOf() { return asOf; }
+    public void setAsOf(Instant asOf) { this.asOf = asOf; }
+
+    public static class Entry {
+        private Long warehouseId;
+        private Long productCode;
+        private Instant markedAt;
+
+        public Entry() {}
+
+        public Entry(Long warehouseId, Long productCode, Instant markedAt) {
+            this.warehouseId = warehouseId;
+            this.productCode = productCode;
+            this.markedAt = markedAt;
+        }
+
+        public Long getWarehouseId() { return warehouseId; }
+        public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+        public Long getProductCode() { return productCode; }
+        public void setProductCode(Long productCode) { this.productCode = productCode; }
+        public Instant getMarkedAt() { return markedAt; }
+        public void setMarkedAt(Instant markedAt) { this.markedAt = markedAt; }
+    }
+}
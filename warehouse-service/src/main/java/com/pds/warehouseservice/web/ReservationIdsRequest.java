@@ -0,0 +1,16 @@
+package com.pds.warehouseservice.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /reservations/confirm and POST /reservations/release.
+ */
+public class ReservationIdsRequest {
+    private List<Long> reservationIds = new ArrayList<>();
+
+    public ReservationIdsRequest() {}
+
+    public List<Long> getReservationIds() { return reservationIds; }
+    public void setReservationIds(List<Long> reservationIds) { this.reservationIds = reservationIds; }
+}
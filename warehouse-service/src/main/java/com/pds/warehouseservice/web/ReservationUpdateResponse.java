@@ -0,0 +1,26 @@
+package com.pds.warehouseservice.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of POST /reservations/confirm and POST /reservations/release.
+ * updatedIds moved to the target state; rejectedIds did not (unknown, or already in a
+ * state that does not allow the transition, e.g. a hold that expired and was released).
+ */
+public class ReservationUpdateResponse {
+    private List<Long> updatedIds = new ArrayList<>();
+    private List<Long> rejectedIds = new ArrayList<>();
+
+    public ReservationUpdateResponse() {}
+
+    public ReservationUpdateResponse(List<Long> updatedIds, List<Long> rejectedIds) {
+        this.updatedIds = updatedIds;
+        this.rejectedIds = rejectedIds;
+    }
+
+    public List<Long> getUpdatedIds() { return updatedIds; }
+    public void setUpdatedIds(List<Long> updatedIds) { this.updatedIds = updatedIds; }
+    public List<Long> getRejectedIds() { return rejectedIds; }
+    public void setRejectedIds(List<Long> rejectedIds) { this.rejectedIds = rejectedIds; }
+}
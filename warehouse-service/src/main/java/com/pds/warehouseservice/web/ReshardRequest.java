@@ -0,0 +1,25 @@
+package com.pds.warehouseservice.web;
+
+/**
+ * Body of POST /admin/inventory/reshard: split one product's stock in a warehouse over this many bucket rows.
+ */
+public class ReshardRequest {
+    private Long warehouseId;
+    private Long productCode;
+    private int buckets;
+
+    public ReshardRequest() {}
+
+    public ReshardRequest(Long warehouseId, Long productCode, int buckets) {
+        this.warehouseId = warehouseId;
+        this.productCode = productCode;
+        this.buckets = buckets;
+    }
+
+    public Long getWarehouseId() { return warehouseId; }
+    public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+    public Long getProductCode() { return productCode; }
+    public void setProductCode(Long productCode) { this.productCode = productCode; }
+    public int getBuckets() { return buckets; }
+    public void setBuckets(int buckets) { this.buckets = buckets; }
+}
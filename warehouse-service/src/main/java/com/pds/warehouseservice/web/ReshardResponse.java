@@ -0,0 +1,33 @@
+package com.pds.warehouseservice.web;
+
+/**
+ * Result of POST /admin/inventory/reshard: the new bucket count and the (unchanged) totals spread over it.
+ */
+public class ReshardResponse {
+    private Long warehouseId;
+    private Long productCode;
+    private int buckets;
+    private long availableQuantity;
+    private long reservedQuantity;
+
+    public ReshardResponse() {}
+
+    public ReshardResponse(Long warehouseId, Long productCode, int buckets, long availableQuantity, long reservedQuantity) {
+        this.warehouseId = warehouseId;
+        this.productCode = productCode;
+        this.buckets = buckets;
+        this.availableQuantity = availableQuantity;
+        this.reservedQuantity = reservedQuantity;
+    }
+
+    public Long getWarehouseId() { return warehouseId; }
+    public void setWarehouseId(Long warehouseId) { this.warehouseId = warehouseId; }
+    public Long getProductCode() { return productCode; }
+    public void setProductCode(Long productCode) { this.productCode = productCode; }
+    public int getBuckets() { return buckets; }
+    public void setBuckets(int buckets) { this.buckets = buckets; }
+    public long getAvailableQuantity() { return availableQuantity; }
+    public void setAvailableQuantity(long availableQuantity) { this.availableQuantity = availableQuantity; }
+    public long getReservedQuantity() { return reservedQuantity; }
+    public void setReservedQuantity(long reservedQuantity) { this.reservedQuantity = reservedQuantity; }
+}
@@ -1,18 +1,23 @@
 package com.pds.warehouseservice.web;
 
+import com.pds.warehouseservice.service.InventoryEventStream;
 import com.pds.warehouseservice.service.InventoryService;
 import com.pds.warehouseservice.web.StockReservationRequest;
 import com.pds.warehouseservice.web.StockReservationResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 public class WarehouseController {
 
     private final InventoryService inventoryService;
+    private final InventoryEventStream inventoryEventStream;
 
-    public WarehouseController(InventoryService inventoryService) {
+    public WarehouseController(InventoryService inventoryService, InventoryEventStream inventoryEventStream) {
         this.inventoryService = inventoryService;
+        this.inventoryEventStream = inventoryEventStream;
     }
 
     /**
@@ -30,4 +35,86 @@ public class WarehouseController {
             return ResponseEntity.status(409).body(resp); // conflict / failure
         }
     }
+
+    /**
+     * Batch variant used by OrderProcessingService:
+     * POST {warehouseServiceUrl}/reserve-items
+     *
+     * Reserves every line for one warehouse all-or-nothing and returns per-line results.
+     */
+    @PostMapping("/reserve-items")
+    public ResponseEntity<BatchReservationResponse> reserveItems(@RequestBody BatchReservationRequest request) {
+        BatchReservationResponse resp = inventoryService.reserveItems(request);
+        if (resp.isSuccess()) {
+            return ResponseEntity.ok(resp);
+        } else {
+            return ResponseEntity.status(409).body(resp); // conflict / failure
+        }
+    }
+
+    /**
+     * Stock matrix for fulfillment planning:
+     * POST {warehouseServiceUrl}/availability
+     *
+     * Returns available quantities for the requested products in the requested warehouses.
+     */
+    @PostMapping("/availability")
+    public ResponseEntity<AvailabilityResponse> getAvailability(@RequestBody AvailabilityRequest request) {
+        return ResponseEntity.ok(inventoryService.getAvailability(request));
+    }
+
+    /**
+     * Change feed for read replicas (order processing, dashboards):
+     * GET {warehouseServiceUrl}/inventory/events
+     *
+     * Server-Sent Events: a snapshot of every product's totals, then batches of changes in sequence order.
+     * Reconnecting with Last-Event-ID (or ?from=<id>) resumes after that event.
+     */
+    @GetMapping(value = "/inventory/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter inventoryEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                      @RequestParam(value = "from", required = false) String from) {
+        return inventoryEventStream.subscribe(from != null ? from : lastEventId);
+    }
+
+    /**
+     * Called by OrderProcessingService once every item of an order is reserved:
+     * POST {warehouseServiceUrl}/reservations/confirm
+     *
+     * Confirmed reservations no longer expire. Holds that already lapsed come back in rejectedIds.
+     */
+    @PostMapping("/reservations/confirm")
+    public ResponseEntity<ReservationUpdateResponse> confirmReservations(@RequestBody ReservationIdsRequest request) {
+        return ResponseEntity.ok(inventoryService.confirmReservations(request.getReservationIds()));
+    }
+
+    /**
+     * Called by OrderProcessingService when an order fails after some items were reserved:
+     * POST {warehouseServiceUrl}/reservations/release
+     *
+     * Returns the reserved quantities to availableQuantity.
+     */
+    @PostMapping("/reservations/release")
+    public ResponseEntity<ReservationUpdateResponse> releaseReservations(@RequestBody ReservationIdsRequest request) {
+        return ResponseEntity.ok(inventoryService.releaseReservations(request.getReservationIds()));
+    }
+
+    /**
+     * Operator endpoint: POST {warehouseServiceUrl}/admin/inventory/reshard
+     *
+     * Splits a hot product's stock over N bucket rows (or merges it back with N = 1) without stopping reservations.
+     */
+    @PostMapping("/admin/inventory/reshard")
+    public ResponseEntity<ReshardResponse> reshard(@RequestBody ReshardRequest request) {
+        return ResponseEntity.ok(inventoryService.reshard(request));
+    }
+
+    /**
+     * Operator endpoint: GET {warehouseServiceUrl}/admin/inventory/out-of-stock
+     *
+     * Products currently refused as sold out without a database read, with rejection counts and the age of the oldest mark.
+     */
+    @GetMapping("/admin/inventory/out-of-stock")
+    public ResponseEntity<OutOfStockResponse> getOutOfStock() {
+        return ResponseEntity.ok(inventoryService.getOutOfStock());
+    }
 }
@@ -3,7 +3,8 @@ package com.pds.warehouseservice.web.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+// An expected outcome mapped to 409, so no stack trace is filled in
 @ResponseStatus(HttpStatus.CONFLICT)
 public class InsufficientStockException extends RuntimeException {
-    public InsufficientStockException(String message) { super(message); }
+    public InsufficientStockException(String message) { super(message, null, false, false); }
 }
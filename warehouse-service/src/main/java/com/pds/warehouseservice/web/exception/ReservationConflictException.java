@@ -0,0 +1,10 @@
+package com.pds.warehouseservice.web.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Optimistic mode: the row kept changing underneath every retry; the caller may try another warehouse
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReservationConflictException extends RuntimeException {
+    public ReservationConflictException(String message) { super(message); }
+}
@@ -0,0 +1,62 @@
+package com.pds.warehouseservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LedgerJournal across restarts: the previous run flushed its entries up to the checkpoint and
+ * deleted their segments, so nothing on disk tells the new run where the sequence stopped.
+ */
+class LedgerJournalTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sequenceContinuesAfterTheCheckpointWhenTheFlushedSegmentsAreGone() throws Exception {
+        // First run: three entries, flushed (checkpoint 3) and their segment deleted
+        LedgerJournal first = new LedgerJournal(directory);
+        assertTrue(first.open(0).isEmpty());
+        first.append(drafts(3));
+        first.delete(first.rotate());
+        first.close();
+
+        // Second run: one entry acknowledged, then a crash before the next flush
+        LedgerJournal second = new LedgerJournal(directory);
+        assertTrue(second.open(3).stream().allMatch(segment -> segment.entries().isEmpty()));
+        List<LedgerJournal.Entry> acknowledged = second.append(drafts(1));
+        assertEquals(4L, acknowledged.get(0).seq());
+
+        // Third run: the entry is after the checkpoint, so it is replayed
+        List<LedgerJournal.Entry> replay = new LedgerJournal(directory).open(3).stream()
+                .flatMap(segment -> segment.entries().stream())
+                .filter(entry -> entry.seq() > 3)
+                .toList();
+        assertEquals(acknowledged, replay);
+    }
+
+    @Test
+    void sequenceContinuesAfterLeftoverSegmentsNewerThanTheCheckpoint() throws Exception {
+        LedgerJournal first = new LedgerJournal(directory);
+        first.open(0);
+        first.append(drafts(5));
+        first.close();
+
+        LedgerJournal second = new LedgerJournal(directory);
+        assertEquals(5, second.open(2).get(0).entries().size());
+        assertEquals(6L, second.append(drafts(1)).get(0).seq());
+    }
+
+    private static List<LedgerJournal.Entry> drafts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new LedgerJournal.Entry(0, 100 + i, 1L, 10_000L, 1, 0L, 60_000L))
+                .toList();
+    }
+}
@@ -0,0 +1,140 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.WarehouseServiceApplication;
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.Product;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.repository.ProductRepository;
+import com.pds.warehouseservice.web.ReshardRequest;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.exception.ReservationConflictException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and latency of InventoryService.reserveItem in the locking and optimistic modes,
+ * against embedded H2, for several thread counts, SKU skews (share of requests for one hot SKU)
+ * and bucket counts per SKU (InventoryService.reshard).
+ * Not part of the normal build; run with: mvn test -Dbenchmark=true -Dtest=ReservationStrategyBenchmarkTests
+ * The ledger mode is left out: its write-behind SQL is MySQL-specific.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReservationStrategyBenchmarkTests {
+
+    private static final long WAREHOUSE_ID = 1L;
+    private static final int SKUS = 100;
+    private static final long FIRST_PRODUCT_CODE = 10_000L;
+    private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+    private static final double[] HOT_SHARES = {0.0, 0.5, 0.9, 1.0};
+    private static final int[] BUCKET_COUNTS = {1, 8};
+    private static final int WARMUP_REQUESTS = 1_000;
+    private static final int REQUESTS_PER_RUN = 5_000;
+
+    @Test
+    void compareReservationModes() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (String mode : List.of("locking", "optimistic")) {
+            try (ConfigurableApplicationContext context = start(mode)) {
+                seed(context);
+                InventoryService inventoryService = context.getBean(InventoryService.class);
+                run(mode, inventoryService, 1, 8, 0.0, WARMUP_REQUESTS);
+                for (int buckets : BUCKET_COUNTS) {
+                    for (int i = 0; i < SKUS; i++) {
+                        inventoryService.reshard(new ReshardRequest(WAREHOUSE_ID, FIRST_PRODUCT_CODE + i, buckets));
+                    }
+                    for (int threads : THREAD_COUNTS) {
+                        for (double hotShare : HOT_SHARES) {
+                            Result result = run(mode, inventoryService, buckets, threads, hotShare, REQUESTS_PER_RUN);
+                            assertEquals(0, result.errors(), "unexpected errors in " + result);
+                            results.add(result);
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-11s %7s %7s %9s %12s %9s %9s %9s%n", "mode", "buckets", "threads", "hot share", "reserves/s", "p50 ms", "p99 ms", "conflicts");
+        for (Result r : results) {
+            System.out.printf("%-11s %7d %7d %9.2f %12.0f %9.2f %9.2f %9d%n",
+                    r.mode(), r.buckets(), r.threads(), r.hotShare(), r.throughput(), r.p50Millis(), r.p99Millis(), r.conflicts());
+        }
+    }
+
+    private ConfigurableApplicationContext start(String mode) {
+        return new SpringApplicationBuilder(WarehouseServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--warehouse.inventory.mode=" + mode,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode + ";MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=" + Arrays.stream(THREAD_COUNTS).max().getAsInt(),
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never");
+    }
+
+    // Enough stock that no run ever runs out: only contention is measured
+    private void seed(ConfigurableApplicationContext context) {
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        InventoryRepository inventoryRepository = context.getBean(InventoryRepository.class);
+        for (int i = 0; i < SKUS; i++) {
+            Product product = productRepository.save(new Product(FIRST_PRODUCT_CODE + i, "Benchmark SKU " + i));
+            inventoryRepository.save(new Inventory(WAREHOUSE_ID, product, 1_000_000_000L));
+        }
+    }
+
+    private Result run(String mode, InventoryService inventoryService, int buckets, int threads, double hotShare, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        long sku = random.nextDouble() < hotShare ? 0 : random.nextInt(SKUS);
+                        long callStart = System.nanoTime();
+                        try {
+                            inventoryService.reserveItem(new StockReservationRequest(WAREHOUSE_ID, FIRST_PRODUCT_CODE + sku, 1));
+                        } catch (ReservationConflictException e) {
+                            conflicts.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - callStart;
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        return new Result(mode, buckets, threads, hotShare, requests / seconds,
+                latencies[requests / 2] / 1e6, latencies[(int) (requests * 0.99)] / 1e6, conflicts.get(), errors.get());
+    }
+
+    private record Result(String mode, int buckets, int threads, double hotShare, double throughput,
+                          double p50Millis, double p99Millis, int conflicts, int errors) {}
+}
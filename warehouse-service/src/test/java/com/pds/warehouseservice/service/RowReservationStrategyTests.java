@@ -0,0 +1,138 @@
+package com.pds.warehouseservice.service;
+
+import com.pds.warehouseservice.model.Inventory;
+import com.pds.warehouseservice.model.InventoryBucket;
+import com.pds.warehouseservice.repository.InventoryRepository;
+import com.pds.warehouseservice.repository.StockReservationRepository;
+import com.pds.warehouseservice.web.StockReservationRequest;
+import com.pds.warehouseservice.web.StockReservationResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * RowReservationStrategy.allocate when the plain read is stale: the only bucket big enough was
+ * drained before it was read again, but the buckets together still hold the quantity.
+ * Plain read: buckets 0, 1, 2 with 2, 2 and 10; current rows: 2, 2 and 1; 5 requested.
+ */
+class RowReservationStrategyTests {
+
+    private static final long WAREHOUSE_ID = 1L;
+    private static final long PRODUCT_CODE = 10_000L;
+
+    private InventoryRepository inventoryRepository;
+    private StockReservationRepository reservationRepository;
+    private List<Inventory> rows;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = mock(InventoryRepository.class);
+        reservationRepository = mock(StockReservationRepository.class);
+        when(reservationRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+
+        rows = List.of(row(11L, 0, 2), row(12L, 1, 2), row(13L, 2, 1));
+        when(inventoryRepository.findBuckets(WAREHOUSE_ID, PRODUCT_CODE)).thenReturn(List.of(
+                new InventoryBucket(11L, 0, 2), new InventoryBucket(12L, 1, 2), new InventoryBucket(13L, 2, 10)));
+        for (Inventory row : rows) {
+            when(inventoryRepository.findByIdForUpdate(row.getId())).thenReturn(Optional.of(row));
+            when(inventoryRepository.findById(row.getId())).thenReturn(Optional.of(row));
+        }
+        when(inventoryRepository.findAllBucketsForUpdate(WAREHOUSE_ID, PRODUCT_CODE)).thenReturn(rows);
+        when(inventoryRepository.findAllBuckets(WAREHOUSE_ID, PRODUCT_CODE)).thenReturn(rows);
+    }
+
+    @Test
+    void lockingRetriesFromTheFirstBucketWhenTheChosenOneIsDrained() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        LockingReservationStrategy strategy = init(new LockingReservationStrategy(inventoryRepository, reservationRepository,
+                mock(InventorySnapshot.class), mock(OutOfStockCache.class), transactionManager));
+
+        StockReservationResponse response = strategy.reserveItem(new StockReservationRequest(WAREHOUSE_ID, PRODUCT_CODE, 5));
+
+        assertTrue(response.isSuccess());
+        assertTaken();
+        // The lock on bucket 2 went with the first transaction before bucket 0 was locked in the second
+        var order = inOrder(inventoryRepository, transactionManager);
+        order.verify(inventoryRepository).findByIdForUpdate(13L);
+        order.verify(transactionManager).rollback(any());
+        order.verify(inventoryRepository).findAllBucketsForUpdate(WAREHOUSE_ID, PRODUCT_CODE);
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void lockingRetriesWhenTheDrainedCandidatesAreNotContiguous() {
+        // Plain read: buckets 0, 2 and 5 could each cover 5; all six rows now hold 1. Step 1 locks the
+        // candidates from a random one to the last, so it always ends holding bucket 5 or, from bucket 0,
+        // buckets 0, 2 and 5 with 1, 3 and 4 still to lock: every start has to retry. Run often enough
+        // to start from each candidate.
+        for (int run = 0; run < 30; run++) {
+            setUp();
+            rows = List.of(row(11L, 0, 1), row(12L, 1, 1), row(13L, 2, 1), row(14L, 3, 1), row(15L, 4, 1), row(16L, 5, 1));
+            when(inventoryRepository.findBuckets(WAREHOUSE_ID, PRODUCT_CODE)).thenReturn(List.of(
+                    new InventoryBucket(11L, 0, 10), new InventoryBucket(12L, 1, 1), new InventoryBucket(13L, 2, 10),
+                    new InventoryBucket(14L, 3, 1), new InventoryBucket(15L, 4, 1), new InventoryBucket(16L, 5, 10)));
+            for (Inventory row : rows) {
+                when(inventoryRepository.findByIdForUpdate(row.getId())).thenReturn(Optional.of(row));
+            }
+            when(inventoryRepository.findAllBucketsForUpdate(WAREHOUSE_ID, PRODUCT_CODE)).thenReturn(rows);
+            PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+            LockingReservationStrategy strategy = init(new LockingReservationStrategy(inventoryRepository, reservationRepository,
+                    mock(InventorySnapshot.class), mock(OutOfStockCache.class), transactionManager));
+
+            StockReservationResponse response = strategy.reserveItem(new StockReservationRequest(WAREHOUSE_ID, PRODUCT_CODE, 5));
+
+            assertTrue(response.isSuccess());
+            assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 1L), rows.stream().map(Inventory::getAvailableQuantity).toList());
+            var order = inOrder(inventoryRepository, transactionManager);
+            order.verify(inventoryRepository).findByIdForUpdate(16L);
+            order.verify(transactionManager).rollback(any());
+            order.verify(inventoryRepository).findAllBucketsForUpdate(WAREHOUSE_ID, PRODUCT_CODE);
+            order.verify(transactionManager).commit(any());
+            verify(inventoryRepository, times(1)).findAllBucketsForUpdate(WAREHOUSE_ID, PRODUCT_CODE);
+        }
+    }
+
+    @Test
+    void optimisticFallsThroughToAllBucketsWhenTheChosenOneIsDrained() {
+        OptimisticReservationStrategy strategy = init(new OptimisticReservationStrategy(inventoryRepository, reservationRepository,
+                mock(InventorySnapshot.class), mock(OutOfStockCache.class), mock(PlatformTransactionManager.class), 5, 2, 50));
+
+        StockReservationResponse response = strategy.reserveItem(new StockReservationRequest(WAREHOUSE_ID, PRODUCT_CODE, 5));
+
+        assertTrue(response.isSuccess());
+        assertTaken();
+        verify(inventoryRepository).findAllBuckets(WAREHOUSE_ID, PRODUCT_CODE);
+    }
+
+    // Everything left, taken in bucket order
+    private void assertTaken() {
+        assertEquals(List.of(0L, 0L, 0L), rows.stream().map(Inventory::getAvailableQuantity).toList());
+        assertEquals(List.of(2L, 2L, 1L), rows.stream().map(Inventory::getReservedQuantity).toList());
+    }
+
+    private static <T extends RowReservationStrategy> T init(T strategy) {
+        ReflectionTestUtils.setField(strategy, "holdTtl", Duration.ofMinutes(15));
+        return strategy;
+    }
+
+    private static Inventory row(Long id, int bucket, long available) {
+        Inventory row = new Inventory(WAREHOUSE_ID, null, available);
+        row.setId(id);
+        row.setBucket(bucket);
+        return row;
+    }
+}